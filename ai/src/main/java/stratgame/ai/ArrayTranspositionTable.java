@@ -0,0 +1,259 @@
+package stratgame.ai;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Set-associative {@link TranspositionTable} backed by a single {@code
+ * long[]}.
+ * <p>
+ * Each entry occupies two adjacent slots: {@code key ^ data}, then {@code
+ * data}.  A probe recomputes the {@code XOR} and only accepts the entry if the
+ * result matches the requested key, which rejects both index collisions and
+ * entries that were torn by a concurrent {@link #store(long, long)}.  Thus, a
+ * single instance may safely be shared between search threads without locks.
+ * A race between two stores may lose one of their results, or leave a stale
+ * copy of an entry behind, but never lets a probe return a result stored
+ * against another key.
+ * <p>
+ * Entries are grouped into buckets of {@link #ways()} adjacent entries, any of
+ * which may hold a given key, and the {@link #replacement()} policy chooses
+ * which entry of a full bucket a new result evicts.  The default, a single
+ * entry per bucket under {@link Replacement#ALWAYS}, makes the table
+ * direct-mapped.
+ * <p>
+ * {@link #save(Path)} writes a table's shape and entries to a file, and {@link
+ * #load(Path)} reads them back into a new table, so that results can outlive
+ * the process that searched them.
+ */
+public class ArrayTranspositionTable implements TranspositionTable {
+
+  private final long[] entries; // (key ^ data, data) pairs
+  private final int mask; // selects a bucket index from a key
+  private final int ways; // entries per bucket
+  private final Replacement replacement; // eviction policy for full buckets
+
+  private static final long MAGIC = 0x7374726174545431L; // "stratTT1"
+  private static final int HEADER_BYTES = 20;
+
+  /**
+   * Constructs an empty, direct-mapped {@code ArrayTranspositionTable} that
+   * holds {@code capacity}, rounded up to a power of two, entries.
+   */
+  public ArrayTranspositionTable(int capacity) {
+    this(capacity, 1, Replacement.ALWAYS);
+  }
+
+  /**
+   * Constructs an empty {@code ArrayTranspositionTable} that holds about
+   * {@code capacity} entries, in a power of two of buckets of {@code ways}
+   * entries each, and evicts entries by {@code replacement}.
+   */
+  public ArrayTranspositionTable(int capacity, int ways, Replacement replacement) {
+    if (capacity <= 0 || capacity > (1 << 29)) {
+      throw new IllegalArgumentException("capacity must be in 1..=2^29");
+    }
+    if (ways < 1 || ways > 16) {
+      throw new IllegalArgumentException("ways must be in 1..=16");
+    }
+    if (replacement == Replacement.TWO_TIER && ways < 2) {
+      throw new IllegalArgumentException("TWO_TIER requires at least 2 ways");
+    }
+    final int buckets = (capacity + ways - 1) / ways;
+    final int size = Integer.highestOneBit(buckets) == buckets ?
+        buckets : Integer.highestOneBit(buckets) << 1;
+    this.entries = new long[size * ways << 1];
+    this.mask = size - 1;
+    this.ways = ways;
+    this.replacement = replacement;
+  }
+
+  /**
+   * Returns a table of the shape and with the entries that {@link #save(Path)}
+   * wrote to {@code file}.
+   *
+   * @throws IOException if {@code file} cannot be read or was not written by
+   * {@link #save(Path)}.
+   */
+  public static ArrayTranspositionTable load(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+      while (header.hasRemaining() && channel.read(header) >= 0) { }
+      header.flip();
+      if (header.remaining() < HEADER_BYTES || header.getLong() != MAGIC) {
+        throw new IOException(file + " is not a saved table");
+      }
+      final int buckets = header.getInt();
+      final int ways = header.getInt();
+      final int replacement = header.getInt();
+      if (Integer.bitCount(buckets) != 1 || ways < 1 || ways > 16
+          || replacement < 0 || replacement >= Replacement.values().length
+          || (long) buckets * ways > (1 << 29)
+          || channel.size() != HEADER_BYTES + 16L * buckets * ways) {
+        throw new IOException(file + " is not a saved table");
+      }
+      final ArrayTranspositionTable table = new ArrayTranspositionTable(
+          buckets * ways, ways, Replacement.values()[replacement]);
+      final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+      for (int i = 0; i < table.entries.length; ) {
+        buffer.clear();
+        buffer.limit((int) Math.min(buffer.capacity(), 8L * (table.entries.length - i)));
+        while (buffer.hasRemaining()) {
+          if (channel.read(buffer) < 0) {
+            throw new IOException(file + " is truncated");
+          }
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+          table.entries[i++] = buffer.getLong();
+        }
+      }
+      return table;
+    }
+  }
+
+  /**
+   * Writes this table's shape and entries to {@code file}, replacing any
+   * previous contents.  Concurrent stores may or may not be captured.
+   */
+  public void save(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+      header.putLong(MAGIC).putInt(mask + 1).putInt(ways).putInt(replacement.ordinal());
+      header.flip();
+      while (header.hasRemaining()) {
+        channel.write(header);
+      }
+      final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+      for (int i = 0; i < entries.length; ) {
+        buffer.clear();
+        while (i < entries.length && buffer.remaining() >= 8) {
+          buffer.putLong(entries[i++]);
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+      }
+    }
+  }
+
+  /**
+   * The number of entries that this table can hold.
+   */
+  public int capacity() {
+    return (mask + 1) * ways;
+  }
+
+  /**
+   * The number of entries in each bucket.
+   */
+  public int ways() {
+    return ways;
+  }
+
+  /**
+   * The policy by which a new result evicts an entry of a full bucket.
+   */
+  public Replacement replacement() {
+    return replacement;
+  }
+
+  /**
+   * The number of entries that hold a result, found by scanning the table.
+   */
+  public int occupancy() {
+    int result = 0;
+    for (int i = 0; i < entries.length; i += 2) {
+      if ((entries[i] | entries[i + 1]) != 0L) {
+        result++;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the slot of the first entry of the bucket of {@code key}.
+   */
+  private int index(long key) {
+    return ((int) (key ^ (key >>> 32)) & mask) * ways << 1;
+  }
+
+  @Override
+  public long probe(long key) {
+    final int base = index(key);
+    for (int i = base; i < base + (ways << 1); i += 2) {
+      final long data = entries[i + 1];
+      if ((entries[i] ^ data) == key) {
+        return data;
+      }
+    }
+    return MISS;
+  }
+
+  /**
+   * Stores {@code data} against {@code key}, unless the bucket already holds a
+   * result for {@code key} that was searched to a strictly greater depth, or
+   * the {@link #replacement()} policy drops it.
+   */
+  @Override
+  public void store(long key, long data) {
+    final int base = index(key);
+    final int end = base + (ways << 1);
+    // first slot of the entries that always replace
+    final int rest = replacement == Replacement.TWO_TIER ? base + 2 : base;
+    int victim = -1;
+    int victimDepth = Integer.MAX_VALUE;
+    for (int i = base; i < end; i += 2) {
+      final long old = entries[i + 1];
+      if ((entries[i] ^ old) == key) {
+        if (TranspositionTable.depth(old) <= TranspositionTable.depth(data)) {
+          write(i, key, data);
+        }
+        return;
+      }
+      // an empty entry counts as shallower than any other
+      final int depth = old == MISS ? -1 : TranspositionTable.depth(old);
+      if (i >= rest && depth < victimDepth) {
+        victim = i;
+        victimDepth = depth;
+      }
+    }
+    switch (replacement) {
+      case DEPTH_PREFERRED:
+        if (victimDepth > TranspositionTable.depth(data)) {
+          return;
+        }
+        break;
+      case TWO_TIER:
+        final long first = entries[base + 1];
+        if (first == MISS
+            || TranspositionTable.depth(first) <= TranspositionTable.depth(data)) {
+          if (first != MISS) {
+            entries[victim] = entries[base];
+            entries[victim + 1] = first;
+          }
+          victim = base;
+        }
+        break;
+      default:
+        break;
+    }
+    write(victim, key, data);
+  }
+
+  private void write(int i, long key, long data) {
+    entries[i] = key ^ data;
+    entries[i + 1] = data;
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(entries, 0L);
+  }
+}
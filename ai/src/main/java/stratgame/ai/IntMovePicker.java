@@ -0,0 +1,126 @@
+package stratgame.ai;
+
+import stratgame.game.IntState;
+
+/**
+ * Staged source of the moves of a single node in a search of an {@link
+ * IntState}.
+ * <p>
+ * Moves are yielded in the following stages:
+ * <p><ol>
+ * <li> the move that a {@link TranspositionTable} recorded for this position,
+ * if any, found by its index via {@link IntState#validMove(int)}
+ * <li> the two most recent moves to cause a beta cutoff at the same ply (the
+ * "killer" moves), if {@link IntState#isValidMove(int) valid} here
+ * <li> every other move, in {@link IntState#validMoves(int[])} order
+ * </ol><p>
+ * A lazy picker only generates the moves of the last stage once the earlier
+ * stages are exhausted, so a node that is cut off by its table's move or a
+ * killer never generates its moves at all.  An eager picker generates them up
+ * front but yields the same sequence, so that the two can be compared.
+ * <p>
+ * A picker is reset for every node and must not be reused until its node has
+ * been searched; searches therefore keep one picker per ply.
+ */
+public final class IntMovePicker {
+
+  private static final int TABLE = 0;
+  private static final int KILLER = 1;
+  private static final int RUNNER_UP = 2;
+  private static final int REST = 3;
+
+  private final int[] moves; // generated moves, once generated
+  private IntState state; // node whose moves are picked
+  private int count = -1; // number of generated moves; -1 until generated
+  private int cursor; // next generated move to consider
+  private int stage; // next stage to yield from
+  private int ttMove; // move yielded by the TABLE stage, or NO_MOVE
+  private int ttIndex; // index of the table's move within validMoves
+  private int killer; // killer yielded by the KILLER stage, or NO_MOVE
+  private int runnerUp; // killer yielded by the RUNNER_UP stage, or NO_MOVE
+  private long generated; // number of moves generated since construction
+
+  /**
+   * Constructs a picker for states with at most {@code capacity} valid moves.
+   */
+  public IntMovePicker(int capacity) {
+    this.moves = new int[capacity];
+  }
+
+  /**
+   * Prepares to pick the moves of {@code state}, whose table's move is at
+   * {@code ttIndex} within {@code validMoves} ({@link
+   * TranspositionTable#NO_MOVE} if none), and whose ply recorded the killers
+   * {@code killer} and {@code runnerUp} ({@link IntState#NO_MOVE} if none).
+   */
+  public void reset(IntState state, int ttIndex, int killer, int runnerUp,
+      boolean lazy) {
+    this.state = state;
+    this.stage = TABLE;
+    this.cursor = 0;
+    this.ttIndex = ttIndex;
+    this.killer = killer;
+    this.runnerUp = runnerUp;
+    this.count = -1;
+    if (!lazy) {
+      generate();
+    }
+  }
+
+  /**
+   * Returns the next move to search, or {@link IntState#NO_MOVE} once every
+   * move has been yielded.
+   */
+  @SuppressWarnings("fallthrough")
+  public int next() {
+    switch (stage) {
+      case TABLE:
+        stage = KILLER;
+        ttMove = ttIndex == TranspositionTable.NO_MOVE ? IntState.NO_MOVE
+            : count < 0 ? state.validMove(ttIndex)
+            : ttIndex < count ? moves[ttIndex] : IntState.NO_MOVE;
+        if (ttMove != IntState.NO_MOVE) {
+          return ttMove;
+        }
+        // fall through
+      case KILLER:
+        stage = RUNNER_UP;
+        if (killer != IntState.NO_MOVE && killer != ttMove && state.isValidMove(killer)) {
+          return killer;
+        }
+        killer = IntState.NO_MOVE;
+        // fall through
+      case RUNNER_UP:
+        stage = REST;
+        if (runnerUp != IntState.NO_MOVE && runnerUp != ttMove
+            && runnerUp != killer && state.isValidMove(runnerUp)) {
+          return runnerUp;
+        }
+        runnerUp = IntState.NO_MOVE;
+        // fall through
+      default:
+        if (count < 0) {
+          generate();
+        }
+        while (cursor < count) {
+          final int m = moves[cursor++];
+          if (m != ttMove && m != killer && m != runnerUp) {
+            return m;
+          }
+        }
+        return IntState.NO_MOVE;
+    }
+  }
+
+  /**
+   * The number of moves that this picker has generated since construction.
+   */
+  public long generated() {
+    return generated;
+  }
+
+  private void generate() {
+    count = state.validMoves(moves);
+    generated += count;
+  }
+}
@@ -0,0 +1,413 @@
+package stratgame.ai;
+
+import java.util.Arrays;
+import stratgame.game.IntState;
+import stratgame.game.Player;
+import stratgame.game.State;
+
+/**
+ * {@link Player} that uses a minimax strategy to decide plays in an {@link
+ * IntState}, without boxing a single move.
+ * <p>
+ * This is the in-place alpha-beta search of {@link NegamaxPlayer}, specialized
+ * to {@code int} moves: it walks the given state down and back up the game tree
+ * via {@link IntState#makeMove(int)} and {@link State#unmakeMove()}, and
+ * draws each node's moves from an {@link IntMovePicker} that is allocated once
+ * per ply and then reused for the rest of the player's life.  Any {@link
+ * TranspositionTable} stores the index of each best move within {@link
+ * IntState#validMoves(int[])}, which is searched first when its position is
+ * reached again, followed by the ply's killer moves.  Values, bounds and
+ * depths mean exactly what they do to a {@code NegamaxPlayer}, so a table may
+ * be shared by both kinds of player.
+ * <p>
+ * By default, pickers are {@link #lazy(boolean) lazy}: a node generates its
+ * remaining moves only if neither its table's move nor its killers cause a
+ * cutoff.
+ * <p>
+ * Assigning a {@link #timeBudget(long)} or a {@link #maxDepth(int)} switches
+ * {@code decide} to iterative deepening, as it does for a {@code
+ * NegamaxPlayer}.  The rest of {@code NegamaxPlayer}'s options (parallel
+ * searches, move ordering beyond the table's move and killers, and alternative search
+ * algorithms) are not offered here.
+ * <p>
+ * The pickers make each {@code IntNegamaxPlayer} unsafe for concurrent use.
+ *
+ * @param <P> the type of mark that identifies this {@code Player} in a game.
+ * @param <S> the type of {@code IntState} to which this {@code Player} submits
+ *           moves.
+ */
+public abstract class IntNegamaxPlayer<P, S extends IntState>
+    implements Player<Integer> {
+
+  /**
+   * The mark that identifies this {@code Player} in a game.
+   */
+  protected P piece;
+
+  /**
+   * The (possibly null) cache of previously searched positions.
+   */
+  private TranspositionTable table;
+
+  /**
+   * The number of milliseconds that {@link #decide(State)} may spend; {@code
+   * 0} if unlimited.
+   */
+  private long timeBudget;
+
+  /**
+   * The deepest iteration that {@link #decide(State)} may search.
+   */
+  private int maxDepth = TranspositionTable.UNBOUNDED_DEPTH;
+
+  /**
+   * Whether pickers generate moves only once the table's move and the killers
+   * are exhausted.
+   */
+  private boolean lazy = true;
+
+  /**
+   * The number of positions visited by the most recent {@link #decide(State)}.
+   */
+  private long nodes;
+
+  /**
+   * The number of moves generated before the most recent {@link
+   * #decide(State)}.
+   */
+  private long generatedBefore;
+
+  /**
+   * The moves of the root.
+   */
+  private int[] rootMoves = new int[0];
+
+  /**
+   * The move picker of the node at each ply of the current search.
+   */
+  private IntMovePicker[] pickers = new IntMovePicker[0];
+
+  /**
+   * Two killer moves per ply, the most recent first.
+   */
+  private int[] killers = new int[0];
+
+  /**
+   * The {@link System#nanoTime()} at which the current iteration must stop;
+   * {@code 0} if never.
+   */
+  private long deadline;
+
+  /**
+   * Whether the current iteration ran out of time.
+   */
+  private boolean aborted;
+
+  /**
+   * Whether the current subtree was cut short by the depth limit.
+   */
+  private boolean horizon;
+
+  protected IntNegamaxPlayer() { }
+
+  /**
+   * The (possibly null) {@code TranspositionTable} used by this player.
+   */
+  public TranspositionTable transpositionTable() {
+    return table;
+  }
+
+  /**
+   * Assigns {@code table} to {@link #transpositionTable()}; {@code null}
+   * disables caching.
+   */
+  public void transpositionTable(TranspositionTable table) {
+    this.table = table;
+  }
+
+  /**
+   * The number of milliseconds that {@link #decide(State)} may spend; {@code
+   * 0} if unlimited.
+   */
+  public long timeBudget() {
+    return timeBudget;
+  }
+
+  /**
+   * Assigns {@code timeBudget} to {@link #timeBudget()}.
+   */
+  public void timeBudget(long timeBudget) {
+    if (timeBudget < 0) {
+      throw new IllegalArgumentException("timeBudget cannot be negative");
+    }
+    this.timeBudget = timeBudget;
+  }
+
+  /**
+   * The deepest iteration that {@link #decide(State)} may search; {@link
+   * TranspositionTable#UNBOUNDED_DEPTH} if unlimited.
+   */
+  public int maxDepth() {
+    return maxDepth;
+  }
+
+  /**
+   * Assigns {@code maxDepth} to {@link #maxDepth()}.
+   */
+  public void maxDepth(int maxDepth) {
+    if (maxDepth < 1 || maxDepth > TranspositionTable.UNBOUNDED_DEPTH) {
+      throw new IllegalArgumentException("maxDepth must be in 1..=" + TranspositionTable.UNBOUNDED_DEPTH);
+    }
+    this.maxDepth = maxDepth;
+  }
+
+  /**
+   * Whether nodes generate their moves only once the table's move and the
+   * killers fail to cause a cutoff.
+   */
+  public boolean lazy() {
+    return lazy;
+  }
+
+  /**
+   * Assigns {@code lazy} to {@link #lazy()}.
+   */
+  public void lazy(boolean lazy) {
+    this.lazy = lazy;
+  }
+
+  /**
+   * The number of positions visited by the most recent {@link #decide(State)}.
+   */
+  public long nodes() {
+    return nodes;
+  }
+
+  /**
+   * The number of moves generated below the root by the most recent {@link
+   * #decide(State)}.
+   */
+  public long generated() {
+    long generated = 0;
+    for (IntMovePicker picker : pickers) {
+      generated += picker == null ? 0 : picker.generated();
+    }
+    return generated - generatedBefore;
+  }
+
+  /**
+   * Returns the best move in {@code trueState}, subject to {@link
+   * #timeBudget()} and {@link #maxDepth()}.  The search mutates {@code
+   * trueState}, but restores it before returning.
+   */
+  @Override
+  public final Integer decide(State<Integer> trueState) {
+    return decide(trueState, timeBudget);
+  }
+
+  /**
+   * Returns the best move in {@code trueState} that can be found within
+   * {@code millis} milliseconds ({@code 0} if unlimited) and {@link
+   * #maxDepth()} plies.
+   * <p>
+   * The first iteration always runs to completion, so that some move is
+   * returned however small the budget.
+   */
+  @SuppressWarnings("unchecked")
+  public final Integer decide(State<Integer> trueState, long millis) {
+    final S state = (S) trueState;
+    nodes = 0;
+    generatedBefore += generated();
+    Arrays.fill(killers, IntState.NO_MOVE);
+    aborted = false;
+    deadline = 0L;
+    if (millis <= 0 && maxDepth == TranspositionTable.UNBOUNDED_DEPTH) {
+      final int choice = rootSearch(state, TranspositionTable.UNBOUNDED_DEPTH, IntState.NO_MOVE);
+      return choice == IntState.NO_MOVE ? null : choice;
+    }
+    final long end = millis > 0 ? System.nanoTime() + millis * 1000000L : 0L;
+    int best = IntState.NO_MOVE;
+    for (int depth = 1; depth <= maxDepth; depth++) {
+      // the first iteration must finish
+      deadline = depth == 1 ? 0L : end;
+      horizon = false;
+      final int choice = rootSearch(state, depth, best);
+      if (aborted) {
+        break;
+      }
+      best = choice;
+      if (!horizon) {
+        // every line reached a terminal state, so deeper searches are moot
+        break;
+      }
+    }
+    return best == IntState.NO_MOVE ? null : best;
+  }
+
+  /**
+   * Returns the best move in {@code state} within {@code depth} plies, trying
+   * {@code first} (unless {@link IntState#NO_MOVE}) before any other move, or
+   * {@code NO_MOVE} if there is none.  Ties go to the earlier move.
+   */
+  private int rootSearch(S state, int depth, int first) {
+    if (rootMoves.length < state.maxValidMoves()) {
+      rootMoves = new int[state.maxValidMoves()];
+    }
+    final int[] moves = rootMoves;
+    final int count = state.validMoves(moves);
+    for (int i = 1; i < count; i++) {
+      if (moves[i] == first) {
+        moves[i] = moves[0];
+        moves[0] = first;
+        break;
+      }
+    }
+    int alpha = -0x7FFFFFFF;
+    int bestValue = Integer.MIN_VALUE;
+    int bestChoice = IntState.NO_MOVE;
+    for (int i = 0; i < count; i++) {
+      state.makeMove(moves[i]);
+      final int value = -negamaxValue(state, childDepth(depth), 1,
+          -0x7FFFFFFF, -alpha, -1);
+      state.unmakeMove();
+      if (aborted) {
+        break;
+      }
+      if (value > bestValue) {
+        bestValue = value;
+        bestChoice = moves[i];
+        alpha = Math.max(alpha, value);
+      }
+    }
+    return bestChoice;
+  }
+
+  /**
+   * Returns the fail-soft negamax value of {@code state}, from the perspective
+   * of the player to move, within {@code depth} plies and the window ({@code
+   * alpha}, {@code beta}).  {@code color} is {@code 1} if the player to move is
+   * this player, and {@code -1} otherwise.
+   */
+  private int negamaxValue(S state, int depth, int ply, int alpha, int beta,
+      int color) {
+    nodes++;
+    if (state.isOver()) {
+      return color * terminalValue(state);
+    }
+    if (depth == 0) {
+      horizon = true;
+      return color * terminalValue(state);
+    }
+    if (deadline != 0L && (nodes & 0x3FF) == 0 && System.nanoTime() - deadline > 0) {
+      aborted = true;
+    }
+    if (aborted) {
+      return 0;
+    }
+    final TranspositionTable table = this.table;
+    final int alphaOrig = alpha;
+    final boolean outerHorizon = horizon;
+    boolean tainted = false;
+    long key = 0L;
+    int ttMove = TranspositionTable.NO_MOVE;
+    if (table != null) {
+      key = state.zobristKey();
+      final long entry = table.probe(key);
+      if (entry != TranspositionTable.MISS) {
+        // even a result too shallow to reuse suggests a move to try first
+        ttMove = TranspositionTable.move(entry);
+        if (TranspositionTable.depth(entry) >= depth) {
+          final int value = TranspositionTable.value(entry);
+          if (TranspositionTable.depth(entry) != TranspositionTable.UNBOUNDED_DEPTH) {
+            // a depth-limited result taints whatever it helps decide
+            horizon = true;
+            tainted = true;
+          }
+          switch (TranspositionTable.bound(entry)) {
+            case TranspositionTable.EXACT:
+              return value;
+            case TranspositionTable.LOWER:
+              alpha = Math.max(alpha, value);
+              break;
+            default:
+              beta = Math.min(beta, value);
+          }
+          if (alpha >= beta) return value;
+        }
+      }
+    }
+    horizon = tainted;
+    final IntMovePicker picker = picker(state, ply);
+    picker.reset(state, ttMove, killers[ply << 1], killers[(ply << 1) + 1], lazy);
+    int bestSoFar = Integer.MIN_VALUE;
+    int bestMove = IntState.NO_MOVE;
+    for (int m = picker.next(); m != IntState.NO_MOVE; m = picker.next()) {
+      state.makeMove(m);
+      final int newValue = -negamaxValue(state, childDepth(depth), ply + 1,
+          -beta, -alpha, -color);
+      state.unmakeMove();
+      if (newValue > bestSoFar) {
+        bestSoFar = newValue;
+        bestMove = m;
+        if (bestSoFar > alpha) {
+          alpha = bestSoFar;
+          if (alpha >= beta) {
+            if (m != killers[ply << 1]) {
+              killers[(ply << 1) + 1] = killers[ply << 1];
+              killers[ply << 1] = m;
+            }
+            break;
+          }
+        }
+      }
+    }
+    if (aborted) {
+      return 0;
+    }
+    final int bestIndex = state.validMoveIndex(bestMove);
+    // a subtree that never hit the depth limit was searched exhaustively
+    final int searched = horizon ? depth : TranspositionTable.UNBOUNDED_DEPTH;
+    horizon |= outerHorizon;
+    if (table != null) {
+      final int bound = bestSoFar <= alphaOrig ? TranspositionTable.UPPER
+          : bestSoFar >= beta ? TranspositionTable.LOWER
+          : TranspositionTable.EXACT;
+      table.store(key, TranspositionTable.pack(bestSoFar, bound,
+          searched, Math.min(bestIndex, TranspositionTable.NO_MOVE)));
+    }
+    return bestSoFar;
+  }
+
+  /**
+   * Returns the move picker for {@code ply}, allocating it (and the ply's
+   * killer slots) if need be.
+   */
+  private IntMovePicker picker(S state, int ply) {
+    if (ply >= pickers.length) {
+      final int length = Math.max(16, 2 * ply);
+      pickers = Arrays.copyOf(pickers, length);
+      final int filled = killers.length;
+      killers = Arrays.copyOf(killers, length << 1);
+      Arrays.fill(killers, filled, killers.length, IntState.NO_MOVE);
+    }
+    IntMovePicker picker = pickers[ply];
+    if (picker == null) {
+      picker = pickers[ply] = new IntMovePicker(state.maxValidMoves());
+    }
+    return picker;
+  }
+
+  /**
+   * Returns the remaining search depth below a node with {@code depth}.
+   */
+  private static int childDepth(int depth) {
+    return depth == TranspositionTable.UNBOUNDED_DEPTH ? depth : depth - 1;
+  }
+
+  /**
+   * Returns the negamax value of this state without evaluating any further
+   * subtrees, e.g. by some heuristic or by treating {@code state} as the
+   * endgame.
+   */
+  public abstract int terminalValue(S state);
+}
@@ -0,0 +1,493 @@
+package stratgame.ai;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import stratgame.game.Player;
+import stratgame.game.State;
+
+/**
+ * {@link Player} that uses Monte Carlo tree search to decide plays.
+ * <p>
+ * Every playout descends the search tree by UCT, choosing the child that
+ * maximizes its mean reward plus {@link #exploration()} times {@code
+ * sqrt(ln(parent visits) / child visits)}, adds one unexplored child to the
+ * tree, and finishes the game with uniformly random moves.  The outcome, as
+ * judged by {@link #terminalValue(State)}, is then credited to every node on
+ * the path from the perspective of the player who moved into it.  Once the
+ * budget is spent, {@link #decide(State)} plays the most visited move.
+ * <p>
+ * Each {@code decide} runs until either {@link #playoutBudget()} playouts or
+ * {@link #timeBudget()} milliseconds are spent, whichever comes first.
+ * <p>
+ * Between calls, the subtree below the chosen move is kept.  When the next
+ * call's state is a reply to that move, recognized by its {@link
+ * State#zobristKey()}, the reply's subtree becomes the new root, so no
+ * playouts through it are thrown away.
+ * <p>
+ * Playouts walk a single copy of the state via {@link State#makeMove} and
+ * {@link State#unmakeMove()}.  Players are assumed to alternate turns.
+ * <p>
+ * Assigning more than one {@link #threads(int)} runs a tree-parallel search:
+ * that many threads, each with its own copy of the state, run playouts
+ * through the one shared tree.  Nothing locks.  A node's visits and score
+ * are packed into one {@code long} that is updated atomically, and its
+ * children are claimed one at a time by compare-and-set.  Every playout
+ * counts its visit on the way down, before its reward is known, so that
+ * concurrent playouts see the nodes on its path as (virtually) lost and
+ * spread out over other moves.  The reward is added on the way back up.
+ *
+ * @param <M> the type of move that this {@code Player} plays.
+ * @param <P> the type of mark that identifies this {@code Player} in a game.
+ * @param <S> the type of {@code State} to which this {@code Player} submits
+ *           moves.
+ */
+public abstract class MctsPlayer<M, P, S extends State<M>>
+    implements Player<M> {
+
+  private static final Object[] NO_MOVES = new Object[0];
+
+  /**
+   * The increment of {@link Node#stats} for one visit.
+   */
+  private static final long VISIT = 1L << 32;
+
+  /**
+   * The mark that identifies this {@code Player} in a game.
+   */
+  protected P piece;
+
+  /**
+   * The number of playouts that {@link #decide(State)} may run; {@code 0} if
+   * unlimited.
+   */
+  private int playoutBudget = 10000;
+
+  /**
+   * The number of milliseconds that {@link #decide(State)} may spend; {@code
+   * 0} if unlimited.
+   */
+  private long timeBudget;
+
+  /**
+   * The UCT exploration constant.
+   */
+  private double exploration = Math.sqrt(2);
+
+  /**
+   * The number of threads that run playouts.
+   */
+  private int threads = 1;
+
+  /**
+   * The source of randomness for expansions and playouts.
+   */
+  private final SplittableRandom random;
+
+  /**
+   * The node of the move chosen by the most recent {@link #decide(State)},
+   * or {@code null}.
+   */
+  private Node<M> last;
+
+  /**
+   * The number of playouts run by the most recent {@link #decide(State)}.
+   */
+  private int playouts;
+
+  /**
+   * The {@link Node#stats} of the root of the most recent {@link
+   * #decide(State)}, then of each of its children.
+   */
+  private long[] rootStats = new long[0];
+
+  protected MctsPlayer() {
+    this.random = new SplittableRandom();
+  }
+
+  /**
+   * Initializes an {@code MctsPlayer} whose playouts are determined by {@code
+   * seed}.
+   */
+  protected MctsPlayer(long seed) {
+    this.random = new SplittableRandom(seed);
+  }
+
+  /**
+   * The number of playouts that {@link #decide(State)} may run; {@code 0} if
+   * unlimited.
+   */
+  public int playoutBudget() {
+    return playoutBudget;
+  }
+
+  /**
+   * Assigns {@code playoutBudget} to {@link #playoutBudget()}.
+   */
+  public void playoutBudget(int playoutBudget) {
+    if (playoutBudget < 0) {
+      throw new IllegalArgumentException("playoutBudget cannot be negative");
+    }
+    this.playoutBudget = playoutBudget;
+  }
+
+  /**
+   * The number of milliseconds that {@link #decide(State)} may spend; {@code
+   * 0} if unlimited.
+   */
+  public long timeBudget() {
+    return timeBudget;
+  }
+
+  /**
+   * Assigns {@code timeBudget} to {@link #timeBudget()}.
+   */
+  public void timeBudget(long timeBudget) {
+    if (timeBudget < 0) {
+      throw new IllegalArgumentException("timeBudget cannot be negative");
+    }
+    this.timeBudget = timeBudget;
+  }
+
+  /**
+   * The UCT exploration constant; larger values favor less visited moves.
+   */
+  public double exploration() {
+    return exploration;
+  }
+
+  /**
+   * Assigns {@code exploration} to {@link #exploration()}.
+   */
+  public void exploration(double exploration) {
+    if (!(exploration >= 0)) {
+      throw new IllegalArgumentException("exploration cannot be negative");
+    }
+    this.exploration = exploration;
+  }
+
+  /**
+   * The number of threads, including the caller's, that run playouts
+   * through the shared tree.
+   */
+  public int threads() {
+    return threads;
+  }
+
+  /**
+   * Assigns {@code threads} to {@link #threads()}.
+   */
+  public void threads(int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("threads must be positive");
+    }
+    this.threads = threads;
+  }
+
+  /**
+   * The number of playouts run by the most recent {@link #decide(State)}.
+   */
+  public int playouts() {
+    return playouts;
+  }
+
+  /**
+   * Returns the packed visits and rewards of the root of the most recent
+   * {@link #decide(State)}, then of each of its children in the order that
+   * they were expanded, as kept in {@link Node#stats}.
+   */
+  long[] rootStats() {
+    return rootStats.clone();
+  }
+
+  /**
+   * Returns the outcome of the finished game {@code state} for this player:
+   * positive for a win, negative for a loss and {@code 0} for a draw.
+   */
+  public abstract int terminalValue(S state);
+
+  /**
+   * Returns the most visited move in {@code trueState} after spending
+   * {@link #playoutBudget()} or {@link #timeBudget()}, or {@code null} if
+   * {@code trueState} is over.
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public M decide(State<M> trueState) {
+    if (playoutBudget == 0 && timeBudget == 0) {
+      throw new IllegalStateException("MctsPlayer requires a playoutBudget or a timeBudget");
+    }
+    if (trueState.isOver()) {
+      last = null;
+      playouts = 0;
+      rootStats = new long[0];
+      return null;
+    }
+    final Node<M> root = reuse(trueState.zobristKey());
+    final long deadline = timeBudget > 0 ? System.nanoTime() + timeBudget * 1000000L : 0L;
+    final AtomicInteger count = new AtomicInteger();
+    final AtomicBoolean stop = new AtomicBoolean();
+    final Thread[] workers = new Thread[threads - 1];
+    for (int i = 0; i < workers.length; i++) {
+      final S copy = (S) trueState.clone();
+      final SplittableRandom split = random.split();
+      workers[i] = new Thread(() -> work(copy, root, split, deadline, count, stop),
+          "mcts-worker-" + (i + 1));
+      workers[i].setDaemon(true);
+      workers[i].start();
+    }
+    try {
+      work((S) trueState.clone(), root, random, deadline, count, stop);
+    } finally {
+      stop.set(true);
+      for (Thread worker : workers) {
+        try {
+          worker.join();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+    playouts = Math.min(count.get(), playoutBudget == 0 ? Integer.MAX_VALUE : playoutBudget);
+    final Edges<M> edges = root.edges;
+    rootStats = new long[1 + edges.children.length()];
+    rootStats[0] = root.stats;
+    Node<M> best = null;
+    for (int i = 0; i < edges.children.length(); i++) {
+      final Node<M> child = edges.children.get(i);
+      if (child != null) {
+        rootStats[1 + i] = child.stats;
+      }
+      if (child != null && (best == null || child.stats > best.stats)) {
+        // visits occupy the high bits, so ties fall to the greater score
+        best = child;
+      }
+    }
+    last = best;
+    return best.move;
+  }
+
+  /**
+   * Runs playouts from {@code root}, whose position is {@code state}, until
+   * {@code count} exhausts the {@link #playoutBudget()}, {@code deadline}
+   * passes or {@code stop} is set.
+   */
+  private void work(S state, Node<M> root, SplittableRandom random, long deadline,
+      AtomicInteger count, AtomicBoolean stop) {
+    final List<Node<M>> path = new ArrayList<>();
+    int done = 0;
+    while (!stop.get()) {
+      if (count.getAndIncrement() >= playoutBudget && playoutBudget != 0) {
+        break;
+      }
+      playout(state, root, path, random);
+      if (deadline != 0L && (++done & 0xF) == 0 && System.nanoTime() >= deadline) {
+        break;
+      }
+    }
+    stop.set(true);
+  }
+
+  /**
+   * Returns the subtree of the position with {@code key} kept from the
+   * previous {@link #decide(State)}, or a fresh root if there is none.
+   */
+  private Node<M> reuse(long key) {
+    final Node<M> previous = last;
+    last = null;
+    if (previous != null) {
+      if (previous.key == key) {
+        return previous;
+      }
+      final Edges<M> edges = previous.edges;
+      if (edges != null) {
+        for (int i = 0; i < edges.children.length(); i++) {
+          final Node<M> child = edges.children.get(i);
+          if (child != null && child.key == key) {
+            return child;
+          }
+        }
+      }
+    }
+    return new Node<>(null, key);
+  }
+
+  /**
+   * Runs one playout from {@code root}, whose position is {@code state}, and
+   * restores {@code state} afterward.  {@code path} is scratch space.
+   */
+  @SuppressWarnings("unchecked")
+  private void playout(S state, Node<M> root, List<Node<M>> path,
+      SplittableRandom random) {
+    final int start = state.movesMade();
+    path.clear();
+    path.add(root);
+    Node.STATS.getAndAdd(root, VISIT);
+    Node<M> node = root;
+    while (true) {
+      Edges<M> edges = node.edges;
+      if (edges == null) {
+        Node.EDGES.compareAndSet(node, null, new Edges<M>(state, random));
+        edges = node.edges;
+      }
+      final int claimed = node.claimed;
+      if (claimed < edges.moves.length) {
+        if (!Node.CLAIMED.compareAndSet(node, claimed, claimed + 1)) {
+          continue;
+        }
+        // add an unexplored child, then finish the game at random
+        final M move = (M) edges.moves[claimed];
+        state.makeMove(move);
+        final Node<M> child = new Node<>(move, state.zobristKey());
+        child.stats = VISIT;
+        edges.children.set(claimed, child);
+        path.add(child);
+        rollout(state, random);
+        break;
+      }
+      if (edges.moves.length == 0) {
+        break;
+      }
+      final Node<M> child = select(node, edges);
+      if (child == null) {
+        // every child is claimed, but none is published yet
+        rollout(state, random);
+        break;
+      }
+      Node.STATS.getAndAdd(child, VISIT);
+      state.makeMove(child.move);
+      path.add(child);
+      node = child;
+    }
+    // rewards are doubled, so that a draw is worth 1
+    final int reward = Integer.signum(terminalValue(state)) + 1;
+    for (int i = 0; i < path.size(); i++) {
+      // this player moved into every node at an odd distance from the root
+      Node.STATS.getAndAdd(path.get(i), (i & 1) == 1 ? reward : 2 - reward);
+    }
+    while (state.movesMade() > start) {
+      state.unmakeMove();
+    }
+  }
+
+  /**
+   * Plays uniformly random moves in {@code state} until the game is over.
+   */
+  private void rollout(S state, SplittableRandom random) {
+    while (!state.isOver()) {
+      final List<M> moves = state.validMoves();
+      state.makeMove(moves.get(random.nextInt(moves.size())));
+    }
+  }
+
+  /**
+   * Returns the child of the fully claimed {@code node} with the greatest
+   * UCT value, or {@code null} if it has none yet.
+   */
+  private Node<M> select(Node<M> node, Edges<M> edges) {
+    final double log = Math.log(node.stats >>> 32);
+    Node<M> best = null;
+    double bestValue = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < edges.children.length(); i++) {
+      final Node<M> child = edges.children.get(i);
+      if (child == null) {
+        // claimed by another thread, which has yet to publish it
+        continue;
+      }
+      final long stats = child.stats;
+      final double visits = stats >>> 32;
+      final double value = (int) stats / (2.0 * visits)
+          + exploration * Math.sqrt(log / visits);
+      if (value > bestValue) {
+        bestValue = value;
+        best = child;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * The moves playable from a position and the children that they reach.
+   */
+  private static final class Edges<M> {
+
+    /**
+     * The playable moves, in the (random) order in which they are expanded.
+     */
+    final Object[] moves;
+
+    /**
+     * The children reached by {@link #moves}, each {@code null} until
+     * published.
+     */
+    final AtomicReferenceArray<Node<M>> children;
+
+    Edges(State<M> state, SplittableRandom random) {
+      moves = state.isOver() ? NO_MOVES : state.validMoves().toArray();
+      for (int i = moves.length - 1; i > 0; i--) {
+        final int j = random.nextInt(i + 1);
+        final Object move = moves[i];
+        moves[i] = moves[j];
+        moves[j] = move;
+      }
+      children = new AtomicReferenceArray<>(moves.length);
+    }
+  }
+
+  /**
+   * A position in the search tree.
+   */
+  private static final class Node<M> {
+
+    @SuppressWarnings("rawtypes")
+    static final AtomicReferenceFieldUpdater<Node, Edges> EDGES =
+        AtomicReferenceFieldUpdater.newUpdater(Node.class, Edges.class, "edges");
+
+    @SuppressWarnings("rawtypes")
+    static final AtomicIntegerFieldUpdater<Node> CLAIMED =
+        AtomicIntegerFieldUpdater.newUpdater(Node.class, "claimed");
+
+    @SuppressWarnings("rawtypes")
+    static final AtomicLongFieldUpdater<Node> STATS =
+        AtomicLongFieldUpdater.newUpdater(Node.class, "stats");
+
+    /**
+     * The move that reached this position from its parent.
+     */
+    final M move;
+
+    /**
+     * The {@link State#zobristKey()} of this position.
+     */
+    final long key;
+
+    /**
+     * The moves playable here; {@code null} until this position is first
+     * visited.
+     */
+    volatile Edges<M> edges;
+
+    /**
+     * The number of {@link Edges#moves} whose children have been claimed.
+     */
+    volatile int claimed;
+
+    /**
+     * The number of playouts through this position in the high 32 bits, and
+     * twice their total reward, for the player who moved into this position,
+     * in the low 32 bits.
+     */
+    volatile long stats;
+
+    Node(M move, long key) {
+      this.move = move;
+      this.key = key;
+    }
+  }
+}
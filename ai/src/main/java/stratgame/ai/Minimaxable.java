@@ -16,6 +16,12 @@ public interface Minimaxable<M> {
    */
   void move(M move);
 
+  /**
+   * Reverts the most recent {@link #move(Object) move} applied to this {@code
+   * Minimaxable}.
+   */
+  void unmove();
+
   /**
    * Returns a new {@code Minimaxable} that captures the result of playing
    * {@code m} to {@code this} (but leaves {@code this} untouched).
@@ -0,0 +1,19 @@
+package stratgame.ai;
+
+import stratgame.game.State;
+
+/**
+ * Game-specific source of static move priorities for {@link NegamaxPlayer}.
+ *
+ * @param <M> the type of move being prioritized.
+ * @param <S> the type of {@code State} in which moves are prioritized.
+ */
+@FunctionalInterface
+public interface MoveOrderer<M, S extends State<M>> {
+
+  /**
+   * Returns the priority of playing {@code move} in {@code state}, clamped to
+   * the range of a {@code short}.  Higher priorities are searched first.
+   */
+  int priority(S state, M move);
+}
@@ -0,0 +1,129 @@
+package stratgame.ai;
+
+import java.util.List;
+import stratgame.game.State;
+
+/**
+ * Move ordering heuristics accumulated by a single search thread.
+ * <p>
+ * Moves are searched in the following order:
+ * <p><ol>
+ * <li> the best move that a {@link TranspositionTable} recorded for this
+ * position, if any
+ * <li> the two most recent moves to cause a beta cutoff at the same ply (the
+ * "killer" moves), if valid here
+ * <li> every other move, by descending {@link MoveOrderer} priority, then by
+ * descending history score
+ * </ol><p>
+ * The history score of a move grows by the square of the remaining depth
+ * every time that move causes a cutoff anywhere in the tree.
+ * <p>
+ * A single {@code long} captures the sort key of each candidate.  From the
+ * left, 8 bits hold the category above (3 for the table's move, 2 and 1 for
+ * the killers, 0 otherwise), 16 bits hold the offset priority, 24 bits hold the
+ * history score, 8 bits hold the complement of a tie-breaking rank, and the
+ * last 8 bits hold the index of the move within {@code validMoves()}.  Sorting
+ * these keys in descending order thus yields the search order directly.
+ *
+ * @param <M> the type of move being ordered.
+ * @param <S> the type of {@code State} in which moves are ordered.
+ */
+public class MoveOrdering<M, S extends State<M>> {
+
+  /**
+   * The deepest ply that is ordered; deeper nodes keep generation order.
+   */
+  public static final int MAX_PLY = 128;
+
+  private static final int HISTORY_BITS = 10;
+  private static final int MAX_HISTORY = 0xFFFFFF;
+
+  private final MoveOrderer<M, S> orderer; // (possibly null) static priorities
+  private final Object[] killers; // two slots per ply
+  private final int[] history; // cutoff scores, indexed by hashed move
+  private final long[][] keys; // sort buffers, one per ply
+
+  /**
+   * Constructs an empty {@code MoveOrdering} that consults {@code orderer}
+   * (if non-null) for static priorities.
+   */
+  public MoveOrdering(MoveOrderer<M, S> orderer) {
+    this.orderer = orderer;
+    this.killers = new Object[MAX_PLY << 1];
+    this.history = new int[1 << HISTORY_BITS];
+    this.keys = new long[MAX_PLY][];
+  }
+
+  /**
+   * Returns the index within {@code validMoves()} encoded in {@code key}.
+   */
+  public static int index(long key) {
+    return (int) key & 0xFF;
+  }
+
+  /**
+   * Returns a buffer whose first {@code moves.size()} entries, passed through
+   * {@link #index(long)}, are the indices of {@code moves} in search order, or
+   * {@code null} if this node cannot be ordered.  {@code ttMove} is the
+   * table's best move index, and a nonzero {@code salt} rotates ties.
+   */
+  public long[] order(S state, List<M> moves, int ttMove, int ply, int salt) {
+    final int n = moves.size();
+    if (n > 0xFF || ply >= MAX_PLY) {
+      return null;
+    }
+    long[] buffer = keys[ply];
+    if (buffer == null || buffer.length < n) {
+      buffer = new long[Math.max(n, 16)];
+      keys[ply] = buffer;
+    }
+    final Object killer = killers[ply << 1];
+    final Object runnerUp = killers[(ply << 1) + 1];
+    for (int i = 0; i < n; i++) {
+      final M m = moves.get(i);
+      final long category = i == ttMove ? 3 : m.equals(killer) ? 2 : m.equals(runnerUp) ? 1 : 0;
+      final int priority = orderer == null ? 0 :
+          Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, orderer.priority(state, m)));
+      final int rank = salt == 0 ? i : (i + salt + ply) % n;
+      buffer[i] = (category << 56)
+          | ((long) (priority - Short.MIN_VALUE) << 40)
+          | ((long) Math.min(history[slot(m)], MAX_HISTORY) << 16)
+          | ((long) (0xFF - rank) << 8)
+          | i;
+    }
+    // insertion sort suffices for at most a few dozen moves
+    for (int i = 1; i < n; i++) {
+      final long key = buffer[i];
+      int j = i - 1;
+      while (j >= 0 && buffer[j] < key) {
+        buffer[j + 1] = buffer[j];
+        j--;
+      }
+      buffer[j + 1] = key;
+    }
+    return buffer;
+  }
+
+  /**
+   * Records that {@code move} caused a beta cutoff at {@code ply} with {@code
+   * remaining} plies left to search.
+   */
+  public void cutoff(M move, int ply, int remaining) {
+    if (ply < MAX_PLY && !move.equals(killers[ply << 1])) {
+      killers[(ply << 1) + 1] = killers[ply << 1];
+      killers[ply << 1] = move;
+    }
+    final int slot = slot(move);
+    history[slot] += remaining * remaining;
+    if (history[slot] > MAX_HISTORY) {
+      // age every score rather than let one saturate
+      for (int i = 0; i < history.length; i++) {
+        history[i] >>>= 1;
+      }
+    }
+  }
+
+  private static int slot(Object move) {
+    return (move.hashCode() * 0x9E3779B9) >>> (32 - HISTORY_BITS);
+  }
+}
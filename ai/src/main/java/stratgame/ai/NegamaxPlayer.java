@@ -1,8 +1,15 @@
 package stratgame.ai;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import stratgame.game.Player;
 import stratgame.game.State;
+import stratgame.game.Symmetric;
 
 /**
  * {@link Player} that uses a minimax strategy to decide plays.
@@ -19,6 +26,61 @@ import stratgame.game.State;
  * behavior, override this {@code NegamaxView} class, then override {@link
  * #buildView(State, int, int, Object) buildView} to return an instance of
  * that subclass.
+ * <p>
+ * Supplying a {@link TranspositionTable} via {@link
+ * #transpositionTable(TranspositionTable)} lets every {@code NegamaxView} reuse
+ * the results of positions that were already reached by another move order.
+ * Stored values are relative to the player to move, so one table may be
+ * shared by both players of a match.
+ * <p>
+ * By default, every {@code NegamaxView} searches a private clone of its
+ * parent's state.  Enabling {@link #inPlace(boolean)} instead walks a single
+ * mutable state down and back up the game tree via {@link State#makeMove} and
+ * {@link State#unmakeMove()}, which avoids allocating a state per node.
+ * <p>
+ * Assigning a {@link #timeBudget(long)} or a {@link #maxDepth(int)} switches
+ * {@code decide} to iterative deepening: successively deeper searches, each of
+ * which treats {@link #terminalValue(State)} as a heuristic at its depth
+ * limit, until either the budget expires or a search reaches every terminal
+ * state.  Only the result of the last completed iteration is ever played.
+ * <p>
+ * Supplying a {@link #forkJoinPool(ForkJoinPool)} searches each root move as
+ * its own fork-join task.  Tasks publish their results to a shared {@link
+ * RootSplit}, from which every task (down to the opponent's reply) tightens
+ * its window as soon as a better root move is known.  Ties are broken in favor
+ * of the earlier root move, exactly as in the serial search, so both searches
+ * play the same move.  Any {@code TranspositionTable} shared by the tasks must
+ * tolerate concurrent access, as {@link ArrayTranspositionTable} does; since
+ * a depth-limited search may reuse an entry stored deeper than it needs, and
+ * which task stores an entry first is up to the pool, only exhaustive or
+ * table-free searches are certain to agree with the serial search.
+ * <p>
+ * Alternatively, assigning {@link #helpers(int)} runs a "Lazy SMP" search:
+ * that many helper threads search the same root alongside {@code decide}'s
+ * own thread, each with a slightly different move order and starting depth.
+ * Helpers deepen iteratively even when {@code decide} itself searches
+ * exhaustively, so that their depths differ from the main thread's.
+ * Threads never communicate except through the {@code TranspositionTable},
+ * so helpers merely pre-fill it with results that the main thread would soon
+ * need; the main thread's move is always the one played.
+ * <p>
+ * Enabling {@link #ordering(boolean)} searches the most promising moves of
+ * every node first, as described in {@link MoveOrdering}, so that cutoffs
+ * happen sooner.  Games may further refine this order by supplying a {@link
+ * #moveOrderer(MoveOrderer)}.
+ * <p>
+ * The {@link #algorithm(SearchAlgorithm)} selects between plain alpha-beta
+ * (the default), principal variation search and MTD(f).  Independently, a nonzero
+ * {@link #aspiration(int)} starts every iteration after the first with a
+ * narrow root window around the previous iteration's value, widening it to
+ * the full window only if the result falls outside.
+ * <p>
+ * Enabling {@link #canonical(boolean)} stores and probes the {@code
+ * TranspositionTable} by {@link Symmetric#canonicalKey()}, rather than by
+ * {@link State#zobristKey()}, so that positions which are equivalent under a
+ * symmetry of the game share a single entry.  Best moves are stored as
+ * indices into the canonical image's moves, and translated back on every
+ * probe.  A table must be filled by players that agree on this option.
  *
  * @param <M> the type of move that this {@code Player} plays.
  * @param <P> the type of mark that identifies this {@code Player} in a game.
@@ -33,8 +95,281 @@ public abstract class NegamaxPlayer<M, P, S extends State<M>>
    */
   protected P piece;
 
+  /**
+   * The (possibly null) cache of previously searched positions.
+   */
+  private TranspositionTable table;
+
+  /**
+   * Whether searches reuse one state via {@link State#unmakeMove()}.
+   */
+  private boolean inPlace;
+
+  /**
+   * The number of milliseconds that {@link #decide(State)} may spend; {@code
+   * 0} if unlimited.
+   */
+  private long timeBudget;
+
+  /**
+   * The deepest iteration that {@link #decide(State)} may search.
+   */
+  private int maxDepth = TranspositionTable.UNBOUNDED_DEPTH;
+
+  /**
+   * The (possibly null) pool on which root moves are searched in parallel.
+   */
+  private ForkJoinPool pool;
+
+  /**
+   * The number of Lazy SMP threads that assist {@link #decide(State)}.
+   */
+  private int helpers;
+
+  /**
+   * Whether searches order moves via a {@link MoveOrdering}.
+   */
+  private boolean ordering;
+
+  /**
+   * The (possibly null) game-specific move priorities.
+   */
+  private MoveOrderer<M, S> orderer;
+
+  /**
+   * The algorithm that every {@code NegamaxView} runs.
+   */
+  private SearchAlgorithm algorithm = SearchAlgorithm.ALPHA_BETA;
+
+  /**
+   * The half-width of iterative deepening's root aspiration windows; {@code 0}
+   * if disabled.
+   */
+  private int aspiration;
+
+  /**
+   * Whether the table is keyed by {@link Symmetric#canonicalKey()}.
+   */
+  private boolean canonical;
+
+  /**
+   * The number of positions visited by the most recent {@link #decide(State)}.
+   */
+  private final LongAdder nodes = new LongAdder();
+
+  /**
+   * The value of the move returned by the most recent {@link #decide(State)}.
+   */
+  private int value;
+
   protected NegamaxPlayer() { }
 
+  /**
+   * The (possibly null) {@code TranspositionTable} used by this player.
+   */
+  public TranspositionTable transpositionTable() {
+    return table;
+  }
+
+  /**
+   * Assigns {@code table} to {@link #transpositionTable()}; {@code null}
+   * disables caching.
+   */
+  public void transpositionTable(TranspositionTable table) {
+    this.table = table;
+  }
+
+  /**
+   * Whether searches walk a single state via {@link State#unmakeMove()} rather
+   * than cloning a state per node.
+   */
+  public boolean inPlace() {
+    return inPlace;
+  }
+
+  /**
+   * Assigns {@code inPlace} to {@link #inPlace()}.
+   */
+  public void inPlace(boolean inPlace) {
+    this.inPlace = inPlace;
+  }
+
+  /**
+   * The number of milliseconds that {@link #decide(State)} may spend; {@code
+   * 0} if unlimited.
+   */
+  public long timeBudget() {
+    return timeBudget;
+  }
+
+  /**
+   * Assigns {@code timeBudget} to {@link #timeBudget()}.
+   */
+  public void timeBudget(long timeBudget) {
+    if (timeBudget < 0) {
+      throw new IllegalArgumentException("timeBudget cannot be negative");
+    }
+    this.timeBudget = timeBudget;
+  }
+
+  /**
+   * The deepest iteration that {@link #decide(State)} may search; {@link
+   * TranspositionTable#UNBOUNDED_DEPTH} if unlimited.
+   */
+  public int maxDepth() {
+    return maxDepth;
+  }
+
+  /**
+   * Assigns {@code maxDepth} to {@link #maxDepth()}.
+   */
+  public void maxDepth(int maxDepth) {
+    if (maxDepth < 1 || maxDepth > TranspositionTable.UNBOUNDED_DEPTH) {
+      throw new IllegalArgumentException("maxDepth must be in 1..=" + TranspositionTable.UNBOUNDED_DEPTH);
+    }
+    this.maxDepth = maxDepth;
+  }
+
+  /**
+   * The (possibly null) pool on which root moves are searched in parallel.
+   */
+  public ForkJoinPool forkJoinPool() {
+    return pool;
+  }
+
+  /**
+   * Assigns {@code pool} to {@link #forkJoinPool()}; {@code null} searches
+   * root moves serially.
+   */
+  public void forkJoinPool(ForkJoinPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * The number of Lazy SMP helper threads that search alongside the thread
+   * calling {@link #decide(State)}.
+   */
+  public int helpers() {
+    return helpers;
+  }
+
+  /**
+   * Assigns {@code helpers} to {@link #helpers()}.  Helpers are useless
+   * without a {@link #transpositionTable()}.
+   */
+  public void helpers(int helpers) {
+    if (helpers < 0) {
+      throw new IllegalArgumentException("helpers cannot be negative");
+    }
+    this.helpers = helpers;
+  }
+
+  /**
+   * Whether searches order moves via a {@link MoveOrdering}, rather than
+   * searching them in generation order.
+   */
+  public boolean ordering() {
+    return ordering;
+  }
+
+  /**
+   * Assigns {@code ordering} to {@link #ordering()}.
+   */
+  public void ordering(boolean ordering) {
+    this.ordering = ordering;
+  }
+
+  /**
+   * The (possibly null) source of game-specific move priorities consulted when
+   * {@link #ordering()} is enabled.
+   */
+  public MoveOrderer<M, S> moveOrderer() {
+    return orderer;
+  }
+
+  /**
+   * Assigns {@code orderer} to {@link #moveOrderer()}.
+   */
+  public void moveOrderer(MoveOrderer<M, S> orderer) {
+    this.orderer = orderer;
+  }
+
+  /**
+   * The algorithm that searches run.
+   */
+  public SearchAlgorithm algorithm() {
+    return algorithm;
+  }
+
+  /**
+   * Assigns {@code algorithm} to {@link #algorithm()}.
+   */
+  public void algorithm(SearchAlgorithm algorithm) {
+    if (algorithm == null) {
+      throw new IllegalArgumentException("algorithm cannot be null");
+    }
+    this.algorithm = algorithm;
+  }
+
+  /**
+   * The half-width of the root window that each serial iteration after the
+   * first centers on the previous iteration's value; {@code 0} if every
+   * iteration searches with the full window.  {@link SearchAlgorithm#MTDF}
+   * ignores it.
+   */
+  public int aspiration() {
+    return aspiration;
+  }
+
+  /**
+   * Assigns {@code aspiration} to {@link #aspiration()}.
+   */
+  public void aspiration(int aspiration) {
+    if (aspiration < 0) {
+      throw new IllegalArgumentException("aspiration cannot be negative");
+    }
+    this.aspiration = aspiration;
+  }
+
+  /**
+   * Whether the {@code TranspositionTable} is keyed by {@link
+   * Symmetric#canonicalKey()}, which requires {@link Symmetric} states.
+   */
+  public boolean canonical() {
+    return canonical;
+  }
+
+  /**
+   * Assigns {@code canonical} to {@link #canonical()}.
+   */
+  public void canonical(boolean canonical) {
+    this.canonical = canonical;
+  }
+
+  /**
+   * Returns a fresh {@code MoveOrdering} for one search thread, or {@code
+   * null} if {@link #ordering()} is disabled.
+   */
+  private MoveOrdering<M, S> newOrdering() {
+    return ordering ? new MoveOrdering<>(orderer) : null;
+  }
+
+  /**
+   * The number of positions visited by the most recent {@link #decide(State)}.
+   */
+  public long nodes() {
+    return nodes.sum();
+  }
+
+  /**
+   * The value, for this player, of the move returned by the most recent
+   * {@link #decide(State)}: exact if that search reached every terminal
+   * state, and otherwise as of the last completed iteration.
+   */
+  public int value() {
+    return value;
+  }
+
   /**
    * Constructs a new {@code NegamaxView} that is the result of playing {@code
    * m} in {@code state}, assuming that {@code state} was bound by {@code alpha}
@@ -46,32 +381,235 @@ public abstract class NegamaxPlayer<M, P, S extends State<M>>
   }
 
   /**
-   * Returns the {@code NegamaxView} that is the result of placing {@code piece}
-   * in {@code trueState} at position {@code choice}, assuming that the current
-   * negamax bounds are {@code alpha} and {@code beta}.
+   * Returns the best move in {@code trueState}, subject to {@link
+   * #timeBudget()} and {@link #maxDepth()}.
    */
   @Override
-  @SuppressWarnings("unchecked")
   public final M decide(State<M> trueState) {
+    return decide(trueState, timeBudget);
+  }
+
+  /**
+   * Returns the best move in {@code trueState} that can be found within
+   * {@code millis} milliseconds ({@code 0} if unlimited) and {@link
+   * #maxDepth()} plies.
+   * <p>
+   * The first iteration always runs to completion, so that some move is
+   * returned however small the budget.
+   */
+  @SuppressWarnings("unchecked")
+  public final M decide(State<M> trueState, long millis) {
+    nodes.reset();
+    if (algorithm == SearchAlgorithm.MTDF && table == null) {
+      throw new IllegalStateException("MTD(f) requires a transpositionTable");
+    }
+    if (canonical && !(trueState instanceof Symmetric)) {
+      throw new IllegalStateException("canonical keys require a Symmetric state");
+    }
+    if (helpers == 0) {
+      return iterate((S) trueState, millis, 0, null);
+    }
+    if (table == null) {
+      throw new IllegalStateException("Lazy SMP requires a transpositionTable");
+    }
+    final AtomicBoolean stop = new AtomicBoolean();
+    final Thread[] threads = new Thread[helpers];
+    for (int i = 0; i < helpers; i++) {
+      final int salt = i + 1;
+      final S copy = (S) trueState.clone();
+      threads[i] = new Thread(() -> iterate(copy, 0L, salt, stop), "negamax-helper-" + salt);
+      threads[i].setDaemon(true);
+      threads[i].start();
+    }
+    try {
+      return iterate((S) trueState, millis, 0, null);
+    } finally {
+      stop.set(true);
+      for (Thread thread : threads) {
+        try {
+          thread.join();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the best move in {@code trueState} that can be found within
+   * {@code millis} milliseconds ({@code 0} if unlimited) and {@link
+   * #maxDepth()} plies, or until {@code stop} (if non-null) is set.  A nonzero
+   * {@code salt} identifies a Lazy SMP helper, which perturbs its move order
+   * and starting depth by {@code salt}, and so always deepens iteratively.
+   */
+  private M iterate(S trueState, long millis, int salt, AtomicBoolean stop) {
+    final MoveOrdering<M, S> ordering = newOrdering();
+    if (salt == 0 && millis <= 0 && maxDepth == TranspositionTable.UNBOUNDED_DEPTH) {
+      final Search search = new Search(0L, null, -1, salt, stop, ordering);
+      final M best = algorithm == SearchAlgorithm.MTDF
+          ? mtdf(trueState, TranspositionTable.UNBOUNDED_DEPTH, search, null, 0)
+          : rootSearch(trueState, TranspositionTable.UNBOUNDED_DEPTH, search,
+              null, -0x7FFFFFFF, 0x7FFFFFFF);
+      if (salt == 0) {
+        this.value = search.value;
+      }
+      return best;
+    }
+    final long deadline = millis > 0 ? System.nanoTime() + millis * 1000000L : 0L;
+    M best = null;
+    int value = 0;
+    for (int depth = 1 + (salt & 1); depth <= maxDepth; depth++) {
+      // the main thread's first iteration must finish, a helper's need not
+      final Search search = new Search(depth == 1 && salt == 0 ? 0L : deadline,
+          null, -1, salt, stop, ordering);
+      M choice;
+      if (algorithm == SearchAlgorithm.MTDF) {
+        choice = mtdf(trueState, depth, search, best, value);
+      } else if (aspiration > 0 && best != null) {
+        final int low = value - aspiration;
+        final int high = value + aspiration;
+        choice = rootSearch(trueState, depth, search, best, low, high);
+        if (!search.aborted && (search.value <= low || search.value >= high)) {
+          // the true value lies outside the window, so only a bound is known
+          choice = rootSearch(trueState, depth, search, best, -0x7FFFFFFF, 0x7FFFFFFF);
+        }
+      } else {
+        choice = rootSearch(trueState, depth, search, best, -0x7FFFFFFF, 0x7FFFFFFF);
+      }
+      if (search.aborted) {
+        break;
+      }
+      best = choice;
+      value = search.value;
+      if (!search.horizon) {
+        // every line reached a terminal state, so deeper searches are moot
+        break;
+      }
+    }
+    if (salt == 0) {
+      this.value = value;
+    }
+    return best;
+  }
+
+  /**
+   * Returns the best move in {@code trueState} within {@code depth} plies and
+   * the root window ({@code alpha}, {@code beta}), trying {@code first} (if
+   * non-null) before any other move, and assigns its (fail-soft) value to
+   * {@code search.value}.  Parallel root searches ignore the window.
+   */
+  private M rootSearch(S trueState, int depth, Search search, M first,
+      int alpha, int beta) {
+    if (pool != null && search.salt == 0) {
+      return parallelRootSearch(trueState, depth, search, first);
+    }
     int bestValue = Integer.MIN_VALUE;
     M bestChoice = null;
-    int alpha = -0x7FFFFFFF;
-    int beta = 0x7FFFFFFF;
-    final List<M> possible = trueState.validMoves();
+    List<M> possible = trueState.validMoves();
+    if (first != null) {
+      possible = new ArrayList<>(possible);
+      possible.remove(first);
+      possible.add(0, first);
+    }
     for (M choice : possible) {
-      final NegamaxView updatedState = buildView((S) trueState, alpha, beta, choice);
-      final int nv = -updatedState.minimaxValue();
+      int nv;
+      if (algorithm == SearchAlgorithm.PVS && bestChoice != null) {
+        nv = -rootChild(trueState, depth, search, alpha, alpha + 1, choice);
+        if (nv > alpha && nv < beta && !search.aborted) {
+          nv = -rootChild(trueState, depth, search, alpha, beta, choice);
+        }
+      } else {
+        nv = -rootChild(trueState, depth, search, alpha, beta, choice);
+      }
+      if (search.aborted) {
+        break;
+      }
       if (nv > bestValue) {
         bestValue = nv;
         bestChoice = choice;
-        alpha = bestValue;
-        // Note that alpha will never match or exceed beta from the top level,
-        // so we skip any fast-fail checks here.
+        if (bestValue > alpha) {
+          alpha = bestValue;
+          if (alpha >= beta) break;
+        }
       }
     }
+    search.value = bestValue;
     return bestChoice;
   }
 
+  /**
+   * Returns the best move in {@code trueState} within {@code depth} plies by
+   * MTD(f): null-window root searches, the first centered on {@code guess},
+   * each of which moves the lower or upper bound on the root value to its
+   * result, until the bounds meet.  Trying {@code first} (if non-null) before
+   * any other move, it assigns the converged value to {@code search.value}.
+   */
+  private M mtdf(S trueState, int depth, Search search, M first, int guess) {
+    int lower = -0x7FFFFFFF;
+    int upper = 0x7FFFFFFF;
+    int value = guess;
+    M best = null;
+    M choice = null;
+    while (lower < upper) {
+      final int beta = value == lower ? value + 1 : value;
+      choice = rootSearch(trueState, depth, search, best != null ? best : first,
+          beta - 1, beta);
+      if (search.aborted) {
+        break;
+      }
+      value = search.value;
+      if (value < beta) {
+        upper = value;
+      } else {
+        // only a fail-high proves that its move reaches the lower bound
+        lower = value;
+        best = choice;
+      }
+    }
+    search.value = value;
+    return best != null ? best : choice;
+  }
+
+  /**
+   * Returns the negamax value, from the opponent's perspective, of playing
+   * {@code choice} in {@code trueState} with the root window ({@code alpha},
+   * {@code beta}).
+   */
+  private int rootChild(S trueState, int depth, Search search, int alpha,
+      int beta, M choice) {
+    final NegamaxView updatedState = buildView(trueState, alpha, beta, choice);
+    updatedState.depth = childDepth(depth);
+    updatedState.ply = 1;
+    updatedState.search = search;
+    return updatedState.minimaxValue();
+  }
+
+  /**
+   * Parallel counterpart to {@link #rootSearch(State, int, Search, Object,
+   * int, int)} that merges the outcome of every task into {@code search}.
+   */
+  private M parallelRootSearch(S trueState, int depth, Search search, M first) {
+    List<M> possible = trueState.validMoves();
+    if (first != null) {
+      possible = new ArrayList<>(possible);
+      possible.remove(first);
+      possible.add(0, first);
+    }
+    final RootSplit split = new RootSplit(this, trueState, depth, search.deadline, possible);
+    pool.invoke(split);
+    search.aborted |= split.aborted;
+    search.horizon |= split.horizon;
+    search.value = split.bestValue();
+    return split.bestIndex() < 0 ? null : possible.get(split.bestIndex());
+  }
+
+  /**
+   * Returns the remaining search depth below a node with {@code depth}.
+   */
+  private static int childDepth(int depth) {
+    return depth == TranspositionTable.UNBOUNDED_DEPTH ? depth : depth - 1;
+  }
+
   /**
    * Returns the negamax value of this state without evaluating any further
    * subtrees, e.g. by some heuristic or by treating {@code state} as the
@@ -79,6 +617,179 @@ public abstract class NegamaxPlayer<M, P, S extends State<M>>
    */
   public abstract int terminalValue(S state);
 
+  /**
+   * Bookkeeping shared by every {@code NegamaxView} within one search.
+   */
+  protected class Search {
+
+    /**
+     * The {@code System.nanoTime()} past which this search is abandoned;
+     * {@code 0} if never.
+     */
+    private final long deadline;
+
+    /**
+     * Whether this search was abandoned, rendering its results meaningless.
+     */
+    protected boolean aborted;
+
+    /**
+     * Whether the current subtree's value depends on a depth-limited result.
+     */
+    protected boolean horizon;
+
+    /**
+     * The root value found by this search.
+     */
+    protected int value;
+
+    /**
+     * The (possibly null) parallel root search to which this search belongs.
+     */
+    protected final RootSplit split;
+
+    /**
+     * The index of this search's root move within {@code split}.
+     */
+    protected final int index;
+
+    /**
+     * The move order perturbation of this search; {@code 0} for none.
+     */
+    protected final int salt;
+
+    /**
+     * The (possibly null) flag that, once set, abandons this search.
+     */
+    private final AtomicBoolean stop;
+
+    /**
+     * The (possibly null) move ordering heuristics of this search's thread.
+     */
+    protected final MoveOrdering<M, S> ordering;
+
+    private int ticks; // nodes since the deadline was last checked
+
+    protected Search(long deadline, RootSplit split, int index, int salt,
+        AtomicBoolean stop, MoveOrdering<M, S> ordering) {
+      this.deadline = deadline;
+      this.split = split;
+      this.index = index;
+      this.salt = salt;
+      this.stop = stop;
+      this.ordering = ordering;
+    }
+
+    /**
+     * Returns whether this search should be abandoned, only consulting the
+     * clock and {@code stop} once every 1024 calls.
+     */
+    protected boolean expired() {
+      if (!aborted && (++ticks & 0x3FF) == 0
+          && ((deadline != 0L && System.nanoTime() - deadline > 0)
+              || (stop != null && stop.get()))) {
+        aborted = true;
+      }
+      return aborted;
+    }
+  }
+
+  /**
+   * Fork-join task that searches every root move as a subtask, keeping track
+   * of the best exact result published so far.
+   * <p>
+   * A single {@code long}, {@code best}, captures that result: its left 32
+   * bits hold the value, and its right 32 bits hold the bitwise complement of
+   * the root move's index.  Thus, comparing two such {@code longs} prefers the
+   * greater value, then the earlier move, which is exactly how the serial
+   * search breaks ties.
+   */
+  protected static class RootSplit extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+    private static final long NONE = Long.MIN_VALUE;
+
+    private final AtomicLong best = new AtomicLong(NONE);
+    private final transient List<RecursiveAction> tasks;
+    private volatile boolean aborted; // whether any subtask was abandoned
+    private volatile boolean horizon; // whether any subtask hit the depth limit
+
+    <M, P, S extends State<M>> RootSplit(NegamaxPlayer<M, P, S> player, S state,
+        int depth, long deadline, List<M> possible) {
+      this.tasks = new ArrayList<>(possible.size());
+      for (int i = 0; i < possible.size(); i++) {
+        final int index = i;
+        final M choice = possible.get(i);
+        tasks.add(new RecursiveAction() {
+          private static final long serialVersionUID = 1L;
+          @Override
+          protected void compute() {
+            final NegamaxPlayer<M, P, S>.Search search = player.new Search(
+                deadline, RootSplit.this, index, 0, null, player.newOrdering());
+            final NegamaxPlayer<M, P, S>.NegamaxView view =
+                player.buildView(state, alpha(index), 0x7FFFFFFF, choice);
+            view.depth = childDepth(depth);
+            view.ply = 1;
+            view.search = search;
+            final int value = -view.minimaxValue();
+            if (search.aborted) {
+              aborted = true;
+            } else if (value > alpha(index)) {
+              // only results above the window are exact
+              offer(value, index);
+            }
+            if (search.horizon) {
+              horizon = true;
+            }
+          }
+        });
+      }
+    }
+
+    @Override
+    protected void compute() {
+      invokeAll(tasks);
+    }
+
+    /**
+     * The lower bound that the root move at {@code index} must exceed to be
+     * played.
+     */
+    protected int alpha(int index) {
+      final long b = best.get();
+      if (b == NONE) {
+        return -0x7FFFFFFF;
+      }
+      final int value = (int) (b >> 32);
+      return ~((int) b) < index ? value : value - 1;
+    }
+
+    private void offer(int value, int index) {
+      final long candidate = ((long) value << 32) | (~index & 0xFFFFFFFFL);
+      long b;
+      do {
+        b = best.get();
+      } while (candidate > b && !best.compareAndSet(b, candidate));
+    }
+
+    /**
+     * The value of the best root move found, or {@code Integer.MIN_VALUE} if
+     * none was.
+     */
+    protected int bestValue() {
+      final long b = best.get();
+      return b == NONE ? Integer.MIN_VALUE : (int) (b >> 32);
+    }
+
+    /**
+     * The index of the best root move found, or {@code -1} if none was.
+     */
+    protected int bestIndex() {
+      final long b = best.get();
+      return b == NONE ? -1 : ~((int) b);
+    }
+  }
+
   /**
    * {@code Negamaxable} wrapper around a {@code State}.
    */
@@ -88,6 +799,22 @@ public abstract class NegamaxPlayer<M, P, S extends State<M>>
     protected int beta;
     protected S state;
 
+    /**
+     * The number of plies below this view that may still be searched before
+     * falling back to {@link #terminalValue()}.
+     */
+    protected int depth = TranspositionTable.UNBOUNDED_DEPTH;
+
+    /**
+     * The number of plies between the root and this view.
+     */
+    protected int ply;
+
+    /**
+     * The search to which this view belongs.
+     */
+    protected Search search;
+
     /**
      * Constructs a new {@code NegamaxView} that is the result of playing {@code
      * m} in {@code state}, assuming that {@code state} was bound by {@code
@@ -112,6 +839,9 @@ public abstract class NegamaxPlayer<M, P, S extends State<M>>
       this.beta = -view.alpha;
       this.state = (S) view.state.clone();
       this.state.makeMove(m);
+      this.depth = childDepth(view.depth);
+      this.ply = view.ply + 1;
+      this.search = view.search;
     }
 
     @Override
@@ -136,29 +866,167 @@ public abstract class NegamaxPlayer<M, P, S extends State<M>>
 
     @Override
     public int negamaxValue(int color) {
+      nodes.increment();
       if (state.isOver()) {
         return color * terminalValue();
       }
+      if (depth == 0) {
+        search.horizon = true;
+        return color * terminalValue();
+      }
+      if (search.expired()) {
+        return 0;
+      }
+      final TranspositionTable table = NegamaxPlayer.this.table;
+      final int alphaOrig = alpha();
+      final boolean outerHorizon = search.horizon;
+      boolean horizon = false;
+      long key = 0L;
+      int symmetry = 0;
+      int ttMove = TranspositionTable.NO_MOVE;
+      if (table != null) {
+        if (canonical) {
+          key = ((Symmetric) state).canonicalKey();
+          symmetry = ((Symmetric) state).canonicalSymmetry();
+        } else {
+          key = state.zobristKey();
+        }
+        final long entry = table.probe(key);
+        if (entry != TranspositionTable.MISS) {
+          // even a result too shallow to reuse suggests a move to try first
+          ttMove = TranspositionTable.move(entry);
+          if (canonical && ttMove != TranspositionTable.NO_MOVE) {
+            ttMove = ((Symmetric) state).fromCanonical(ttMove, symmetry);
+          }
+        }
+        if (entry != TranspositionTable.MISS
+            && TranspositionTable.depth(entry) >= depth) {
+          final int value = TranspositionTable.value(entry);
+          if (TranspositionTable.depth(entry) != TranspositionTable.UNBOUNDED_DEPTH) {
+            // a depth-limited result taints whatever it helps decide
+            search.horizon = true;
+            horizon = true;
+          }
+          switch (TranspositionTable.bound(entry)) {
+            case TranspositionTable.EXACT:
+              return value;
+            case TranspositionTable.LOWER:
+              if (value > alpha()) alpha(value);
+              break;
+            default:
+              if (value < beta()) beta(value);
+          }
+          if (alpha() >= beta()) return value;
+        }
+      }
+      search.horizon = horizon;
       int bestSoFar = Integer.MIN_VALUE;
-      for (M choice : state.validMoves()) {
-        final Negamaxable<M> updatedState = cloneAndMove(choice);
-        final int newValue = -updatedState.negamaxValue(-color);
+      int bestIndex = TranspositionTable.NO_MOVE;
+      // index rather than iterate: the ordering and the Lazy SMP rotation both
+      // pick each move by its index, which is also what the table stores
+      final List<M> moves = state.validMoves();
+      final int salt = search.salt;
+      final MoveOrdering<M, S> ordering = search.ordering;
+      final boolean pvs = algorithm == SearchAlgorithm.PVS;
+      final long[] order = ordering == null ? null :
+          ordering.order(state, moves, ttMove, ply, salt);
+      for (int i = 0; i < moves.size(); i++) {
+        // Lazy SMP helpers rotate their move order by an amount that varies
+        // with both the helper and the ply
+        final int index = order != null ? MoveOrdering.index(order[i])
+            : salt == 0 ? i : (i + salt + ply) % moves.size();
+        if (i > 0 && ply == 1 && search.split != null) {
+          // adopt any better root move that another task has found since
+          final int bound = -search.split.alpha(search.index);
+          if (bound < beta()) {
+            beta(bound);
+            if (alpha() >= beta()) {
+              bestSoFar = Math.max(bestSoFar, alpha());
+              break;
+            }
+          }
+        }
+        final int newValue;
+        if (pvs && i > 0) {
+          // scout with a null window, then re-search only on a fail-high
+          final int b = beta();
+          beta(alpha() + 1);
+          final int scout = childValue(moves.get(index), color);
+          beta(b);
+          newValue = scout > alpha() && scout < beta() && !search.aborted ?
+              childValue(moves.get(index), color) : scout;
+        } else {
+          newValue = childValue(moves.get(index), color);
+        }
         if (newValue > bestSoFar) {
           bestSoFar = newValue;
+          bestIndex = index;
           if (bestSoFar > alpha()) {
             alpha(bestSoFar);
-            if (alpha() >= beta()) break;
+            if (alpha() >= beta()) {
+              if (ordering != null) {
+                ordering.cutoff(moves.get(index), ply,
+                    depth == TranspositionTable.UNBOUNDED_DEPTH ? Math.max(1, 32 - ply) : depth);
+              }
+              break;
+            }
           }
         }
       }
+      if (search.aborted) {
+        return 0;
+      }
+      // a subtree that never hit the depth limit was searched exhaustively
+      final int searched = search.horizon ? depth : TranspositionTable.UNBOUNDED_DEPTH;
+      search.horizon |= outerHorizon;
+      if (table != null) {
+        final int bound = bestSoFar <= alphaOrig ? TranspositionTable.UPPER
+            : bestSoFar >= beta() ? TranspositionTable.LOWER
+            : TranspositionTable.EXACT;
+        if (canonical && bestIndex != TranspositionTable.NO_MOVE) {
+          bestIndex = ((Symmetric) state).toCanonical(bestIndex, symmetry);
+        }
+        table.store(key, TranspositionTable.pack(bestSoFar, bound,
+            searched, Math.min(bestIndex, TranspositionTable.NO_MOVE)));
+      }
       return bestSoFar;
     }
 
+    /**
+     * Returns the negamax value, from the perspective of the player to move in
+     * this view, of playing {@code choice}.
+     */
+    protected int childValue(M choice, int color) {
+      if (!inPlace) {
+        return -cloneAndMove(choice).negamaxValue(-color);
+      }
+      final int a = alpha;
+      final int b = beta;
+      final int d = depth;
+      move(choice);
+      alpha = -b;
+      beta = -a;
+      depth = childDepth(d);
+      ply++;
+      final int value = -negamaxValue(-color);
+      unmove();
+      alpha = a;
+      beta = b;
+      depth = d;
+      ply--;
+      return value;
+    }
+
     @Override
     public void move(M move) {
       state.makeMove(move);
     }
 
+    @Override
+    public void unmove() {
+      state.unmakeMove();
+    }
+
     @Override
     public NegamaxView cloneAndMove(M m) {
       return new NegamaxView(this, m);
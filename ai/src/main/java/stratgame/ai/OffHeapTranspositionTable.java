@@ -0,0 +1,360 @@
+package stratgame.ai;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Set-associative {@link TranspositionTable} stored outside the Java heap,
+ * either in direct {@code ByteBuffers} or in a memory-mapped file, so that
+ * tables of many gigabytes neither lengthen garbage collection pauses nor
+ * require a larger heap.
+ * <p>
+ * Entries are laid out, verified and replaced exactly as in {@link
+ * ArrayTranspositionTable}: two {@code longs} per entry, {@code key ^ data}
+ * then {@code data}, in buckets of {@link #ways()} entries, with a {@link
+ * Replacement} policy choosing which entry of a full bucket a new result
+ * evicts.  A single instance may thus be shared between search threads
+ * without locks.  Because one {@code ByteBuffer} cannot exceed 2 GiB, the
+ * entries are split across segments of at most 1 GiB each.
+ * <p>
+ * The table counts its probes, hits and collisions (misses whose bucket held
+ * other keys), and its stores and overwrites (stores that evicted an entry for
+ * another key), until the next {@link #clear()}.
+ * <p>
+ * A table {@link #mapped(Path, long, int, Replacement) mapped} from a file
+ * keeps its entries in that file, so a later table mapped from the same file
+ * with the same shape starts with them.  Such entries are only meaningful to
+ * searches of the same game that key positions the same way.
+ * <p>
+ * The JVM caps the direct memory it allocates at {@code
+ * -XX:MaxDirectMemorySize}, which defaults to the maximum heap size, so a
+ * direct table larger than the heap fails with an {@code OutOfMemoryError}
+ * unless that limit is raised.  A {@code mapped} table is not subject to it,
+ * and suits tables of many gigabytes better: its file may even point to a
+ * RAM-backed file system.
+ * <p>
+ * {@link #clear()} overwrites every segment in bulk from a shared block of
+ * zeroes, {@code ZEROS}, rather than one {@code long} at a time.
+ */
+public class OffHeapTranspositionTable implements TranspositionTable {
+
+  private static final int ENTRY_BYTES = 16;
+  private static final int SEGMENT_SHIFT = 27; // longs per segment, as a power
+  private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+  private static final byte[] ZEROS = new byte[1 << 16]; // never written
+
+  private final ByteBuffer[] buffers; // backing memory, one per segment
+  private final LongBuffer[] segments; // (key ^ data, data) pairs
+  private final long mask; // selects a bucket index from a key
+  private final int ways; // entries per bucket
+  private final Replacement replacement; // eviction policy for full buckets
+
+  private final LongAdder probes = new LongAdder();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder collisions = new LongAdder();
+  private final LongAdder stores = new LongAdder();
+  private final LongAdder overwrites = new LongAdder();
+
+  /**
+   * Constructs an empty {@code OffHeapTranspositionTable} in direct {@code
+   * ByteBuffers} of at most {@code bytes} in total, in a power of two of
+   * buckets of {@code ways} entries each, that evicts entries by {@code
+   * replacement}.
+   */
+  public OffHeapTranspositionTable(long bytes, int ways, Replacement replacement) {
+    this(null, bytes, ways, replacement);
+  }
+
+  private OffHeapTranspositionTable(FileChannel channel, long bytes, int ways,
+      Replacement replacement) {
+    if (ways < 1 || ways > 16) {
+      throw new IllegalArgumentException("ways must be in 1..=16");
+    }
+    if (replacement == Replacement.TWO_TIER && ways < 2) {
+      throw new IllegalArgumentException("TWO_TIER requires at least 2 ways");
+    }
+    if (bytes < (long) ENTRY_BYTES * ways) {
+      throw new IllegalArgumentException("bytes must hold at least one bucket");
+    }
+    final long buckets = Long.highestOneBit(bytes / ENTRY_BYTES / ways);
+    final long longs = buckets * ways * 2;
+    this.mask = buckets - 1;
+    this.ways = ways;
+    this.replacement = replacement;
+    final int count = (int) ((longs + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+    this.buffers = new ByteBuffer[count];
+    this.segments = new LongBuffer[count];
+    for (int i = 0; i < count; i++) {
+      final long offset = (long) i << SEGMENT_SHIFT;
+      final long size = Math.min(longs - offset, 1L << SEGMENT_SHIFT) * 8;
+      try {
+        buffers[i] = channel == null ? ByteBuffer.allocateDirect((int) size)
+            : channel.map(FileChannel.MapMode.READ_WRITE, offset * 8, size);
+      } catch (IOException e) {
+        throw new IllegalStateException("cannot map table file", e);
+      }
+      segments[i] = buffers[i].order(ByteOrder.nativeOrder()).asLongBuffer();
+    }
+  }
+
+  /**
+   * Returns an {@code OffHeapTranspositionTable} of at most {@code bytes},
+   * shaped as by {@link #OffHeapTranspositionTable(long, int, Replacement)},
+   * that is mapped from {@code file}, which is created or extended as needed.
+   */
+  public static OffHeapTranspositionTable mapped(Path file, long bytes, int ways,
+      Replacement replacement) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      // the mappings remain valid once the channel is closed
+      return new OffHeapTranspositionTable(channel, bytes, ways, replacement);
+    }
+  }
+
+  /**
+   * Returns the number of bytes in {@code megabytes} mebibytes.
+   */
+  public static long megabytes(long megabytes) {
+    return megabytes << 20;
+  }
+
+  /**
+   * Returns the number of bytes in {@code gigabytes} gibibytes.
+   */
+  public static long gigabytes(long gigabytes) {
+    return gigabytes << 30;
+  }
+
+  /**
+   * The number of entries that this table can hold.
+   */
+  public long capacity() {
+    return (mask + 1) * ways;
+  }
+
+  /**
+   * The number of bytes that hold the entries.
+   */
+  public long bytes() {
+    return capacity() * ENTRY_BYTES;
+  }
+
+  /**
+   * The number of entries in each bucket.
+   */
+  public int ways() {
+    return ways;
+  }
+
+  /**
+   * The policy by which a new result evicts an entry of a full bucket.
+   */
+  public Replacement replacement() {
+    return replacement;
+  }
+
+  /**
+   * The number of probes since the last {@link #clear()}.
+   */
+  public long probes() {
+    return probes.sum();
+  }
+
+  /**
+   * The number of probes that found their key since the last {@link #clear()}.
+   */
+  public long hits() {
+    return hits.sum();
+  }
+
+  /**
+   * The number of probes that missed their key, but found its bucket holding
+   * other keys, since the last {@link #clear()}.
+   */
+  public long collisions() {
+    return collisions.sum();
+  }
+
+  /**
+   * The number of stores since the last {@link #clear()}.
+   */
+  public long stores() {
+    return stores.sum();
+  }
+
+  /**
+   * The number of stores that evicted an entry for another key since the last
+   * {@link #clear()}.
+   */
+  public long overwrites() {
+    return overwrites.sum();
+  }
+
+  /**
+   * The fraction of {@link #probes()} that were {@link #hits()}.
+   */
+  public double hitRate() {
+    final long probes = probes();
+    return probes == 0 ? 0.0 : (double) hits() / probes;
+  }
+
+  /**
+   * The fraction of {@link #probes()} that were {@link #collisions()}.
+   */
+  public double collisionRate() {
+    final long probes = probes();
+    return probes == 0 ? 0.0 : (double) collisions() / probes;
+  }
+
+  /**
+   * The fraction of {@link #stores()} that were {@link #overwrites()}.
+   */
+  public double overwriteRate() {
+    final long stores = stores();
+    return stores == 0 ? 0.0 : (double) overwrites() / stores;
+  }
+
+  /**
+   * The number of entries that hold a result, found by scanning the table.
+   */
+  public long occupancy() {
+    long result = 0;
+    for (long i = 0; i < capacity() << 1; i += 2) {
+      if ((get(i) | get(i + 1)) != 0L) {
+        result++;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Writes any changes to a {@link #mapped(Path, long, int, Replacement)
+   * mapped} table back to its file; does nothing for other tables.
+   */
+  public void force() {
+    for (ByteBuffer buffer : buffers) {
+      if (buffer instanceof MappedByteBuffer) {
+        ((MappedByteBuffer) buffer).force();
+      }
+    }
+  }
+
+  private long get(long i) {
+    return segments[(int) (i >>> SEGMENT_SHIFT)].get((int) (i & SEGMENT_MASK));
+  }
+
+  private void put(long i, long value) {
+    segments[(int) (i >>> SEGMENT_SHIFT)].put((int) (i & SEGMENT_MASK), value);
+  }
+
+  /**
+   * Returns the slot of the first entry of the bucket of {@code key}.
+   */
+  private long index(long key) {
+    return ((key ^ (key >>> 32)) & mask) * ways << 1;
+  }
+
+  @Override
+  public long probe(long key) {
+    probes.increment();
+    final long base = index(key);
+    boolean occupied = false;
+    for (long i = base; i < base + (ways << 1); i += 2) {
+      final long data = get(i + 1);
+      if ((get(i) ^ data) == key) {
+        hits.increment();
+        return data;
+      }
+      occupied |= data != MISS;
+    }
+    if (occupied) {
+      collisions.increment();
+    }
+    return MISS;
+  }
+
+  /**
+   * Stores {@code data} against {@code key}, unless the bucket already holds a
+   * result for {@code key} that was searched to a strictly greater depth, or
+   * the {@link #replacement()} policy drops it.
+   */
+  @Override
+  public void store(long key, long data) {
+    stores.increment();
+    final long base = index(key);
+    final long end = base + (ways << 1);
+    // first slot of the entries that always replace
+    final long rest = replacement == Replacement.TWO_TIER ? base + 2 : base;
+    long victim = -1;
+    int victimDepth = Integer.MAX_VALUE;
+    for (long i = base; i < end; i += 2) {
+      final long old = get(i + 1);
+      if ((get(i) ^ old) == key) {
+        if (TranspositionTable.depth(old) <= TranspositionTable.depth(data)) {
+          write(i, key, data);
+        }
+        return;
+      }
+      // an empty entry counts as shallower than any other
+      final int depth = old == MISS ? -1 : TranspositionTable.depth(old);
+      if (i >= rest && depth < victimDepth) {
+        victim = i;
+        victimDepth = depth;
+      }
+    }
+    switch (replacement) {
+      case DEPTH_PREFERRED:
+        if (victimDepth > TranspositionTable.depth(data)) {
+          return;
+        }
+        break;
+      case TWO_TIER:
+        final long first = get(base + 1);
+        if (first == MISS
+            || TranspositionTable.depth(first) <= TranspositionTable.depth(data)) {
+          if (first != MISS) {
+            put(victim, get(base));
+            put(victim + 1, first);
+          } else {
+            victimDepth = -1;
+          }
+          victim = base;
+        }
+        break;
+      default:
+        break;
+    }
+    if (victimDepth >= 0) {
+      overwrites.increment();
+    }
+    write(victim, key, data);
+  }
+
+  private void write(long i, long key, long data) {
+    put(i, key ^ data);
+    put(i + 1, data);
+  }
+
+  @Override
+  public void clear() {
+    for (ByteBuffer buffer : buffers) {
+      // a duplicate's position is its own, so concurrent clears cannot collide
+      final ByteBuffer target = buffer.duplicate();
+      while (target.hasRemaining()) {
+        target.put(ZEROS, 0, Math.min(ZEROS.length, target.remaining()));
+      }
+    }
+    probes.reset();
+    hits.reset();
+    collisions.reset();
+    stores.reset();
+    overwrites.reset();
+  }
+}
@@ -0,0 +1,28 @@
+package stratgame.ai;
+
+/**
+ * The result of a game under perfect play, for the player to move, as proven
+ * by a {@link ProofNumberPlayer}.
+ */
+public enum Outcome {
+
+  /**
+   * The player to move can force a win.
+   */
+  WIN,
+
+  /**
+   * Either player can force at least a draw.
+   */
+  DRAW,
+
+  /**
+   * The opponent of the player to move can force a win.
+   */
+  LOSS,
+
+  /**
+   * The search ran out of nodes before proving any of the above.
+   */
+  UNKNOWN
+}
@@ -0,0 +1,356 @@
+package stratgame.ai;
+
+import java.util.Arrays;
+import java.util.List;
+import stratgame.game.Player;
+import stratgame.game.State;
+
+/**
+ * {@link Player} that proves the outcome of its position by depth-first
+ * proof-number search (df-pn), then plays a move that achieves it.
+ * <p>
+ * Proof-number search grows the game tree towards the nodes that are cheapest
+ * to prove or disprove, rather than to a fixed depth, so it settles wide trees
+ * with a few forced lines far sooner than alpha-beta.  Each node carries a
+ * proof number, the fewest leaves that must still be proven to prove it, and
+ * a disproof number, likewise for disproving it.  The depth-first variant
+ * expands the most-proving node by recursing with thresholds on both numbers,
+ * instead of keeping the tree in memory, and caches the numbers of the nodes
+ * it leaves in a table.
+ * <p>
+ * A proof only settles a binary goal, so {@link #decide(State)} runs up to two
+ * searches: one to prove that the player to move wins, and if that is
+ * disproven, one to prove that its opponent wins.  Disproving both proves a
+ * draw.  The {@link #outcome()}, the numbers of the last search's root and
+ * the {@link #nodes()} it visited are kept until the next decision.
+ * <p>
+ * The table holds a fixed {@link #capacity()} of entries, in buckets of four,
+ * and a new entry evicts the one of its bucket whose subtree took the least
+ * work to search.  Evicted numbers are simply searched again, so memory stays
+ * bounded however long the search runs.  A {@link #nodeBudget(long)} bounds
+ * the search time, after which the outcome is {@link Outcome#UNKNOWN}.
+ * <p>
+ * Searches walk a single clone of the state down and back up the tree via
+ * {@link State#makeMove} and {@link State#unmakeMove()}, and assume that
+ * players alternate turns.
+ *
+ * @param <M> the type of move that this {@code Player} plays.
+ * @param <P> the type of mark that identifies this {@code Player} in a game.
+ * @param <S> the type of {@code State} to which this {@code Player} submits
+ *           moves.
+ */
+public abstract class ProofNumberPlayer<M, P, S extends State<M>>
+    implements Player<M> {
+
+  /**
+   * The proof or disproof number of a node that can no longer be proven or
+   * disproven, respectively.
+   */
+  public static final int INFINITY = 1 << 30;
+
+  private static final int WAYS = 4;
+  private static final long[] GOALS = {0x51A3C2E9D0F6B847L, 0x2C6F9D17B84E3A05L};
+
+  /**
+   * The mark that identifies this {@code Player} in a game.
+   */
+  protected P piece;
+
+  /**
+   * The number of entries in the table.
+   */
+  private int capacity = 1 << 20;
+
+  /**
+   * The number of nodes that one search may visit; {@code 0} if unlimited.
+   */
+  private long nodeBudget;
+
+  private long[] keys; // key ^ goal of every entry, or 0 if empty
+  private long[] numbers; // proof numbers in the high half, disproof in the low
+  private int[] work; // nodes searched below every entry
+
+  private int goal; // 0 if proving a win for the root, 1 for a loss
+  private long nodes; // nodes visited by the current search
+  private long limit; // node count at which the current search stops
+  private Outcome outcome = Outcome.UNKNOWN;
+  private int proofNumber;
+  private int disproofNumber;
+
+  private List<M> rootMoves; // moves of the last root searched
+  private int[] rootDelta; // deltas of its children, as in mid
+
+  protected ProofNumberPlayer() { }
+
+  /**
+   * The number of entries in the table, which bounds its memory to about
+   * twenty bytes per entry.
+   */
+  public int capacity() {
+    return capacity;
+  }
+
+  /**
+   * Assigns {@code capacity}, rounded down to a power of two, to {@link
+   * #capacity()}, discarding the table.
+   */
+  public void capacity(int capacity) {
+    if (capacity < WAYS || capacity > (1 << 28)) {
+      throw new IllegalArgumentException("capacity must be in 4..=2^28");
+    }
+    this.capacity = Integer.highestOneBit(capacity);
+    this.keys = null;
+  }
+
+  /**
+   * The number of nodes that each search may visit; {@code 0} if unlimited.
+   */
+  public long nodeBudget() {
+    return nodeBudget;
+  }
+
+  /**
+   * Assigns {@code nodeBudget} to {@link #nodeBudget()}.
+   */
+  public void nodeBudget(long nodeBudget) {
+    if (nodeBudget < 0) {
+      throw new IllegalArgumentException("nodeBudget cannot be negative");
+    }
+    this.nodeBudget = nodeBudget;
+  }
+
+  /**
+   * The outcome proven by the most recent {@link #decide(State)}.
+   */
+  public Outcome outcome() {
+    return outcome;
+  }
+
+  /**
+   * The proof number of the root of the most recent search.
+   */
+  public int proofNumber() {
+    return proofNumber;
+  }
+
+  /**
+   * The disproof number of the root of the most recent search.
+   */
+  public int disproofNumber() {
+    return disproofNumber;
+  }
+
+  /**
+   * The number of positions visited by the most recent {@link #decide(State)}.
+   */
+  public long nodes() {
+    return nodes;
+  }
+
+  /**
+   * Discards every cached proof and disproof number.
+   */
+  public void clear() {
+    if (keys != null) {
+      Arrays.fill(keys, 0L);
+      Arrays.fill(numbers, 0L);
+      Arrays.fill(work, 0);
+    }
+  }
+
+  /**
+   * Returns the outcome of the finished game {@code state} for this player:
+   * positive for a win, negative for a loss and {@code 0} for a draw.
+   */
+  public abstract int terminalValue(S state);
+
+  /**
+   * Proves the {@link #outcome()} of {@code trueState} for this player, who
+   * must be the player to move, and returns a move that achieves it.  If the
+   * outcome is {@link Outcome#UNKNOWN}, returns the move that seemed most
+   * promising when the search stopped.  If {@code trueState} is already over,
+   * returns {@code null} without searching, and its outcome is the result.
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public M decide(State<M> trueState) {
+    if (trueState.isOver()) {
+      final int value = terminalValue((S) trueState);
+      outcome = value > 0 ? Outcome.WIN : value < 0 ? Outcome.LOSS : Outcome.DRAW;
+      nodes = 0;
+      return null;
+    }
+    if (keys == null) {
+      keys = new long[capacity];
+      numbers = new long[capacity];
+      work = new int[capacity];
+    }
+    final S state = (S) trueState.clone();
+    nodes = 0;
+    limit = nodeBudget > 0 ? nodeBudget : Long.MAX_VALUE;
+    search(state, 0);
+    if (proofNumber == 0) {
+      outcome = Outcome.WIN;
+      return rootMove();
+    } else if (disproofNumber != 0) {
+      outcome = Outcome.UNKNOWN;
+      return rootMove();
+    }
+    limit = nodeBudget > 0 ? nodes + nodeBudget : Long.MAX_VALUE;
+    search(state, 1);
+    outcome = proofNumber == 0 ? Outcome.LOSS
+        : disproofNumber == 0 ? Outcome.DRAW : Outcome.UNKNOWN;
+    return rootMove();
+  }
+
+  /**
+   * Searches {@code state} for {@code goal} until its root is proven or
+   * disproven or the node limit is reached.
+   */
+  private void search(S state, int goal) {
+    this.goal = goal;
+    final long packed = mid(state, INFINITY, INFINITY, 0, true);
+    // the root is an OR node when proving a win, so phi is its proof number
+    final int phi = (int) (packed >>> 32);
+    final int delta = (int) packed;
+    proofNumber = goal == 0 ? phi : delta;
+    disproofNumber = goal == 0 ? delta : phi;
+  }
+
+  /**
+   * Returns the child of the last search's root of least delta.  Once the
+   * root is settled, that child proves a win or a draw (or, if every child
+   * loses, is simply the first); otherwise it is the most promising one.
+   */
+  private M rootMove() {
+    int choice = 0;
+    for (int i = 1; i < rootMoves.size(); i++) {
+      if (rootDelta[i] < rootDelta[choice]) {
+        choice = i;
+      }
+    }
+    return rootMoves.get(choice);
+  }
+
+  /**
+   * Returns the numbers of the finished game {@code state}, whose player is
+   * attacking the goal if {@code or}, as in {@link #mid(State, int, int, int,
+   * boolean)}.
+   */
+  private long terminal(S state, boolean or) {
+    final int value = terminalValue(state);
+    final boolean proven = goal == 0 ? value > 0 : value < 0;
+    // a proven OR node and a disproven AND node both have a phi of 0
+    return or == proven ? INFINITY : (long) INFINITY << 32;
+  }
+
+  /**
+   * Multiple-iterative-deepening search of {@code state}, at {@code ply} from
+   * the root, until its phi reaches {@code thPhi} or its delta reaches {@code
+   * thDelta}.  Phi is the proof number of an OR node, where the player who
+   * pursues the goal moves, and the disproof number of an AND node; delta is
+   * the other.  Thus a node's phi is the least delta of its children, and its
+   * delta is the sum of its children's phis.  Returns {@code phi << 32 |
+   * delta}, also storing it in the table.
+   */
+  private long mid(S state, int thPhi, int thDelta, int ply, boolean root) {
+    nodes++;
+    final boolean or = ((ply & 1) == 0) == (goal == 0);
+    if (state.isOver()) {
+      return terminal(state, or);
+    }
+    final long key = state.zobristKey() ^ GOALS[goal];
+    final long cached = probe(key);
+    if (!root && cached != -1L && ((int) (cached >>> 32) >= thPhi || (int) cached >= thDelta)) {
+      return cached;
+    }
+    final List<M> moves = state.validMoves();
+    final int count = moves.size();
+    final int[] phis = new int[count];
+    final int[] deltas = new int[count];
+    for (int i = 0; i < count; i++) {
+      state.makeMove(moves.get(i));
+      final long child;
+      if (state.isOver()) {
+        child = terminal(state, !or);
+      } else {
+        // an unexplored node is one leaf from either proof
+        final long found = probe(state.zobristKey() ^ GOALS[goal]);
+        child = found == -1L ? (1L << 32) | 1 : found;
+      }
+      state.unmakeMove();
+      phis[i] = (int) (child >>> 32);
+      deltas[i] = (int) child;
+    }
+    final long start = nodes;
+    int phi;
+    int delta;
+    while (true) {
+      phi = INFINITY;
+      long sum = 0;
+      int best = 0;
+      int second = INFINITY;
+      for (int i = 0; i < count; i++) {
+        sum += phis[i];
+        if (deltas[i] < phi) {
+          second = phi;
+          phi = deltas[i];
+          best = i;
+        } else if (deltas[i] < second) {
+          second = deltas[i];
+        }
+      }
+      delta = (int) Math.min(sum, INFINITY);
+      if (phi >= thPhi || delta >= thDelta || nodes >= limit) {
+        break;
+      }
+      final int childPhi = (int) Math.min(INFINITY, (long) thDelta + phis[best] - delta);
+      final int childDelta = Math.min(thPhi, second + 1);
+      state.makeMove(moves.get(best));
+      final long child = mid(state, childPhi, childDelta, ply + 1, false);
+      state.unmakeMove();
+      phis[best] = (int) (child >>> 32);
+      deltas[best] = (int) child;
+    }
+    if (root) {
+      rootMoves = moves;
+      rootDelta = deltas;
+    }
+    final long result = (long) phi << 32 | delta;
+    store(key, result, nodes - start);
+    return result;
+  }
+
+  /**
+   * Returns the numbers stored against {@code key}, or {@code -1} if none.
+   */
+  private long probe(long key) {
+    final int base = (int) (key ^ (key >>> 32)) & (capacity - WAYS);
+    for (int i = base; i < base + WAYS; i++) {
+      if (keys[i] == key) {
+        return numbers[i];
+      }
+    }
+    return -1L;
+  }
+
+  /**
+   * Stores {@code data} against {@code key}, evicting the entry of its bucket
+   * that took the least work if the key is absent.
+   */
+  private void store(long key, long data, long nodes) {
+    final int base = (int) (key ^ (key >>> 32)) & (capacity - WAYS);
+    int victim = base;
+    for (int i = base; i < base + WAYS; i++) {
+      if (keys[i] == key) {
+        victim = i;
+        break;
+      } else if (work[i] < work[victim]) {
+        victim = i;
+      }
+    }
+    keys[victim] = key;
+    numbers[victim] = data;
+    work[victim] = (int) Math.min(nodes, Integer.MAX_VALUE);
+  }
+}
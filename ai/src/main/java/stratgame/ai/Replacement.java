@@ -0,0 +1,32 @@
+package stratgame.ai;
+
+/**
+ * The policies by which a {@link TranspositionTable} chooses which entry of a
+ * full bucket a new result evicts.
+ * <p>
+ * Under every policy, a result for a key that the bucket already holds
+ * replaces that entry, unless the entry was searched to a strictly greater
+ * depth, and an empty entry is always filled before any other is evicted.
+ */
+public enum Replacement {
+
+  /**
+   * Every new result is stored, evicting the shallowest entry of its bucket.
+   */
+  ALWAYS,
+
+  /**
+   * A new result evicts the shallowest entry of its bucket, but only if that
+   * entry was searched no deeper than the new result; otherwise the new result
+   * is dropped.
+   */
+  DEPTH_PREFERRED,
+
+  /**
+   * The first entry of every bucket is depth-preferred and the others always
+   * replace: a new result at least as deep as the first entry takes its place,
+   * demoting it to the shallowest of the others, and any other result evicts
+   * the shallowest of the others.  Requires buckets of two or more entries.
+   */
+  TWO_TIER
+}
@@ -0,0 +1,28 @@
+package stratgame.ai;
+
+/**
+ * The search algorithms that a {@link NegamaxPlayer} can run.
+ */
+public enum SearchAlgorithm {
+
+  /**
+   * Fail-soft alpha-beta, which searches every child with its parent's full
+   * window.
+   */
+  ALPHA_BETA,
+
+  /**
+   * Principal variation search (NegaScout), which searches the first child of
+   * every node with the full window and every other child with a null window,
+   * re-searching a child with the full window only if it fails high.
+   */
+  PVS,
+
+  /**
+   * MTD(f), which replaces each root search with a sequence of null-window
+   * root searches that converge on the root value, starting from the previous
+   * iteration's value.  It relies on the transposition table to avoid
+   * repeating work across passes, so it requires one.
+   */
+  MTDF
+}
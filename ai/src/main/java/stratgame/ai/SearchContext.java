@@ -0,0 +1,96 @@
+package stratgame.ai;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Search results that outlive any single {@code decide}: one {@link
+ * ArrayTranspositionTable} shared by every {@link NegamaxPlayer} of a match,
+ * optionally saved to a file so that a later process can start from it.
+ * <p>
+ * Every turn's tree is a subtree of the previous turn's, and tables store
+ * values relative to the player to move, so each player may reuse the results
+ * of its opponent's searches as well as its own.  Players that share a context
+ * must therefore value terminal states identically up to sign, and must agree
+ * on {@link NegamaxPlayer#canonical()}.
+ */
+public final class SearchContext {
+
+  /**
+   * The table that every player of the match stores to and probes.
+   */
+  private final ArrayTranspositionTable table;
+
+  /**
+   * The file that {@link #snapshot()} writes to, or {@code null} if none.
+   */
+  private final Path file;
+
+  /**
+   * Constructs a {@code SearchContext} around {@code table} that is not backed
+   * by a file.
+   */
+  public SearchContext(ArrayTranspositionTable table) {
+    this(table, null);
+  }
+
+  private SearchContext(ArrayTranspositionTable table, Path file) {
+    this.table = table;
+    this.file = file;
+  }
+
+  /**
+   * Returns a {@code SearchContext} backed by {@code file}: its table is
+   * loaded from {@code file} if it exists, or else is a new table of {@code
+   * capacity} entries.
+   *
+   * @throws IOException if {@code file} exists but cannot be loaded.
+   */
+  public static SearchContext open(Path file, int capacity) throws IOException {
+    final ArrayTranspositionTable table = Files.exists(file)
+        ? ArrayTranspositionTable.load(file)
+        : new ArrayTranspositionTable(capacity, 4, Replacement.TWO_TIER);
+    return new SearchContext(table, file);
+  }
+
+  /**
+   * The table shared by the players of this context.
+   */
+  public ArrayTranspositionTable table() {
+    return table;
+  }
+
+  /**
+   * The file that {@link #snapshot()} writes to, or {@code null} if none.
+   */
+  public Path file() {
+    return file;
+  }
+
+  /**
+   * Makes every one of {@code players} search with this context's table.
+   */
+  public void share(NegamaxPlayer<?, ?, ?>... players) {
+    for (NegamaxPlayer<?, ?, ?> player : players) {
+      player.transpositionTable(table);
+    }
+  }
+
+  /**
+   * Saves the table to {@link #file()}, replacing the previous snapshot only
+   * once the new one is complete.
+   *
+   * @throws IllegalStateException if this context is not backed by a file.
+   */
+  public void snapshot() throws IOException {
+    if (file == null) {
+      throw new IllegalStateException("context is not backed by a file");
+    }
+    final Path partial = file.resolveSibling(file.getFileName() + ".partial");
+    table.save(partial);
+    Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+}
@@ -0,0 +1,453 @@
+package stratgame.ai;
+
+import java.util.Arrays;
+import java.util.List;
+import stratgame.game.Player;
+import stratgame.game.State;
+
+/**
+ * {@link Player} that runs the in-place alpha-beta search of {@link
+ * NegamaxPlayer} without recursion or per-node allocation.
+ * <p>
+ * Rather than a {@code NegamaxView} per node and a Java frame per ply, a
+ * search keeps an explicit stack with one entry per ply, stored across a set
+ * of parallel arrays: the node's moves and their order, the index of the next
+ * move to try, the window, the best value and move so far, the remaining
+ * depth, the {@link TranspositionTable} key, and whether the subtree hit the
+ * depth limit.  The state itself is the only undo record, walked down and back
+ * up the tree via {@link State#makeMove} and {@link State#unmakeMove()}.  The
+ * arrays grow (by doubling) the first time a search reaches a new ply, and are
+ * then reused by every later {@link #decide(State)}, as is the {@link
+ * MoveOrdering}; a search thus allocates nothing of its own once warm, so long
+ * as {@link State#validMoves()} does not either.
+ * <p>
+ * Every option shared with {@code NegamaxPlayer} has the same meaning, and a
+ * fresh {@code StackNegamaxPlayer} visits exactly the nodes that a serial,
+ * in-place, alpha-beta {@code NegamaxPlayer} with the same options would.
+ * Parallel searches and the alternative {@link SearchAlgorithm algorithms}
+ * are not offered.  Each {@code StackNegamaxPlayer} is unsafe for concurrent
+ * use.
+ *
+ * @param <M> the type of move that this {@code Player} plays.
+ * @param <P> the type of mark that identifies this {@code Player} in a game.
+ * @param <S> the type of {@code State} to which this {@code Player} submits
+ *           moves.
+ */
+public abstract class StackNegamaxPlayer<M, P, S extends State<M>>
+    implements Player<M> {
+
+  /**
+   * The mark that identifies this {@code Player} in a game.
+   */
+  protected P piece;
+
+  /**
+   * The (possibly null) cache of previously searched positions.
+   */
+  private TranspositionTable table;
+
+  /**
+   * The number of milliseconds that {@link #decide(State)} may spend; {@code
+   * 0} if unlimited.
+   */
+  private long timeBudget;
+
+  /**
+   * The deepest iteration that {@link #decide(State)} may search.
+   */
+  private int maxDepth = TranspositionTable.UNBOUNDED_DEPTH;
+
+  /**
+   * Whether searches order moves via a {@link MoveOrdering}.
+   */
+  private boolean ordering;
+
+  /**
+   * The (possibly null) game-specific move priorities.
+   */
+  private MoveOrderer<M, S> orderer;
+
+  /**
+   * The (possibly null) move ordering heuristics, kept across searches.
+   */
+  private MoveOrdering<M, S> moveOrdering;
+
+  /**
+   * The number of positions visited by the most recent {@link #decide(State)}.
+   */
+  private long nodes;
+
+  /**
+   * The {@link System#nanoTime()} at which the current iteration must stop;
+   * {@code 0} if never.
+   */
+  private long deadline;
+
+  /**
+   * Whether the current iteration ran out of time.
+   */
+  private boolean aborted;
+
+  // the stack, one entry per ply
+  private List<?>[] lists = new List<?>[0]; // valid moves
+  private long[][] orders = new long[0][]; // (possibly null) search orders
+  private int[] counts = new int[0]; // number of valid moves
+  private int[] cursors = new int[0]; // number of moves tried
+  private int[] indices = new int[0]; // index of the move being tried
+  private int[] alphas = new int[0]; // lower bound of the window
+  private int[] betas = new int[0]; // upper bound of the window
+  private int[] alphaOrigs = new int[0]; // lower bound before the table probe
+  private int[] bests = new int[0]; // best value so far
+  private int[] bestIndices = new int[0]; // index of the best move so far
+  private int[] depths = new int[0]; // remaining depth
+  private long[] keys = new long[0]; // Zobrist key
+  private boolean[] horizons = new boolean[0]; // whether the depth limit was hit
+
+  protected StackNegamaxPlayer() { }
+
+  /**
+   * The (possibly null) {@code TranspositionTable} used by this player.
+   */
+  public TranspositionTable transpositionTable() {
+    return table;
+  }
+
+  /**
+   * Assigns {@code table} to {@link #transpositionTable()}; {@code null}
+   * disables caching.
+   */
+  public void transpositionTable(TranspositionTable table) {
+    this.table = table;
+  }
+
+  /**
+   * The number of milliseconds that {@link #decide(State)} may spend; {@code
+   * 0} if unlimited.
+   */
+  public long timeBudget() {
+    return timeBudget;
+  }
+
+  /**
+   * Assigns {@code timeBudget} to {@link #timeBudget()}.
+   */
+  public void timeBudget(long timeBudget) {
+    if (timeBudget < 0) {
+      throw new IllegalArgumentException("timeBudget cannot be negative");
+    }
+    this.timeBudget = timeBudget;
+  }
+
+  /**
+   * The deepest iteration that {@link #decide(State)} may search; {@link
+   * TranspositionTable#UNBOUNDED_DEPTH} if unlimited.
+   */
+  public int maxDepth() {
+    return maxDepth;
+  }
+
+  /**
+   * Assigns {@code maxDepth} to {@link #maxDepth()}.
+   */
+  public void maxDepth(int maxDepth) {
+    if (maxDepth < 1 || maxDepth > TranspositionTable.UNBOUNDED_DEPTH) {
+      throw new IllegalArgumentException("maxDepth must be in 1..=" + TranspositionTable.UNBOUNDED_DEPTH);
+    }
+    this.maxDepth = maxDepth;
+  }
+
+  /**
+   * Whether searches order moves as described in {@link MoveOrdering}.
+   */
+  public boolean ordering() {
+    return ordering;
+  }
+
+  /**
+   * Assigns {@code ordering} to {@link #ordering()}.
+   */
+  public void ordering(boolean ordering) {
+    this.ordering = ordering;
+    this.moveOrdering = null;
+  }
+
+  /**
+   * The (possibly null) source of static move priorities.
+   */
+  public MoveOrderer<M, S> moveOrderer() {
+    return orderer;
+  }
+
+  /**
+   * Assigns {@code orderer} to {@link #moveOrderer()}.
+   */
+  public void moveOrderer(MoveOrderer<M, S> orderer) {
+    this.orderer = orderer;
+    this.moveOrdering = null;
+  }
+
+  /**
+   * The number of positions visited by the most recent {@link #decide(State)}.
+   */
+  public long nodes() {
+    return nodes;
+  }
+
+  /**
+   * Returns the best move in {@code trueState}, subject to {@link
+   * #timeBudget()} and {@link #maxDepth()}.  The search mutates {@code
+   * trueState}, but restores it before returning.
+   */
+  @Override
+  public final M decide(State<M> trueState) {
+    return decide(trueState, timeBudget);
+  }
+
+  /**
+   * Returns the best move in {@code trueState} that can be found within
+   * {@code millis} milliseconds ({@code 0} if unlimited) and {@link
+   * #maxDepth()} plies.
+   * <p>
+   * The first iteration always runs to completion, so that some move is
+   * returned however small the budget.
+   */
+  @SuppressWarnings("unchecked")
+  public final M decide(State<M> trueState, long millis) {
+    final S state = (S) trueState;
+    nodes = 0;
+    aborted = false;
+    deadline = 0L;
+    if (ordering && moveOrdering == null) {
+      moveOrdering = new MoveOrdering<>(orderer);
+    }
+    if (millis <= 0 && maxDepth == TranspositionTable.UNBOUNDED_DEPTH) {
+      return search(state, TranspositionTable.UNBOUNDED_DEPTH, null);
+    }
+    final long end = millis > 0 ? System.nanoTime() + millis * 1000000L : 0L;
+    M best = null;
+    for (int depth = 1; depth <= maxDepth; depth++) {
+      // the first iteration must finish
+      deadline = depth == 1 ? 0L : end;
+      final M choice = search(state, depth, best);
+      if (aborted) {
+        break;
+      }
+      best = choice;
+      if (!horizons[0]) {
+        // every line reached a terminal state, so deeper searches are moot
+        break;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Returns the best move in {@code state} within {@code depth} plies, trying
+   * {@code first} (if non-null) before any other move, or {@code null} if
+   * there is none.  Ties go to the earlier move.
+   */
+  @SuppressWarnings("unchecked")
+  private M search(S state, int depth, M first) {
+    final TranspositionTable table = this.table;
+    final MoveOrdering<M, S> ordering = moveOrdering;
+    reserve(1);
+    final List<M> rootMoves = state.validMoves();
+    final int firstIndex = first == null ? -1 : rootMoves.indexOf(first);
+    enter(0, rootMoves, null, depth, -0x7FFFFFFF, 0x7FFFFFFF, 0L);
+    int sp = 0;
+    grown: while (true) {
+      // locals, unlike fields, need not be reloaded after every call into state
+      final List<?>[] lists = this.lists;
+      final long[][] orders = this.orders;
+      final int[] counts = this.counts;
+      final int[] cursors = this.cursors;
+      final int[] indices = this.indices;
+      final int[] alphas = this.alphas;
+      final int[] betas = this.betas;
+      final int[] alphaOrigs = this.alphaOrigs;
+      final int[] bests = this.bests;
+      final int[] bestIndices = this.bestIndices;
+      final int[] depths = this.depths;
+      final long[] keys = this.keys;
+      final boolean[] horizons = this.horizons;
+      while (true) {
+        final List<M> moves = (List<M>) lists[sp];
+        int value;
+        if (cursors[sp] < counts[sp]) {
+          if (sp + 2 > lists.length) {
+            reserve(sp + 2);
+            continue grown;
+          }
+          // descend into the next move
+          final int i = cursors[sp]++;
+          final int index;
+          if (sp == 0) {
+            index = i == 0 && firstIndex >= 0 ? firstIndex
+                : i <= firstIndex ? i - 1 : i;
+          } else {
+            index = orders[sp] != null ? MoveOrdering.index(orders[sp][i]) : i;
+          }
+          indices[sp] = index;
+          state.makeMove(moves.get(index));
+          final int child = sp + 1;
+          final int color = (child & 1) == 0 ? 1 : -1;
+          final int childDepth = childDepth(depths[sp]);
+          nodes++;
+          if (state.isOver()) {
+            value = color * terminalValue(state);
+          } else if (childDepth == 0) {
+            horizons[sp] = true;
+            value = color * terminalValue(state);
+          } else if (deadline != 0L && (nodes & 0x3FF) == 0
+              && System.nanoTime() - deadline > 0) {
+            aborted = true;
+            for (int ply = 0; ply < child; ply++) {
+              state.unmakeMove();
+            }
+            return null;
+          } else {
+            int alpha = -betas[sp];
+            int beta = -alphas[sp];
+            final int alphaOrig = alpha;
+            boolean tainted = false;
+            long key = 0L;
+            int ttMove = TranspositionTable.NO_MOVE;
+            long entry = TranspositionTable.MISS;
+            if (table != null) {
+              key = state.zobristKey();
+              entry = table.probe(key);
+            }
+            if (entry != TranspositionTable.MISS) {
+              // even a result too shallow to reuse suggests a move to try first
+              ttMove = TranspositionTable.move(entry);
+            }
+            value = 0;
+            boolean resolved = false;
+            if (entry != TranspositionTable.MISS
+                && TranspositionTable.depth(entry) >= childDepth) {
+              value = TranspositionTable.value(entry);
+              if (TranspositionTable.depth(entry) != TranspositionTable.UNBOUNDED_DEPTH) {
+                // a depth-limited result taints whatever it helps decide
+                horizons[sp] = true;
+                tainted = true;
+              }
+              switch (TranspositionTable.bound(entry)) {
+                case TranspositionTable.EXACT:
+                  resolved = true;
+                  break;
+                case TranspositionTable.LOWER:
+                  if (value > alpha) alpha = value;
+                  break;
+                default:
+                  if (value < beta) beta = value;
+              }
+              resolved |= alpha >= beta;
+            }
+            if (!resolved) {
+              final List<M> childMoves = state.validMoves();
+              enter(child, childMoves, ordering == null ? null
+                  : ordering.order(state, childMoves, ttMove, child, 0),
+                  childDepth, alpha, beta, key);
+              alphaOrigs[child] = alphaOrig;
+              horizons[child] = tainted;
+              sp = child;
+              continue;
+            }
+          }
+          state.unmakeMove();
+        } else {
+          // every move has been tried, or one caused a cutoff
+          value = bests[sp];
+          if (sp == 0) {
+            return bestIndices[0] < 0 ? null : moves.get(bestIndices[0]);
+          }
+          // a subtree that never hit the depth limit was searched exhaustively
+          final int searched = horizons[sp] ? depths[sp] : TranspositionTable.UNBOUNDED_DEPTH;
+          if (table != null) {
+            final int bound = value <= alphaOrigs[sp] ? TranspositionTable.UPPER
+                : value >= betas[sp] ? TranspositionTable.LOWER
+                : TranspositionTable.EXACT;
+            table.store(keys[sp], TranspositionTable.pack(value, bound,
+                searched, Math.min(bestIndices[sp], TranspositionTable.NO_MOVE)));
+          }
+          horizons[sp - 1] |= horizons[sp];
+          sp--;
+          state.unmakeMove();
+        }
+        // fold the child's value into its parent
+        value = -value;
+        if (value > bests[sp]) {
+          bests[sp] = value;
+          bestIndices[sp] = indices[sp];
+          if (value > alphas[sp]) {
+            alphas[sp] = value;
+            if (value >= betas[sp]) {
+              if (ordering != null && sp > 0) {
+                ordering.cutoff(((List<M>) lists[sp]).get(indices[sp]), sp,
+                    depths[sp] == TranspositionTable.UNBOUNDED_DEPTH
+                        ? Math.max(1, 32 - sp) : depths[sp]);
+              }
+              cursors[sp] = counts[sp];
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Initializes the stack entry at {@code ply}.
+   */
+  private void enter(int ply, List<?> moves, long[] order, int depth,
+      int alpha, int beta, long key) {
+    lists[ply] = moves;
+    orders[ply] = order;
+    counts[ply] = moves.size();
+    cursors[ply] = 0;
+    alphas[ply] = alpha;
+    betas[ply] = beta;
+    alphaOrigs[ply] = alpha;
+    bests[ply] = Integer.MIN_VALUE;
+    bestIndices[ply] = -1;
+    depths[ply] = depth;
+    keys[ply] = key;
+    horizons[ply] = false;
+  }
+
+  /**
+   * Grows the stack, if need be, to hold at least {@code plies} entries.
+   */
+  private void reserve(int plies) {
+    if (plies <= lists.length) {
+      return;
+    }
+    final int length = Math.max(32, 2 * lists.length);
+    lists = Arrays.copyOf(lists, length);
+    orders = Arrays.copyOf(orders, length);
+    counts = Arrays.copyOf(counts, length);
+    cursors = Arrays.copyOf(cursors, length);
+    indices = Arrays.copyOf(indices, length);
+    alphas = Arrays.copyOf(alphas, length);
+    betas = Arrays.copyOf(betas, length);
+    alphaOrigs = Arrays.copyOf(alphaOrigs, length);
+    bests = Arrays.copyOf(bests, length);
+    bestIndices = Arrays.copyOf(bestIndices, length);
+    depths = Arrays.copyOf(depths, length);
+    keys = Arrays.copyOf(keys, length);
+    horizons = Arrays.copyOf(horizons, length);
+  }
+
+  /**
+   * Returns the remaining search depth below a node with {@code depth}.
+   */
+  private static int childDepth(int depth) {
+    return depth == TranspositionTable.UNBOUNDED_DEPTH ? depth : depth - 1;
+  }
+
+  /**
+   * Returns the negamax value of this state without evaluating any further
+   * subtrees, e.g. by some heuristic or by treating {@code state} as the
+   * endgame.
+   */
+  public abstract int terminalValue(S state);
+}
@@ -0,0 +1,88 @@
+package stratgame.ai;
+
+/**
+ * Fixed-capacity cache of search results, keyed by {@link
+ * stratgame.game.State#zobristKey() zobristKey}.
+ * <p>
+ * A single {@code long}, {@code data}, captures each result.  From the right,
+ * the first 32 bits hold the negamax value from the perspective of the player
+ * to move, the next 8 bits hold the remaining search depth that produced the
+ * value, the next 8 bits hold the index (within {@code validMoves()}) of the
+ * best move found, and the next 2 bits hold the kind of bound that the value
+ * represents.  Because no stored result has a bound of {@code 0}, a {@code
+ * data} of {@link #MISS} unambiguously denotes an absent entry.
+ */
+public interface TranspositionTable {
+
+  /**
+   * {@code data} returned by {@link #probe(long)} if {@code key} is absent.
+   */
+  long MISS = 0L;
+
+  /**
+   * Bound denoting that the stored value is exact.
+   */
+  int EXACT = 1;
+
+  /**
+   * Bound denoting that the true value is at least the stored value.
+   */
+  int LOWER = 2;
+
+  /**
+   * Bound denoting that the true value is at most the stored value.
+   */
+  int UPPER = 3;
+
+  /**
+   * Depth denoting a search that ran all the way to terminal states.
+   */
+  int UNBOUNDED_DEPTH = 0xFF;
+
+  /**
+   * Move index denoting that no best move is known.
+   */
+  int NO_MOVE = 0xFF;
+
+  /**
+   * Returns the {@code data} stored against {@code key}, or {@link #MISS} if
+   * no such entry exists.
+   */
+  long probe(long key);
+
+  /**
+   * Stores {@code data} against {@code key}, possibly evicting another entry.
+   */
+  void store(long key, long data);
+
+  /**
+   * Evicts every entry.
+   */
+  void clear();
+
+  /**
+   * Returns the {@code data} that captures the arguments.
+   */
+  static long pack(int value, int bound, int depth, int move) {
+    return (value & 0xFFFFFFFFL)
+        | ((long) (depth & 0xFF) << 32)
+        | ((long) (move & 0xFF) << 40)
+        | ((long) bound << 48);
+  }
+
+  static int value(long data) {
+    return (int) data;
+  }
+
+  static int depth(long data) {
+    return (int) (data >>> 32) & 0xFF;
+  }
+
+  static int move(long data) {
+    return (int) (data >>> 40) & 0xFF;
+  }
+
+  static int bound(long data) {
+    return (int) (data >>> 48) & 3;
+  }
+}
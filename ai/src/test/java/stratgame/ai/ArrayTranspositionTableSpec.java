@@ -0,0 +1,202 @@
+package stratgame.ai;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import org.testng.annotations.Test;
+import static org.testng.Assert.assertEquals;
+
+public class ArrayTranspositionTableSpec {
+
+  /**
+   * Returns a new, empty table of {@code capacity} entries in buckets of
+   * {@code ways}.
+   */
+  protected TranspositionTable newTable(int capacity, int ways,
+      Replacement replacement) {
+    return new ArrayTranspositionTable(capacity, ways, replacement);
+  }
+
+  /**
+   * Returns the number of entries of {@code table} that hold a result.
+   */
+  protected long occupancy(TranspositionTable table) {
+    return ((ArrayTranspositionTable) table).occupancy();
+  }
+
+  /**
+   * Returns the {@code i}th of a series of keys that share a bucket in any
+   * table of up to 2^8 buckets.
+   */
+  private static long colliding(int i) {
+    return (long) (i + 1) << 40;
+  }
+
+  /**
+   * Returns the {@code i}th of a series of well-spread keys.
+   */
+  private static long key(int i) {
+    return (i + 1) * 0x9E3779B97F4A7C15L;
+  }
+
+  private static long data(int value, int depth) {
+    return TranspositionTable.pack(value, TranspositionTable.EXACT, depth, 0);
+  }
+
+  @Test
+  public void testAssociativity() {
+    final TranspositionTable direct = newTable(64, 1, Replacement.ALWAYS);
+    final TranspositionTable fourWay = newTable(64, 4, Replacement.ALWAYS);
+    for (int i = 0; i < 4; i++) {
+      direct.store(colliding(i), data(i, 1));
+      fourWay.store(colliding(i), data(i, 1));
+    }
+    // colliding keys evict each other, unless the bucket can hold them all
+    for (int i = 0; i < 3; i++) {
+      assertEquals(direct.probe(colliding(i)), TranspositionTable.MISS);
+      assertEquals(fourWay.probe(colliding(i)), data(i, 1));
+    }
+    assertEquals(direct.probe(colliding(3)), data(3, 1));
+    assertEquals(fourWay.probe(colliding(3)), data(3, 1));
+    assertEquals(occupancy(fourWay), 4L);
+    fourWay.clear();
+    assertEquals(fourWay.probe(colliding(0)), TranspositionTable.MISS);
+    assertEquals(occupancy(fourWay), 0L);
+  }
+
+  @Test
+  public void testSameKey() {
+    final TranspositionTable table = newTable(16, 2, Replacement.ALWAYS);
+    table.store(colliding(0), data(1, 5));
+    // a shallower result for the same key is dropped, a deeper one kept
+    table.store(colliding(0), data(2, 3));
+    assertEquals(table.probe(colliding(0)), data(1, 5));
+    table.store(colliding(0), data(3, 5));
+    assertEquals(table.probe(colliding(0)), data(3, 5));
+    assertEquals(occupancy(table), 1L);
+  }
+
+  @Test
+  public void testAlwaysReplace() {
+    final TranspositionTable table = newTable(16, 2, Replacement.ALWAYS);
+    table.store(colliding(0), data(0, 5));
+    table.store(colliding(1), data(1, 3));
+    table.store(colliding(2), data(2, 4));
+    // evicts the shallowest entry, even if deeper than the new result
+    assertEquals(table.probe(colliding(0)), data(0, 5));
+    assertEquals(table.probe(colliding(1)), TranspositionTable.MISS);
+    assertEquals(table.probe(colliding(2)), data(2, 4));
+    table.store(colliding(3), data(3, 1));
+    assertEquals(table.probe(colliding(2)), TranspositionTable.MISS);
+    assertEquals(table.probe(colliding(3)), data(3, 1));
+  }
+
+  @Test
+  public void testDepthPreferred() {
+    final TranspositionTable table = newTable(16, 2, Replacement.DEPTH_PREFERRED);
+    table.store(colliding(0), data(0, 5));
+    table.store(colliding(1), data(1, 6));
+    // too shallow to evict either entry
+    table.store(colliding(2), data(2, 4));
+    assertEquals(table.probe(colliding(0)), data(0, 5));
+    assertEquals(table.probe(colliding(1)), data(1, 6));
+    assertEquals(table.probe(colliding(2)), TranspositionTable.MISS);
+    // deep enough to evict the shallowest
+    table.store(colliding(3), data(3, 5));
+    assertEquals(table.probe(colliding(0)), TranspositionTable.MISS);
+    assertEquals(table.probe(colliding(1)), data(1, 6));
+    assertEquals(table.probe(colliding(3)), data(3, 5));
+  }
+
+  @Test
+  public void testTwoTier() {
+    final TranspositionTable table = newTable(16, 2, Replacement.TWO_TIER);
+    table.store(colliding(0), data(0, 5));
+    table.store(colliding(1), data(1, 3));
+    // shallower than the first entry, so it evicts the second
+    table.store(colliding(2), data(2, 4));
+    assertEquals(table.probe(colliding(0)), data(0, 5));
+    assertEquals(table.probe(colliding(1)), TranspositionTable.MISS);
+    assertEquals(table.probe(colliding(2)), data(2, 4));
+    // deeper than the first entry, which is demoted over the second
+    table.store(colliding(3), data(3, 6));
+    assertEquals(table.probe(colliding(0)), data(0, 5));
+    assertEquals(table.probe(colliding(2)), TranspositionTable.MISS);
+    assertEquals(table.probe(colliding(3)), data(3, 6));
+    assertEquals(occupancy(table), 2L);
+  }
+
+  @Test
+  public void testConcurrentStores() throws InterruptedException {
+    for (Replacement replacement : Replacement.values()) {
+      // few buckets, so that threads constantly overwrite each other
+      final TranspositionTable table = newTable(64, 4, replacement);
+      final AtomicLong hits = new AtomicLong();
+      final AtomicLong corrupted = new AtomicLong();
+      final Thread[] threads = new Thread[4];
+      for (int t = 0; t < threads.length; t++) {
+        final Random random = new Random(t);
+        threads[t] = new Thread(() -> {
+          for (int n = 0; n < 200_000; n++) {
+            // every field but the depth is a function of the key
+            final int i = random.nextInt(1024);
+            table.store(key(i), TranspositionTable.pack(i, TranspositionTable.LOWER,
+                random.nextInt(TranspositionTable.UNBOUNDED_DEPTH), i & 0x7F));
+            final int j = random.nextInt(1024);
+            final long data = table.probe(key(j));
+            if (data != TranspositionTable.MISS) {
+              hits.incrementAndGet();
+              if (TranspositionTable.value(data) != j
+                  || TranspositionTable.move(data) != (j & 0x7F)
+                  || TranspositionTable.bound(data) != TranspositionTable.LOWER) {
+                corrupted.incrementAndGet();
+              }
+            }
+          }
+        });
+      }
+      for (Thread thread : threads) {
+        thread.start();
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+      assertEquals(hits.get() > 0, true);
+      assertEquals(corrupted.get(), 0L);
+    }
+  }
+
+  @Test
+  public void testSaveLoad() throws IOException {
+    final ArrayTranspositionTable table =
+        new ArrayTranspositionTable(1 << 10, 2, Replacement.DEPTH_PREFERRED);
+    for (int i = 0; i < 300; i++) {
+      table.store(key(i), data(i, i & 7));
+    }
+    final Path file = Files.createTempFile("table", ".tt");
+    try {
+      table.save(file);
+      final ArrayTranspositionTable loaded = ArrayTranspositionTable.load(file);
+      assertEquals(loaded.capacity(), table.capacity());
+      assertEquals(loaded.ways(), 2);
+      assertEquals(loaded.replacement(), Replacement.DEPTH_PREFERRED);
+      assertEquals(loaded.occupancy(), table.occupancy());
+      for (int i = 0; i < 300; i++) {
+        assertEquals(loaded.probe(key(i)), table.probe(key(i)));
+      }
+      // anything else is rejected
+      Files.write(file, new byte[]{1, 2, 3});
+      boolean rejected = false;
+      try {
+        ArrayTranspositionTable.load(file);
+      } catch (IOException e) {
+        rejected = true;
+      }
+      assertEquals(rejected, true);
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package stratgame.ai;
+
+import org.testng.annotations.Test;
+import static org.testng.Assert.assertEquals;
+
+public class MctsPlayerSpec {
+
+  private static class PilePlayer extends MctsPlayer<Integer, Integer, Pile> {
+
+    PilePlayer(int parity, long seed) {
+      super(seed);
+      this.piece = parity;
+    }
+
+    @Override
+    public int terminalValue(Pile s) {
+      return piece == 0 ? s.value() : -s.value();
+    }
+  }
+
+  /**
+   * Returns the number of visits packed into {@code stats}.
+   */
+  private static long visits(long stats) {
+    return stats >>> 32;
+  }
+
+  @Test
+  public void testFinishedState() {
+    final PilePlayer player = new PilePlayer(0, 9);
+    assertEquals(player.decide(new Pile(0)), null);
+    assertEquals(player.playouts(), 0);
+  }
+
+  @Test
+  public void testPlayoutBudget() {
+    for (int budget : new int[]{1, 10, 500}) {
+      final PilePlayer player = new PilePlayer(0, 9);
+      player.playoutBudget(budget);
+      player.decide(new Pile(12));
+      assertEquals(player.playouts(), budget);
+      final long[] stats = player.rootStats();
+      assertEquals(visits(stats[0]), budget);
+      // a lone thread takes every playout through exactly one child
+      long children = 0;
+      for (int i = 1; i < stats.length; i++) {
+        children += visits(stats[i]);
+      }
+      assertEquals(children, budget);
+    }
+  }
+
+  @Test
+  public void testTreeReuse() {
+    final PilePlayer player = new PilePlayer(0, 9);
+    player.playoutBudget(1000);
+    final Pile pile = new Pile(12);
+    pile.makeMove(player.decide(pile));
+    pile.makeMove(1);
+    // the reply was searched by the first call, and its playouts are kept
+    player.decide(pile);
+    assertEquals(player.playouts(), 1000);
+    assertEquals(visits(player.rootStats()[0]) > 1000, true);
+    // a position that no kept node reaches starts afresh
+    player.decide(new Pile(12));
+    assertEquals(visits(player.rootStats()[0]), 1000);
+  }
+
+  @Test
+  public void testForcedWin() {
+    for (int stones = 1; stones <= 12; stones++) {
+      final Pile pile = new Pile(stones);
+      if (pile.negamax() <= 0) {
+        continue;
+      }
+      final PilePlayer player = new PilePlayer(0, stones);
+      player.playoutBudget(5000);
+      pile.makeMove(player.decide(pile));
+      assertEquals(-pile.negamax(), 1, stones + " stones");
+    }
+  }
+
+  @Test
+  public void testTreeParallel() {
+    for (int seed = 0; seed < 20; seed++) {
+      final PilePlayer player = new PilePlayer(0, seed);
+      player.threads(4);
+      player.playoutBudget(2000);
+      player.decide(new Pile(20));
+      assertEquals(player.playouts(), 2000);
+      final long[] stats = player.rootStats();
+      assertEquals(visits(stats[0]), 2000);
+      long children = 0;
+      for (int i = 1; i < stats.length; i++) {
+        // every visit's reward has landed, and none is worth more than 2
+        assertEquals((int) stats[i] >= 0, true);
+        assertEquals((int) stats[i] <= 2 * visits(stats[i]), true);
+        children += visits(stats[i]);
+      }
+      assertEquals(children <= 2000, true);
+    }
+  }
+}
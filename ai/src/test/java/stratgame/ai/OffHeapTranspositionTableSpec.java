@@ -0,0 +1,107 @@
+package stratgame.ai;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.testng.annotations.Test;
+import static org.testng.Assert.assertEquals;
+
+public class OffHeapTranspositionTableSpec extends ArrayTranspositionTableSpec {
+
+  @Override
+  protected TranspositionTable newTable(int capacity, int ways,
+      Replacement replacement) {
+    return new OffHeapTranspositionTable(16L * capacity, ways, replacement);
+  }
+
+  @Override
+  protected long occupancy(TranspositionTable table) {
+    return ((OffHeapTranspositionTable) table).occupancy();
+  }
+
+  private static long data(int value, int depth) {
+    return TranspositionTable.pack(value, TranspositionTable.EXACT, depth, 0);
+  }
+
+  @Test
+  public void testSize() {
+    OffHeapTranspositionTable table = new OffHeapTranspositionTable(
+        OffHeapTranspositionTable.megabytes(1), 4, Replacement.TWO_TIER);
+    assertEquals(table.capacity(), 1L << 16);
+    assertEquals(table.bytes(), 1L << 20);
+    // rounds down to a power of two of buckets
+    table = new OffHeapTranspositionTable(
+        OffHeapTranspositionTable.megabytes(1), 3, Replacement.ALWAYS);
+    assertEquals(table.capacity(), 3L << 14);
+    assertEquals(table.bytes() <= 1L << 20, true);
+    assertEquals(OffHeapTranspositionTable.gigabytes(3), 3L << 30);
+  }
+
+  @Test
+  public void testStatistics() {
+    final OffHeapTranspositionTable table =
+        new OffHeapTranspositionTable(16 * 16, 1, Replacement.ALWAYS);
+    final long a = 1L << 40;
+    final long b = 2L << 40; // same bucket as a
+    final long c = 1L; // another bucket
+    assertEquals(table.probe(a), TranspositionTable.MISS);
+    table.store(a, data(1, 3));
+    assertEquals(table.probe(a), data(1, 3));
+    assertEquals(table.probe(b), TranspositionTable.MISS);
+    table.store(b, data(2, 3));
+    table.store(c, data(3, 3));
+    assertEquals(table.probes(), 3L);
+    assertEquals(table.hits(), 1L);
+    assertEquals(table.collisions(), 1L);
+    assertEquals(table.stores(), 3L);
+    assertEquals(table.overwrites(), 1L);
+    assertEquals(table.hitRate(), 1.0 / 3);
+    assertEquals(table.overwriteRate(), 1.0 / 3);
+    table.clear();
+    assertEquals(table.probes(), 0L);
+    assertEquals(table.overwriteRate(), 0.0);
+    assertEquals(table.probe(b), TranspositionTable.MISS);
+  }
+
+  @Test
+  public void testClear() {
+    // one table spans many blocks of zeroes, the other only part of one
+    for (long bytes : new long[]{OffHeapTranspositionTable.megabytes(3), 16 * 3 * 4}) {
+      final OffHeapTranspositionTable table =
+          new OffHeapTranspositionTable(bytes, 3, Replacement.ALWAYS);
+      for (long i = 0; i < table.capacity(); i++) {
+        table.store(i * 0x9E3779B97F4A7C15L + 1, data(1, 3));
+      }
+      assertEquals(table.occupancy() > table.capacity() / 2, true);
+      table.clear();
+      assertEquals(table.occupancy(), 0L);
+      for (long i = 0; i < table.capacity(); i++) {
+        assertEquals(table.probe(i * 0x9E3779B97F4A7C15L + 1), TranspositionTable.MISS);
+      }
+    }
+  }
+
+  @Test
+  public void testMapped() throws IOException {
+    final Path file = Files.createTempFile("table", ".tt");
+    try {
+      final OffHeapTranspositionTable table = OffHeapTranspositionTable.mapped(
+          file, 1 << 16, 2, Replacement.DEPTH_PREFERRED);
+      for (int i = 0; i < 100; i++) {
+        table.store(i * 0x9E3779B97F4A7C15L, data(i, 5));
+      }
+      table.force();
+      // a table of the same shape, mapped from the same file, starts full
+      final OffHeapTranspositionTable reopened = OffHeapTranspositionTable.mapped(
+          file, 1 << 16, 2, Replacement.DEPTH_PREFERRED);
+      assertEquals(reopened.occupancy(), table.occupancy());
+      for (int i = 0; i < 100; i++) {
+        final long key = i * 0x9E3779B97F4A7C15L;
+        assertEquals(reopened.probe(key), table.probe(key));
+      }
+      assertEquals(Files.size(file), 1L << 16);
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+}
@@ -0,0 +1,105 @@
+package stratgame.ai;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import stratgame.game.State;
+
+/**
+ * Subtraction game: players alternately take one to three stones from a
+ * pile, and whoever takes the last stone wins, unless the game ends after a
+ * multiple of five moves, which draws.
+ */
+class Pile implements State<Integer> {
+
+  private int stones;
+  private int movesMade;
+  private int[] history = new int[64];
+
+  Pile(int stones) {
+    this.stones = stones;
+  }
+
+  @Override
+  public int movesMade() {
+    return movesMade;
+  }
+
+  @Override
+  public List<Integer> validMoves() {
+    final List<Integer> result = new ArrayList<>();
+    for (int take = 1; take <= Math.min(3, stones); take++) {
+      result.add(take);
+    }
+    return result;
+  }
+
+  @Override
+  public boolean makeMove(Integer take) {
+    if (take < 1 || take > Math.min(3, stones)) {
+      return false;
+    }
+    stones -= take;
+    history[movesMade++] = take;
+    return true;
+  }
+
+  @Override
+  public boolean unmakeMove() {
+    if (movesMade == 0) {
+      return false;
+    }
+    stones += history[--movesMade];
+    return true;
+  }
+
+  @Override
+  public boolean isOver() {
+    return stones == 0;
+  }
+
+  @Override
+  public long zobristKey() {
+    return (stones * 10L + movesMade % 10 + 1) * 0x9E3779B97F4A7C15L;
+  }
+
+  @Override
+  public void debug() {
+    System.out.println(stones);
+  }
+
+  @Override
+  public Pile clone() {
+    final Pile result = new Pile(stones);
+    result.movesMade = movesMade;
+    result.history = Arrays.copyOf(history, history.length);
+    return result;
+  }
+
+  /**
+   * Returns the value of this finished game for the player who moved at
+   * even plies.
+   */
+  int value() {
+    if (movesMade % 5 == 0) {
+      return 0;
+    }
+    return (movesMade & 1) == 1 ? 1 : -1;
+  }
+
+  /**
+   * Returns the minimax value of this game for the player to move.
+   */
+  int negamax() {
+    if (isOver()) {
+      return (movesMade & 1) == 0 ? value() : -value();
+    }
+    int best = -1;
+    for (Integer take : validMoves()) {
+      makeMove(take);
+      best = Math.max(best, -negamax());
+      unmakeMove();
+    }
+    return best;
+  }
+}
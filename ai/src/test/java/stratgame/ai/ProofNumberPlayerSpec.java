@@ -0,0 +1,83 @@
+package stratgame.ai;
+
+import org.testng.annotations.Test;
+import static org.testng.Assert.assertEquals;
+
+public class ProofNumberPlayerSpec {
+
+  private static class PilePlayer extends ProofNumberPlayer<Integer, Integer, Pile> {
+
+    PilePlayer(int parity) {
+      this.piece = parity;
+    }
+
+    @Override
+    public int terminalValue(Pile s) {
+      return piece == 0 ? s.value() : -s.value();
+    }
+  }
+
+  private static Outcome outcome(int value) {
+    return value > 0 ? Outcome.WIN : value < 0 ? Outcome.LOSS : Outcome.DRAW;
+  }
+
+  @Test
+  public void testOutcomes() {
+    for (int capacity : new int[]{1 << 10, 4}) {
+      for (int stones = 1; stones <= 20; stones++) {
+        for (int parity = 0; parity < 2; parity++) {
+          final Pile pile = new Pile(stones + parity);
+          if (parity == 1) {
+            pile.makeMove(1);
+          }
+          final PilePlayer player = new PilePlayer(parity);
+          player.capacity(capacity);
+          final int expected = pile.negamax();
+          final Integer move = player.decide(pile);
+          assertEquals(player.outcome(), outcome(expected));
+          // the move achieves the outcome
+          pile.makeMove(move);
+          assertEquals(-pile.negamax(), expected);
+          pile.unmakeMove();
+          assertEquals(pile.movesMade(), parity);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testFinishedState() {
+    final PilePlayer player = new PilePlayer(0);
+    player.decide(new Pile(5));
+    // the finished pile is no longer the root that was searched
+    final Pile pile = new Pile(1);
+    pile.makeMove(1);
+    assertEquals(player.decide(pile), null);
+    assertEquals(player.outcome(), Outcome.WIN);
+    assertEquals(player.nodes(), 0L);
+    final PilePlayer other = new PilePlayer(1);
+    assertEquals(other.decide(pile), null);
+    assertEquals(other.outcome(), Outcome.LOSS);
+  }
+
+  @Test
+  public void testNumbers() {
+    final PilePlayer player = new PilePlayer(0);
+    player.decide(new Pile(5));
+    assertEquals(player.outcome(), Outcome.WIN);
+    assertEquals(player.proofNumber(), 0);
+    assertEquals(player.disproofNumber(), ProofNumberPlayer.INFINITY);
+    assertEquals(player.nodes() > 0, true);
+  }
+
+  @Test
+  public void testNodeBudget() {
+    final PilePlayer player = new PilePlayer(0);
+    player.nodeBudget(3);
+    final Integer move = player.decide(new Pile(20));
+    assertEquals(player.outcome(), Outcome.UNKNOWN);
+    assertEquals(move >= 1 && move <= 3, true);
+    assertEquals(player.proofNumber() > 0, true);
+    assertEquals(player.disproofNumber() > 0, true);
+  }
+}
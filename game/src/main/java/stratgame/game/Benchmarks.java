@@ -0,0 +1,26 @@
+package stratgame.game;
+
+import java.util.Arrays;
+
+/**
+ * Helpers shared by the games' benchmarks.
+ */
+public final class Benchmarks {
+
+  private Benchmarks() { }
+
+  /**
+   * Returns the thread counts to measure: powers of two up to the number of
+   * cores, then the number of cores itself (but always at least two).
+   */
+  public static int[] threadCounts() {
+    final int cores = Math.max(2, Runtime.getRuntime().availableProcessors());
+    int count = 0;
+    final int[] result = new int[32];
+    for (int t = 1; t < cores; t <<= 1) {
+      result[count++] = t;
+    }
+    result[count++] = cores;
+    return Arrays.copyOf(result, count);
+  }
+}
@@ -0,0 +1,68 @@
+package stratgame.game;
+
+import java.util.function.IntConsumer;
+
+/**
+ * {@link State} whose moves are {@code ints}, which can be generated and played
+ * without boxing or allocation.  The boxed methods of {@code State} remain as
+ * adapters, and every method here must agree with them: in particular, moves
+ * are generated in the same order as {@link #validMoves()}.
+ */
+public interface IntState extends State<Integer> {
+
+  /**
+   * Value that is never a valid move, used to denote the absence of one.
+   */
+  int NO_MOVE = Integer.MIN_VALUE;
+
+  /**
+   * An upper bound on the number of valid moves in any turn.
+   */
+  int maxValidMoves();
+
+  /**
+   * Writes the moves that can be played in the current turn to the start of
+   * {@code moves}, which must hold at least {@link #maxValidMoves()} entries,
+   * and returns their number.
+   */
+  int validMoves(int[] moves);
+
+  /**
+   * Passes every move that can be played in the current turn to {@code
+   * action}, which must not modify this {@code IntState}.
+   */
+  void forEachValidMove(IntConsumer action);
+
+  /**
+   * Returns whether {@code m} can be played in the current turn, without
+   * generating any other move.
+   */
+  boolean isValidMove(int m);
+
+  /**
+   * Returns the move at {@code index} within {@link #validMoves(int[])}, or
+   * {@link #NO_MOVE} if there are not that many, without generating the moves
+   * before it.
+   */
+  int validMove(int index);
+
+  /**
+   * Returns the index of the valid move {@code m} within {@link
+   * #validMoves(int[])}, without generating the moves before it.
+   */
+  int validMoveIndex(int m);
+
+  /**
+   * If {@code m} is a valid move, plays {@code m} and returns {@code true},
+   * otherwise returns {@code false}.
+   */
+  boolean makeMove(int m);
+
+  @Override
+  default boolean makeMove(Integer m) {
+    return makeMove(m.intValue());
+  }
+
+  @Override
+  IntState clone();
+}
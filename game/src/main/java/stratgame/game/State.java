@@ -25,12 +25,27 @@ public interface State<M> {
    */
   boolean makeMove(M m);
 
+  /**
+   * If at least one move has been played, reverts the most recently played
+   * move and returns {@code true}, otherwise returns {@code false}.  Reverting
+   * a move restores every observable property of this {@code State}, including
+   * the order of {@link #validMoves()}.
+   */
+  boolean unmakeMove();
+
   /**
    * Returns true if and only if either no moves can be played or a player has
    * won.
    */
   boolean isOver();
 
+  /**
+   * A {@link Zobrist} hash of this {@code State}.  Any two {@code States} that
+   * admit the same future play must share a key; implementations maintain it
+   * incrementally in {@link #makeMove(Object) makeMove}.
+   */
+  long zobristKey();
+
   /**
    * Displays a human-readable representation of this {@code State} to {@code
    * stdout}.
@@ -0,0 +1,41 @@
+package stratgame.game;
+
+/**
+ * {@link State} that may be equivalent to other states under some symmetry of
+ * its game, e.g. a rotation of the board.
+ * <p>
+ * Equivalent states share one canonical image, and thus one {@link
+ * #canonicalKey()}, onto which each of them maps by one of its symmetries.
+ * Moves carry over by their index within {@link
+ * State#validMoves()}: {@link #toCanonical(int, int)} translates the index of
+ * a move of this state to the index of the matching move of the image, and
+ * {@link #fromCanonical(int, int)} translates it back.
+ */
+public interface Symmetric {
+
+  /**
+   * A hash of the canonical image of this state.  Any two states that are
+   * equivalent under symmetry must share a key, while states that are not
+   * equivalent should not.
+   */
+  long canonicalKey();
+
+  /**
+   * The symmetry that maps this state onto the image hashed by the most recent
+   * call to {@link #canonicalKey()}, which must have been made in this state.
+   */
+  int canonicalSymmetry();
+
+  /**
+   * Returns the index, within the canonical image's valid moves, of the image
+   * under {@code symmetry} of this state's valid move at {@code index}.
+   */
+  int toCanonical(int index, int symmetry);
+
+  /**
+   * Returns the index, within this state's valid moves, of the move whose image
+   * under {@code symmetry} is the canonical image's valid move at {@code
+   * index}.
+   */
+  int fromCanonical(int index, int symmetry);
+}
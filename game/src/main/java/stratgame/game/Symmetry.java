@@ -0,0 +1,87 @@
+package stratgame.game;
+
+/**
+ * The eight symmetries of a square grid, i.e. its four rotations, each with or
+ * without a reflection, as permutations of its cells.  Cells are numbered row
+ * by row from {@code 0}, and symmetry {@code s} maps cell ({@code r}, {@code
+ * c}) by swapping {@code r} and {@code c} if bit 2 of {@code s} is set, then
+ * reversing the row order if bit 0 is set, and the column order if bit 1 is.
+ * Symmetry {@code 0} is thus the identity.
+ */
+public final class Symmetry {
+
+  /**
+   * The number of symmetries of a square grid.
+   */
+  public static final int COUNT = 8;
+
+  private Symmetry() { }
+
+  /**
+   * Returns, for every symmetry {@code s} of an {@code n}-by-{@code n} grid,
+   * the image of every cell under {@code s}.
+   */
+  public static int[][] cells(int n) {
+    final int[][] images = new int[COUNT][n * n];
+    for (int s = 0; s < COUNT; s++) {
+      for (int cell = 0; cell < n * n; cell++) {
+        int r = cell / n;
+        int c = cell % n;
+        if ((s & 4) != 0) {
+          final int t = r;
+          r = c;
+          c = t;
+        }
+        if ((s & 1) != 0) {
+          r = n - 1 - r;
+        }
+        if ((s & 2) != 0) {
+          c = n - 1 - c;
+        }
+        images[s][cell] = r * n + c;
+      }
+    }
+    return images;
+  }
+
+  /**
+   * Returns the inverse of every permutation in {@code images}.
+   */
+  public static int[][] inverses(int[][] images) {
+    final int[][] inverses = new int[images.length][];
+    for (int s = 0; s < images.length; s++) {
+      inverses[s] = new int[images[s].length];
+      for (int cell = 0; cell < images[s].length; cell++) {
+        inverses[s][images[s][cell]] = cell;
+      }
+    }
+    return inverses;
+  }
+
+  /**
+   * Returns the mask of the images, under {@code image}, of the cells in
+   * {@code mask}.
+   */
+  public static int permute(int mask, int[] image) {
+    int result = 0;
+    for (; mask != 0; mask &= mask - 1) {
+      result |= 1 << image[Integer.numberOfTrailingZeros(mask)];
+    }
+    return result;
+  }
+
+  /**
+   * Returns a well-mixed hash of {@code x}.  Distinct arguments always yield
+   * distinct hashes, so canonical images that are encoded in 64 bits or fewer
+   * can be hashed without collisions.
+   */
+  public static long mix(long x) {
+    // the finalizer of MurmurHash3
+    x ^= x >>> 33;
+    x *= 0xFF51AFD7ED558CCDL;
+    x ^= x >>> 33;
+    x *= 0xC4CEB9FE1A85EC53L;
+    x ^= x >>> 33;
+    return x;
+  }
+}
@@ -0,0 +1,34 @@
+package stratgame.game;
+
+import java.util.SplittableRandom;
+
+/**
+ * Source of the random keys behind <a
+ * href="https://en.wikipedia.org/wiki/Zobrist_hashing">Zobrist hashing</a>.
+ * <p>
+ * A {@link State} that supports hashing assigns one key to every (feature,
+ * value) pair that can describe it, e.g. "spot 4 holds an X", and maintains
+ * the {@code XOR} of the keys that currently apply.  Playing a move then only
+ * requires {@code XOR}ing in the handful of keys that the move toggles.
+ */
+public final class Zobrist {
+
+  private Zobrist() { }
+
+  /**
+   * Returns {@code count} pseudorandom, nonzero keys.  The same {@code seed}
+   * always yields the same keys, so that hashes are reproducible across runs.
+   */
+  public static long[] keys(int count, long seed) {
+    final SplittableRandom random = new SplittableRandom(seed);
+    final long[] keys = new long[count];
+    for (int i = 0; i < count; i++) {
+      long key;
+      do {
+        key = random.nextLong();
+      } while (key == 0L);
+      keys[i] = key;
+    }
+    return keys;
+  }
+}
@@ -0,0 +1,398 @@
+package stratgame.niya;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import stratgame.ai.ArrayTranspositionTable;
+import stratgame.ai.OffHeapTranspositionTable;
+import stratgame.ai.Replacement;
+import stratgame.ai.SearchContext;
+import stratgame.ai.SearchAlgorithm;
+import stratgame.ai.TranspositionTable;
+import stratgame.game.Benchmarks;
+import stratgame.game.Player;
+import stratgame.game.Symmetry;
+
+/**
+ * Prints search statistics for {@link SmartPlayer}, {@link StackPlayer} and
+ * {@link ProofPlayer} on a fixed Niya layout and on an equivalent one, and
+ * compares them with lookups in a {@link Tablebase} of that layout.
+ */
+public class Benchmark {
+
+  private static final int[] LAYOUT = new int[]{
+      7, 1, 15, 5,
+      13, 2, 9, 12,
+      0, 4, 8, 10,
+      11, 14, 3, 6
+    };
+
+  public static void main(String[] args) throws IOException {
+    algorithms();
+    lazySmp();
+    tables();
+    offHeap();
+    stack();
+    canonical();
+    warmStart();
+    proofNumbers();
+    tablebase();
+  }
+
+  /**
+   * Returns a {@code SmartPlayer} for {@code state} with a fresh table.
+   */
+  private static SmartPlayer player(NiyaState state) {
+    final SmartPlayer player = new SmartPlayer(state.currentColor());
+    player.transpositionTable(new ArrayTranspositionTable(1 << 20));
+    return player;
+  }
+
+  /**
+   * Searches the opening with each {@link SearchAlgorithm}, with and without
+   * aspiration windows, both to a fixed depth and to the end of the game.
+   */
+  private static void algorithms() {
+    System.out.println("== Algorithms: search opening ==");
+    System.out.println("algorithm   aspiration depth        ms       nodes  move");
+    player(new NiyaState(LAYOUT)).decide(new NiyaState(LAYOUT)); // warm up
+    for (int depth : new int[]{6, 10, Integer.MAX_VALUE}) {
+      for (SearchAlgorithm algorithm : SearchAlgorithm.values()) {
+        for (int aspiration : new int[]{0, 1}) {
+          if (algorithm == SearchAlgorithm.MTDF && aspiration > 0) {
+            continue;
+          }
+          final NiyaState state = new NiyaState(LAYOUT);
+          final SmartPlayer player = player(state);
+          player.algorithm(algorithm);
+          player.aspiration(aspiration);
+          if (depth != Integer.MAX_VALUE) {
+            player.maxDepth(depth);
+          }
+          final long start = System.nanoTime();
+          final NiyaMove move = player.decide(state);
+          final double ms = (System.nanoTime() - start) / 1e6;
+          System.out.printf("%-11s %10d %5s %9.1f %11d  %s%n", algorithm,
+              aspiration, depth == Integer.MAX_VALUE ? "all" : depth, ms,
+              player.nodes(), move);
+        }
+      }
+    }
+  }
+
+  /**
+   * Solves the opening with an increasing number of Lazy SMP threads.
+   */
+  private static void lazySmp() {
+    System.out.println("== Lazy SMP: solve opening, "
+        + Runtime.getRuntime().availableProcessors() + " core(s) ==");
+    System.out.println("threads        ms       nodes  speedup  move");
+    player(new NiyaState(LAYOUT)).decide(new NiyaState(LAYOUT)); // warm up
+    double base = 0;
+    for (int threads : Benchmarks.threadCounts()) {
+      final NiyaState state = new NiyaState(LAYOUT);
+      final SmartPlayer player = player(state);
+      player.helpers(threads - 1);
+      final long start = System.nanoTime();
+      final NiyaMove move = player.decide(state);
+      final double ms = (System.nanoTime() - start) / 1e6;
+      if (threads == 1) {
+        base = ms;
+      }
+      System.out.printf("%7d %9.1f %11d %8.2f  %s%n",
+          threads, ms, player.nodes(), base / ms, move);
+    }
+  }
+
+  /**
+   * Searches the opening to a fixed depth with a table too small to hold the
+   * whole search, in a few shapes and under each {@link Replacement} policy.
+   */
+  private static void tables() {
+    System.out.println("== Tables: search opening to depth 12 with 2^10 entries ==");
+    System.out.println("ways  replacement           ms       nodes  move");
+    for (int warm = 0; warm < 2; warm++) {
+      for (int ways : new int[]{1, 2, 4}) {
+        for (Replacement replacement : Replacement.values()) {
+          if (replacement == Replacement.TWO_TIER && ways < 2) {
+            continue;
+          }
+          final NiyaState state = new NiyaState(LAYOUT);
+          final SmartPlayer player = player(state);
+          player.transpositionTable(
+              new ArrayTranspositionTable(1 << 10, ways, replacement));
+          player.maxDepth(12);
+          final long start = System.nanoTime();
+          final NiyaMove move = player.decide(state);
+          final double ms = (System.nanoTime() - start) / 1e6;
+          if (warm == 1) {
+            System.out.printf("%4d  %-15s %9.1f %11d  %s%n",
+                ways, replacement, ms, player.nodes(), move);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Solves the opening with an on-heap table, a direct off-heap table and a
+   * memory-mapped one of the same size, and prints the off-heap tables' rates.
+   */
+  private static void offHeap() throws IOException {
+    System.out.println("== Off-heap tables: solve opening with 16 MiB ==");
+    System.out.println("table          ms       nodes    hits  collisions  overwrites");
+    final Path file = Files.createTempFile("niya", ".tt");
+    try {
+      final long bytes = OffHeapTranspositionTable.megabytes(16);
+      final TranspositionTable[] tables = {
+        new ArrayTranspositionTable((int) (bytes / 16), 4, Replacement.TWO_TIER),
+        new OffHeapTranspositionTable(bytes, 4, Replacement.TWO_TIER),
+        OffHeapTranspositionTable.mapped(file, bytes, 4, Replacement.TWO_TIER)
+      };
+      final String[] names = {"array", "direct", "mapped"};
+      for (int warm = 0; warm < 2; warm++) {
+        for (int i = 0; i < tables.length; i++) {
+          tables[i].clear();
+          final NiyaState state = new NiyaState(LAYOUT);
+          final SmartPlayer player = player(state);
+          player.transpositionTable(tables[i]);
+          final long start = System.nanoTime();
+          player.decide(state);
+          final double ms = (System.nanoTime() - start) / 1e6;
+          if (warm == 1 && tables[i] instanceof OffHeapTranspositionTable) {
+            final OffHeapTranspositionTable table = (OffHeapTranspositionTable) tables[i];
+            System.out.printf("%-8s %9.1f %11d %6.1f%% %10.1f%% %10.1f%%%n",
+                names[i], ms, player.nodes(), 100 * table.hitRate(),
+                100 * table.collisionRate(), 100 * table.overwriteRate());
+          } else if (warm == 1) {
+            System.out.printf("%-8s %9.1f %11d%n", names[i], ms, player.nodes());
+          }
+        }
+      }
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  /**
+   * Solves the opening with a serial {@link SmartPlayer} and a {@link
+   * StackPlayer}, after a first solve that warms up both, and counts the bytes
+   * that each allocates.
+   */
+  private static void stack() {
+    System.out.println("== Explicit stack: solve opening ==");
+    System.out.println("player             ms       nodes       bytes  move");
+    final SmartPlayer smart = player(new NiyaState(LAYOUT));
+    final StackPlayer stack = new StackPlayer(new NiyaState(LAYOUT).currentColor());
+    for (int warm = 0; warm < 2; warm++) {
+      smart.transpositionTable().clear();
+      stack.transpositionTable().clear();
+      solve("SmartPlayer", smart, warm == 1);
+      solve("StackPlayer", stack, warm == 1);
+    }
+  }
+
+  /**
+   * Solves the opening and then the opening of an equivalent layout (turned
+   * a quarter, with plants and poems swapped) with one table, with Zobrist and
+   * then canonical keys, and counts the entries left in the table.
+   */
+  private static void canonical() {
+    System.out.println("== Canonical keys: solve opening, then an equivalent one ==");
+    System.out.println("keys         first ms  second ms  second nodes   entries");
+    final int[] cells = Symmetry.cells(4)[5];
+    final int[] turned = new int[16];
+    for (int i = 0; i < 16; i++) {
+      turned[cells[i]] = ((LAYOUT[i] & 3) << 2) + (LAYOUT[i] >> 2);
+    }
+    for (int warm = 0; warm < 2; warm++) {
+      for (boolean canonical : new boolean[]{false, true}) {
+        final SmartPlayer player = player(new NiyaState(LAYOUT));
+        player.canonical(canonical);
+        long start = System.nanoTime();
+        player.decide(new NiyaState(LAYOUT));
+        final double first = (System.nanoTime() - start) / 1e6;
+        start = System.nanoTime();
+        player.decide(new NiyaState(turned));
+        final double second = (System.nanoTime() - start) / 1e6;
+        if (warm == 1) {
+          System.out.printf("%-11s %9.1f %10.1f %13d %9d%n",
+              canonical ? "canonical" : "zobrist", first, second, player.nodes(),
+              ((ArrayTranspositionTable) player.transpositionTable()).occupancy());
+        }
+      }
+    }
+  }
+
+  /**
+   * Plays whole matches between two canonical {@code SmartPlayers}: with a
+   * table each, sharing a {@link SearchContext}, and sharing a context
+   * reloaded from a snapshot of the previous one, on the same layout and on
+   * an equivalent one.
+   */
+  private static void warmStart() throws IOException {
+    System.out.println("== Warm start: play a whole match ==");
+    System.out.println("tables             red 1st ms  black 1st ms   match ms");
+    final int[] cells = Symmetry.cells(4)[5];
+    final int[] turned = new int[16];
+    for (int i = 0; i < 16; i++) {
+      turned[cells[i]] = ((LAYOUT[i] & 3) << 2) + (LAYOUT[i] >> 2);
+    }
+    final Path file = Files.createTempFile("niya", ".tt");
+    try {
+      for (int warm = 0; warm < 2; warm++) {
+        final SmartPlayer red = player(new NiyaState(LAYOUT));
+        final SmartPlayer black = new SmartPlayer(Color.BLACK);
+        black.transpositionTable(new ArrayTranspositionTable(1 << 20));
+        red.canonical(true);
+        black.canonical(true);
+        match("separate", LAYOUT, red, black, warm == 1);
+        final SearchContext context = new SearchContext(
+            new ArrayTranspositionTable(1 << 20, 4, Replacement.TWO_TIER));
+        context.share(red, black);
+        match("shared", LAYOUT, red, black, warm == 1);
+        context.table().save(file);
+        SearchContext.open(file, 1 << 20).share(red, black);
+        match("reloaded", LAYOUT, red, black, warm == 1);
+        SearchContext.open(file, 1 << 20).share(red, black);
+        match("reloaded, turned", turned, red, black, warm == 1);
+      }
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  /**
+   * Proves the outcome of the opening with a serial {@link SmartPlayer} and
+   * with a {@link ProofPlayer}, after a first proof that warms up both.
+   */
+  private static void proofNumbers() {
+    System.out.println("== Proof-number search: solve opening ==");
+    System.out.println("player             ms       nodes     nodes/s  outcome       pn          dn");
+    final SmartPlayer smart = player(new NiyaState(LAYOUT));
+    final ProofPlayer proof = new ProofPlayer(new NiyaState(LAYOUT).currentColor());
+    for (int warm = 0; warm < 2; warm++) {
+      smart.transpositionTable().clear();
+      proof.clear();
+      long start = System.nanoTime();
+      smart.decide(new NiyaState(LAYOUT));
+      double ms = (System.nanoTime() - start) / 1e6;
+      if (warm == 1) {
+        System.out.printf("%-12s %9.1f %11d %11.0f%n", "SmartPlayer", ms,
+            smart.nodes(), smart.nodes() / (ms / 1e3));
+      }
+      start = System.nanoTime();
+      proof.decide(new NiyaState(LAYOUT));
+      ms = (System.nanoTime() - start) / 1e6;
+      if (warm == 1) {
+        System.out.printf("%-12s %9.1f %11d %11.0f  %-7s %10d %11d%n", "ProofPlayer",
+            ms, proof.nodes(), proof.nodes() / (ms / 1e3), proof.outcome(),
+            proof.proofNumber(), proof.disproofNumber());
+      }
+    }
+  }
+
+  /**
+   * Solves every position of the layout into a {@link Tablebase}, saves it,
+   * maps it back, then plays a match between two {@link TablebasePlayer
+   * TablebasePlayers} and one between two serial {@link SmartPlayer
+   * SmartPlayers}, timing each move.
+   */
+  private static void tablebase() throws IOException {
+    System.out.println("== Tablebase: solve every position, then play a match ==");
+    final Path file = Files.createTempFile("niya", ".tb");
+    try {
+      long start = System.nanoTime();
+      Tablebase.solve(LAYOUT).save(file);
+      final double solveMs = (System.nanoTime() - start) / 1e6;
+      start = System.nanoTime();
+      final Tablebase tablebase = Tablebase.map(file);
+      final double mapMs = (System.nanoTime() - start) / 1e6;
+      System.out.printf("%d positions, %d bytes: solve and save %.1f ms, map %.1f ms%n",
+          tablebase.size(), Files.size(file), solveMs, mapMs);
+      System.out.println("player          moves   mean us/move    max us/move");
+      final TablebasePlayer lookup = new TablebasePlayer(tablebase);
+      final SmartPlayer red = player(new NiyaState(LAYOUT));
+      final SmartPlayer black = new SmartPlayer(Color.BLACK);
+      black.transpositionTable(new ArrayTranspositionTable(1 << 20));
+      for (int warm = 0; warm < 2; warm++) {
+        timeMatch("TablebasePlayer", lookup, lookup, warm == 1);
+        red.transpositionTable().clear();
+        black.transpositionTable().clear();
+        timeMatch("SmartPlayer", red, black, warm == 1);
+      }
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  /**
+   * Plays a match on the layout between {@code red} and {@code black},
+   * printing the mean and greatest time per move if {@code print}.
+   */
+  private static void timeMatch(String name, Player<NiyaMove> red,
+      Player<NiyaMove> black, boolean print) {
+    final NiyaState state = new NiyaState(LAYOUT);
+    double total = 0;
+    double max = 0;
+    while (!state.isOver()) {
+      final long start = System.nanoTime();
+      final NiyaMove move = (state.movesMade() & 1) == 0
+          ? red.decide(state.clone()) : black.decide(state.clone());
+      final double us = (System.nanoTime() - start) / 1e3;
+      total += us;
+      max = Math.max(max, us);
+      state.makeMove(move);
+    }
+    if (print) {
+      System.out.printf("%-15s %5d %14.1f %14.1f%n", name, state.movesMade(),
+          total / state.movesMade(), max);
+    }
+  }
+
+  /**
+   * Plays a match on {@code layout} between {@code red} and {@code black},
+   * printing the time of each player's first move and of the whole match if
+   * {@code print}.
+   */
+  private static void match(String name, int[] layout, SmartPlayer red,
+      SmartPlayer black, boolean print) {
+    final NiyaState state = new NiyaState(layout);
+    final double[] first = new double[2];
+    final long start = System.nanoTime();
+    while (!state.isOver()) {
+      final long move = System.nanoTime();
+      state.makeMove((state.movesMade() & 1) == 0 ? red.decide(state.clone())
+          : black.decide(state.clone()));
+      if (state.movesMade() <= 2) {
+        first[state.movesMade() - 1] = (System.nanoTime() - move) / 1e6;
+      }
+    }
+    final double ms = (System.nanoTime() - start) / 1e6;
+    if (print) {
+      System.out.printf("%-17s %11.1f %13.1f %10.1f%n", name, first[0], first[1], ms);
+    }
+  }
+
+  /**
+   * Solves the opening with {@code player}, printing the results if {@code
+   * print}.
+   */
+  private static void solve(String name, Player<NiyaMove> player, boolean print) {
+    final com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    final long thread = Thread.currentThread().getId();
+    final NiyaState state = new NiyaState(LAYOUT);
+    final long bytes = threads.getThreadAllocatedBytes(thread);
+    final long start = System.nanoTime();
+    final NiyaMove move = player.decide(state);
+    final double ms = (System.nanoTime() - start) / 1e6;
+    final long allocated = threads.getThreadAllocatedBytes(thread) - bytes;
+    final long nodes = player instanceof SmartPlayer ? ((SmartPlayer) player).nodes()
+        : ((StackPlayer) player).nodes();
+    if (print) {
+      System.out.printf("%-12s %9.1f %11d %11d  %s%n", name, ms, nodes, allocated, move);
+    }
+  }
+}
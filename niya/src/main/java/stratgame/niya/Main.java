@@ -1,10 +1,38 @@
 package stratgame.niya;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+import stratgame.ai.SearchContext;
+
 public class Main {
 
-  public static void main(String[] args) {
-    final Niya niya = new Niya(new SmartPlayer(Color.RED), new SmartPlayer(Color.BLACK));
+  /**
+   * Plays a match between two {@link SmartPlayer SmartPlayers}, which search
+   * root moves in parallel on multi-core machines.  If given a file name, the
+   * players share a {@link SearchContext} that is loaded from that file, if it
+   * exists, and saved back to it after the match.
+   */
+  public static void main(String[] args) throws IOException {
+    final SmartPlayer red = new SmartPlayer(Color.RED);
+    final SmartPlayer black = new SmartPlayer(Color.BLACK);
+    if (Runtime.getRuntime().availableProcessors() > 1) {
+      red.forkJoinPool(ForkJoinPool.commonPool());
+      black.forkJoinPool(ForkJoinPool.commonPool());
+    }
+    final SearchContext context = args.length > 0
+        ? SearchContext.open(Paths.get(args[0]), 1 << 20) : null;
+    if (context != null) {
+      // equivalent layouts then reuse each other's results
+      red.canonical(true);
+      black.canonical(true);
+      context.share(red, black);
+    }
+    final Niya niya = new Niya(red, black);
     niya.start();
     System.out.println(niya.winner());
+    if (context != null) {
+      context.snapshot();
+    }
   }
 }
@@ -25,6 +25,9 @@ enum NiyaMove {
   final int row;
   final int col;
 
+  // values() returns a fresh copy on every call, so cache one for from()
+  private static final NiyaMove[] VALUES = values();
+
   NiyaMove(int row, int col) {
     this.row = row;
     this.col = col;
@@ -34,6 +37,6 @@ enum NiyaMove {
     if ((row & 3) != row || (col & 3) != col) {
       throw new IllegalArgumentException("row, col must be in 0..=3");
     }
-    return NiyaMove.values()[(row << 2) + col];
+    return VALUES[(row << 2) + col];
   }
 }
@@ -0,0 +1,16 @@
+package stratgame.niya;
+
+import stratgame.ai.MoveOrderer;
+
+/**
+ * {@link MoveOrderer} for {@code NiyaStates} that searches moves which
+ * complete a line first, then moves by ascending number of replies left to the
+ * opponent.
+ */
+public class NiyaOrderer implements MoveOrderer<NiyaMove, NiyaState> {
+
+  @Override
+  public int priority(NiyaState state, NiyaMove move) {
+    return state.completesLine(move) ? 16 : -state.replies(move);
+  }
+}
@@ -1,18 +1,30 @@
 package stratgame.niya;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import stratgame.game.State;
+import stratgame.game.Symmetric;
+import stratgame.game.Symmetry;
+import stratgame.game.Zobrist;
 
 /**
  * Context that manages the state of a Niya game instance.  Once a {@code
  * NiyaState} instance is initialized, mutability of its fields is only offered
- * via calls to either {@link #makeMove(NiyaMove)} or {@link #reset()}.
+ * via calls to {@link #makeMove(NiyaMove)}, {@link #unmakeMove()}, or {@link
+ * #reset()}.
  * <p>
- * A 1D array of {@link Spot Spots}, {@code board}, represents the 2D grid.
- * {@code board} index {@code idx} maps to the (zero-indexed) grid row {@code
- * idx / 4} and grid column {@code idx % 4}.
+ * The tiles never move, so everything about them lives in an immutable {@code
+ * Layout} that every copy of a {@code NiyaState} shares: a 1D array of
+ * {@link Spot Spots}, whose index {@code idx} maps to the (zero-indexed) grid
+ * row {@code idx / 4} and grid column {@code idx % 4}, and, for every index,
+ * the 16-bit mask of the indices whose tiles share its plant or poem.
+ * Everything that changes during a match fits in a few primitive fields: the
+ * indices marked by each color are 16-bit masks, {@code red} and {@code
+ * black}, and the indices that may be played next are another, {@code legal}.
+ * After the first move, {@code legal} is simply the mask of the previous
+ * index with both colors removed.
  * <p>
  * Some nontrivial hackery is used to quickly determine if a win condition has
  * been met.  The basic idea is that every time we mark a spot, we can increment
@@ -53,16 +65,59 @@ import stratgame.game.State;
  * none of our bit triples exceeds 4 in value, checking for a win is as simple
  * as masking {@code cache} against {@code 0000000100100100...100100} and
  * receiving a nonzero result.
+ * <p>
+ * A single {@code long}, {@code key}, is the {@link Zobrist} hash of the match.
+ * It covers the tile layout (so that matches on different layouts hash
+ * independently), every (spot, {@code Color}) pair, and the tile
+ * selected in the previous turn.
+ * <p>
+ * A single {@code long}, {@code history}, records the board index of
+ * every move played so far (4 bits each, oldest move rightmost) so that {@link
+ * #unmakeMove()} can revert them.
+ * <p>
+ * Only whether two tiles share a plant or a poem matters to the rules, so
+ * layouts are also equivalent under any relabeling of the plants, of the
+ * poems, or of both at once, and under swapping plants with poems.  Each
+ * {@code Layout} therefore encodes, for every {@link Symmetry} of the board,
+ * the image of its tiles with each attribute relabeled in order of first
+ * appearance, and keeps the least such encoding, along with the symmetries
+ * that attain it.  The canonical image of a {@code NiyaState} is, among its
+ * images under those symmetries, the one whose hash is least.
  */
-public class NiyaState implements State<NiyaMove> {
+public class NiyaState implements State<NiyaMove>, Symmetric {
 
-  private Spot[] board; // match state
-  private Spot previous; // (possibly null) Spot selected in previous turn
+  private Layout layout; // shared tiles
+  private int red; // indices marked by red
+  private int black; // indices marked by black
+  private int legal; // indices playable on current turn
+  private int previous; // index selected in previous turn, -1 if none
   private int movesMade; // moves made so far
   private Color winner; // winner as of current turn
-  private List<NiyaMove> validMoves; // valid moves on current turn
   private long redCache; // accelerates red win determination
   private long blackCache; // accelerates black win determination
+  private long key; // Zobrist hash of match state
+  private long history; // board indices played so far
+  private int symmetry; // symmetry found by canonicalKey
+
+  private static final long[] ZOBRIST = Zobrist.keys(16 * 16 + 16 * 2 + 16, 0x4E4EL);
+  private static final int COLOR_KEYS = 16 * 16; // offset of (spot, color) keys
+  private static final int PREVIOUS_KEYS = COLOR_KEYS + 16 * 2; // offset of previous keys
+
+  private static final int EDGES = 0xF99F; // indices playable on the first turn
+
+  private static final int[][] CELLS = Symmetry.cells(4);
+  private static final int[][] INVERSES = Symmetry.inverses(CELLS);
+  private static final int[][] LOW_BYTES = new int[Symmetry.COUNT][1 << 8];
+  private static final int[][] HIGH_BYTES = new int[Symmetry.COUNT][1 << 8];
+
+  static {
+    for (int s = 0; s < Symmetry.COUNT; s++) {
+      for (int mask = 0; mask < 1 << 8; mask++) {
+        LOW_BYTES[s][mask] = Symmetry.permute(mask, CELLS[s]);
+        HIGH_BYTES[s][mask] = Symmetry.permute(mask << 8, CELLS[s]);
+      }
+    }
+  }
 
   private static final long[] INCREMENTS = new long[]{
       0x41001001L, 0x240008001L, 0x1200040001L, 0x1008200001L,
@@ -71,6 +126,12 @@ public class NiyaState implements State<NiyaMove> {
       0x1000008001200L, 0x9000000008200L, 0x48000000040200L, 0x40000001200200L
     };
 
+  /**
+   * The list of moves for every mask of playable indices, built on demand.
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static final List<NiyaMove>[] MOVE_LISTS = new List[1 << 16];
+
   /**
    * The {@code Color} that should move in the current turn.
    */
@@ -92,28 +153,36 @@ public class NiyaState implements State<NiyaMove> {
   public int movesMade() { return movesMade; }
 
   /**
-   * The list of {@code Moves} that can be made in the current turn.
+   * The list of {@code Moves} that can be made in the current turn.  The list
+   * is immutable, and shared by every state with the same moves.
    */
-  public List<NiyaMove> validMoves() { return validMoves; }
+  public List<NiyaMove> validMoves() {
+    List<NiyaMove> result = MOVE_LISTS[legal];
+    if (result == null) {
+      final NiyaMove[] moves = new NiyaMove[Integer.bitCount(legal)];
+      for (int mask = legal, i = 0; mask != 0; mask &= mask - 1) {
+        final int idx = Integer.numberOfTrailingZeros(mask);
+        moves[i++] = NiyaMove.from(idx >> 2, idx & 3);
+      }
+      // racing threads build equal lists, so either may be kept
+      result = Collections.unmodifiableList(Arrays.asList(moves));
+      MOVE_LISTS[legal] = result;
+    }
+    return result;
+  }
 
   /**
-   * Constructs a new {@code NiyaState} initialized with a copy of the entries,
-   * sans color, in {@code initialState}.
+   * Constructs a new {@code NiyaState} on the tiles in {@code initialState}.
    */
   NiyaState(Spot[] initialState) {
-    previous = null;
+    layout = new Layout(initialState);
+    previous = -1;
     movesMade = 0;
     winner = Color.NONE;
-    board = new Spot[16];
-    for (int i = 0; i < 16; i++) {
-      board[i] = new Spot(initialState[i]);
-      board[i].color = Color.NONE;
-    }
-    board = initialState;
     redCache = 0L;
     blackCache = 0L;
-    // The number of valid moves will never exceed 12
-    validMoves = new ArrayList<>(12);
+    key = layout.key;
+    history = 0L;
     updateValidMoves();
   }
 
@@ -137,18 +206,17 @@ public class NiyaState implements State<NiyaMove> {
    * Copy constructor.
    */
   public NiyaState(NiyaState s) {
-    board = new Spot[s.board.length];
-    for (int i = 0; i < board.length; i++) {
-      board[i] = new Spot(s.board[i]);
-    }
+    layout = s.layout;
+    red = s.red;
+    black = s.black;
+    legal = s.legal;
     redCache = s.redCache;
     blackCache = s.blackCache;
+    key = s.key;
+    history = s.history;
     previous = s.previous;
     movesMade = s.movesMade;
     winner = s.winner;
-    List<NiyaMove> moves = new ArrayList<>(12);
-    moves.addAll(s.validMoves);
-    validMoves = moves;
   }
 
   private static Spot[] intsToSpots(int[] initialState) {
@@ -162,7 +230,7 @@ public class NiyaState implements State<NiyaMove> {
             throw new IllegalArgumentException("initialState cannot have duplicates");
           }
           tmp[i] = true;
-          spots[idx] = new Spot(i);
+          spots[idx] = Spot.of(i);
         } catch (ArrayIndexOutOfBoundsException e) {
           throw new IllegalArgumentException("initialState element must be in 0..=15");
         }
@@ -173,10 +241,63 @@ public class NiyaState implements State<NiyaMove> {
     return spots;
   }
 
+  @Override
+  public long zobristKey() {
+    return key;
+  }
+
+  @Override
+  public long canonicalKey() {
+    long best = 0L;
+    for (int rest = layout.symmetries; rest != 0; rest &= rest - 1) {
+      final int s = Integer.numberOfTrailingZeros(rest);
+      final long image = permute(red, s) | (long) permute(black, s) << 16
+          | (long) (previous < 0 ? 16 : CELLS[s][previous]) << 32;
+      final long hash = Symmetry.mix(layout.canonical + Symmetry.mix(image));
+      if (rest == layout.symmetries || Long.compareUnsigned(hash, best) < 0) {
+        best = hash;
+        symmetry = s;
+      }
+    }
+    return best;
+  }
+
+  @Override
+  public int canonicalSymmetry() {
+    return symmetry;
+  }
+
+  @Override
+  public int toCanonical(int index, int symmetry) {
+    int rest = legal;
+    for (int i = 0; i < index; i++) {
+      rest &= rest - 1;
+    }
+    final int cell = CELLS[symmetry][Integer.numberOfTrailingZeros(rest)];
+    return Integer.bitCount(permute(legal, symmetry) & ((1 << cell) - 1));
+  }
+
+  @Override
+  public int fromCanonical(int index, int symmetry) {
+    int rest = permute(legal, symmetry);
+    for (int i = 0; i < index; i++) {
+      rest &= rest - 1;
+    }
+    final int cell = INVERSES[symmetry][Integer.numberOfTrailingZeros(rest)];
+    return Integer.bitCount(legal & ((1 << cell) - 1));
+  }
+
+  /**
+   * Returns the mask of the images, under symmetry {@code s}, of the indices
+   * in the 16-bit {@code mask}.
+   */
+  private static int permute(int mask, int s) {
+    return LOW_BYTES[s][mask & 0xFF] | HIGH_BYTES[s][mask >>> 8];
+  }
+
   /**
-   * Projects {@code row} and {@code col} to the single-dimensional {@code
-   * this.board} index.  Assumes {@code row} and {@code col} are each in the
-   * range 0..=3.
+   * Projects {@code row} and {@code col} to the single-dimensional board
+   * index.  Assumes {@code row} and {@code col} are each in the range 0..=3.
    */
   private static int project(int row, int col) {
     return (row << 2) + col;
@@ -193,32 +314,43 @@ public class NiyaState implements State<NiyaMove> {
    * Returns the {@code Spot} at grid position ({@code row}, {@code col}).
    */
   public Spot getSpot(int row, int col) {
-    return getSpot(project(row,col));
+    return layout.tiles[project(row,col)];
   }
 
   /**
-   * Returns the {@code Spot} at {@code board } index {@code idx}.
+   * Returns the {@code Color} that marked grid position ({@code row}, {@code
+   * col}), {@code NONE} if neither has.
    */
-  private Spot getSpot(int idx) {
-    return board[idx];
+  public Color getColor(int row, int col) {
+    final int bit = 1 << project(row,col);
+    return (red & bit) != 0 ? Color.RED :
+        (black & bit) != 0 ? Color.BLACK : Color.NONE;
   }
 
   @Override
   public boolean makeMove(NiyaMove m) {
-    if (validateDecision(m)) {
-      final Spot s = getSpot(m);
-      s.color = currentColor();
+    final int idx = project(m.row,m.col);
+    if ((legal & (1 << idx)) != 0) {
       long cache;
       if (currentColor() == Color.RED) {
-        redCache += INCREMENTS[project(m.row,m.col)];
+        red |= 1 << idx;
+        redCache += INCREMENTS[idx];
         cache = redCache;
+        key ^= ZOBRIST[COLOR_KEYS + (idx << 1)];
       } else {
-        blackCache += INCREMENTS[project(m.row,m.col)];
+        black |= 1 << idx;
+        blackCache += INCREMENTS[idx];
         cache = blackCache;
+        key ^= ZOBRIST[COLOR_KEYS + (idx << 1) + 1];
+      }
+      if (previous >= 0) {
+        key ^= ZOBRIST[PREVIOUS_KEYS + layout.tiles[previous].idx];
       }
+      key ^= ZOBRIST[PREVIOUS_KEYS + layout.tiles[idx].idx];
       checkStrictWinner(cache);
+      history |= (long) idx << (movesMade << 2);
       movesMade++;
-      previous = s;
+      previous = idx;
       updateValidMoves();
       return true;
     }
@@ -229,21 +361,76 @@ public class NiyaState implements State<NiyaMove> {
     return makeMove(NiyaMove.from(row, col));
   }
 
+  @Override
+  public boolean unmakeMove() {
+    if (movesMade == 0) {
+      return false;
+    }
+    movesMade--;
+    final int idx = (int) (history >>> (movesMade << 2)) & 0xF;
+    history &= ~(0xFL << (movesMade << 2));
+    if (currentColor() == Color.RED) {
+      red &= ~(1 << idx);
+      redCache -= INCREMENTS[idx];
+      key ^= ZOBRIST[COLOR_KEYS + (idx << 1)];
+    } else {
+      black &= ~(1 << idx);
+      blackCache -= INCREMENTS[idx];
+      key ^= ZOBRIST[COLOR_KEYS + (idx << 1) + 1];
+    }
+    key ^= ZOBRIST[PREVIOUS_KEYS + layout.tiles[idx].idx];
+    if (movesMade > 0) {
+      previous = (int) (history >>> ((movesMade - 1) << 2)) & 0xF;
+      key ^= ZOBRIST[PREVIOUS_KEYS + layout.tiles[previous].idx];
+    } else {
+      previous = -1;
+    }
+    winner = Color.NONE;
+    updateValidMoves();
+    return true;
+  }
+
   @Override
   public boolean isOver() {
     return winner != Color.NONE || !hasRemaining();
   }
 
   /**
-   * Returns whether {@code m} is a valid move in this turn.
+   * Returns whether playing the valid move {@code m} would complete a row,
+   * column, diagonal, or square for the current player.
+   */
+  boolean completesLine(NiyaMove m) {
+    final long cache = currentColor() == Color.RED ? redCache : blackCache;
+    return ((cache + INCREMENTS[project(m.row,m.col)]) & 0x124924924924924L) != 0L;
+  }
+
+  /**
+   * Returns the number of moves that the opponent could reply with if the
+   * valid move {@code m} were played.
+   */
+  int replies(NiyaMove m) {
+    return Integer.bitCount(layout.matches[project(m.row,m.col)] & ~(red | black));
+  }
+
+  /**
+   * Returns everything about this match but its layout in 36 bits: the
+   * indices marked by red, then those marked by black, then the index
+   * selected in the previous turn, {@code 0xF} before the first move (when no
+   * other position has both masks empty).
    */
-  private boolean validateDecision(NiyaMove m) {
-    if (previous == null) {
-      return (m.row * m.col) % 3 == 0;
+  long position() {
+    return (long) red << 20 | black << 4 | (previous & 0xF);
+  }
+
+  /**
+   * Returns the tile at every board index, as given to the constructor.
+   */
+  int[] layout() {
+    final int[] result = new int[16];
+    for (int i = 0; i < 16; i++) {
+      result[i] = layout.tiles[i].idx;
     }
-    final Spot s = getSpot(m.row, m.col);
-    return s.color == Color.NONE &&
-      (s.plant == previous.plant || s.poem == previous.poem);
+    return result;
   }
 
   /**
@@ -262,21 +449,15 @@ public class NiyaState implements State<NiyaMove> {
   }
 
   /**
-   * Updates {@code validMoves} for this turn, updating {@code winner} if no
-   * moves remain but uncolored {@code Spots} do.
+   * Updates {@code legal} for this turn, updating {@code winner} if no moves
+   * remain but uncolored {@code Spots} do.
    */
   private void updateValidMoves() {
-    validMoves.clear();
-    if (hasRemaining()) {
-      for (int i = 0; i < 4; i++) {
-        for (int j = 0; j < 4; j++) {
-          final NiyaMove m = NiyaMove.from(i,j);
-          if (validateDecision(m)) {
-            validMoves.add(m);
-          }
-        }
-      }
-      if (validMoves.isEmpty()) {
+    if (!hasRemaining()) {
+      legal = 0;
+    } else {
+      legal = (previous < 0 ? EDGES : layout.matches[previous]) & ~(red | black);
+      if (legal == 0) {
         winner = otherColor();
       }
     }
@@ -284,19 +465,22 @@ public class NiyaState implements State<NiyaMove> {
 
   void reset() {
     final LinkedList<Spot> list = new LinkedList<>();
-    for (int i = 0; i < 4; i++) {
-      for (int j = 0; j < 4; j++) {
-        list.add(new Spot(i,j));
-      }
+    for (int i = 0; i < 16; i++) {
+      list.add(Spot.of(i));
     }
     // Shuffle spots
-    board = new Spot[16];
-    for (int i = 0; i < board.length; i++) {
-      board[i] = list.remove((int) (Math.random() * list.size()));
+    final Spot[] tiles = new Spot[16];
+    for (int i = 0; i < tiles.length; i++) {
+      tiles[i] = list.remove((int) (Math.random() * list.size()));
     }
+    layout = new Layout(tiles);
+    red = 0;
+    black = 0;
     redCache = 0L;
     blackCache = 0L;
-    previous = null;
+    key = layout.key;
+    history = 0L;
+    previous = -1;
     movesMade = 0;
     updateValidMoves();
     winner = Color.NONE;
@@ -317,7 +501,7 @@ public class NiyaState implements State<NiyaMove> {
   public void debug() {
     for (int i = 0; i < 4; i++) {
       for (int j = 0; j < 4; j++) {
-        String temp = getSpot(i,j).color.toString().substring(0,1);
+        String temp = getColor(i,j).toString().substring(0,1);
         if ("N".equals(temp)) temp = "_";
         System.out.print(temp);
       }
@@ -325,4 +509,96 @@ public class NiyaState implements State<NiyaMove> {
     }
     System.out.println("---");
   }
+
+  /**
+   * The tiles of a match, which never change once it begins.
+   */
+  private static final class Layout {
+
+    /**
+     * The tile at every board index.
+     */
+    final Spot[] tiles;
+
+    /**
+     * The mask of the other board indices whose tiles share a plant or a poem
+     * with the tile at every board index.
+     */
+    final int[] matches;
+
+    /**
+     * The {@code XOR} of the keys that describe the tile layout alone.
+     */
+    final long key;
+
+    /**
+     * The hash of the least relabeled encoding of every image of the tiles.
+     */
+    final long canonical;
+
+    /**
+     * The mask of the symmetries whose images attain that encoding.
+     */
+    final int symmetries;
+
+    Layout(Spot[] tiles) {
+      this.tiles = tiles.clone();
+      this.matches = new int[16];
+      long key = 0L;
+      for (int i = 0; i < 16; i++) {
+        for (int j = 0; j < 16; j++) {
+          if (i != j && this.tiles[i].matches(this.tiles[j])) {
+            matches[i] |= 1 << j;
+          }
+        }
+        key ^= ZOBRIST[(i << 4) + this.tiles[i].idx];
+      }
+      this.key = key;
+      long least = -1L;
+      int symmetries = 0;
+      for (int s = 0; s < Symmetry.COUNT; s++) {
+        for (int swap = 0; swap < 2; swap++) {
+          final long encoding = encode(s, swap != 0);
+          final int order = Long.compareUnsigned(encoding, least);
+          if (order < 0) {
+            least = encoding;
+            symmetries = 0;
+          }
+          if (order <= 0) {
+            symmetries |= 1 << s;
+          }
+        }
+      }
+      this.canonical = Symmetry.mix(least);
+      this.symmetries = symmetries;
+    }
+
+    /**
+     * Returns the image of the tiles under symmetry {@code s}, with plants and
+     * poems swapped if {@code swap}, then each relabeled in order of first
+     * appearance, as 4 bits per index with index {@code 0} leftmost.
+     */
+    private long encode(int s, boolean swap) {
+      final int[] first = new int[4];
+      final int[] second = new int[4];
+      Arrays.fill(first, -1);
+      Arrays.fill(second, -1);
+      int firsts = 0;
+      int seconds = 0;
+      long encoding = 0L;
+      for (int cell = 0; cell < 16; cell++) {
+        final int idx = tiles[INVERSES[s][cell]].idx;
+        final int a = swap ? idx & 3 : idx >> 2;
+        final int b = swap ? idx >> 2 : idx & 3;
+        if (first[a] < 0) {
+          first[a] = firsts++;
+        }
+        if (second[b] < 0) {
+          second[b] = seconds++;
+        }
+        encoding = (encoding << 4) | (first[a] << 2) | second[b];
+      }
+      return encoding;
+    }
+  }
 }
@@ -0,0 +1,25 @@
+package stratgame.niya;
+
+import stratgame.ai.ProofNumberPlayer;
+
+/**
+ * {@link ProofNumberPlayer} for {@code NiyaStates}, which proves whether the
+ * player to move wins, draws or loses.
+ */
+public class ProofPlayer extends ProofNumberPlayer<NiyaMove, Color, NiyaState> {
+
+  /**
+   * Constructs a new {@code ProofPlayer} with color {@code color}.
+   */
+  public ProofPlayer(Color color) {
+    if (color == Color.NONE) {
+      throw new IllegalArgumentException("Player color cannot be NONE");
+    }
+    this.piece = color;
+  }
+
+  @Override
+  public int terminalValue(NiyaState s) {
+    return s.winner() == Color.NONE ? 0 : s.winner() == piece ? 1 : -1;
+  }
+}
@@ -1,5 +1,6 @@
 package stratgame.niya;
 
+import stratgame.ai.ArrayTranspositionTable;
 import stratgame.ai.NegamaxPlayer;
 
 /**
@@ -26,6 +27,10 @@ public class SmartPlayer extends NegamaxPlayer<NiyaMove, Color, NiyaState> {
       throw new IllegalArgumentException("Player color cannot be NONE");
     }
     this.piece = color;
+    transpositionTable(new ArrayTranspositionTable(1 << 20));
+    inPlace(true);
+    ordering(true);
+    moveOrderer(new NiyaOrderer());
   }
 
   @Override
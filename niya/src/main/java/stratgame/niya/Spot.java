@@ -1,31 +1,44 @@
 package stratgame.niya;
 
-class Spot {
+/**
+ * Immutable tile of a Niya layout.  There are only 16 distinct tiles, so
+ * every layout shares the instances returned by {@link #of(int)}.
+ */
+final class Spot {
 
   enum Plant { MAPLE, CHERRY, PINE, IRIS }
   enum Poem { SUN, BIRD, RAIN, PAPER }
 
+  private static final Spot[] TILES = new Spot[16];
+
+  static {
+    for (int idx = 0; idx < 16; idx++) {
+      TILES[idx] = new Spot(idx >> 2, idx & 3);
+    }
+  }
+
   final Plant plant;
   final Poem poem;
-  private final int idx;
-  Color color;
+  final int idx;
 
-  Spot(int plant, int poem) {
+  private Spot(int plant, int poem) {
     this.plant = Plant.values()[plant];
     this.poem = Poem.values()[poem];
     idx = (plant << 2) + poem;
-    this.color = Color.NONE;
   }
 
-  Spot(int idx) {
-    this(idx >> 2, idx & 3);
+  /**
+   * Returns the tile with plant {@code idx >> 2} and poem {@code idx & 3}.
+   */
+  static Spot of(int idx) {
+    return TILES[idx];
   }
 
-  Spot(Spot s) {
-    this.plant = s.plant;
-    this.poem = s.poem;
-    this.color = s.color;
-    this.idx = s.idx;
+  /**
+   * Returns whether this tile shares a plant or a poem with {@code other}.
+   */
+  boolean matches(Spot other) {
+    return plant == other.plant || poem == other.poem;
   }
 
   @Override
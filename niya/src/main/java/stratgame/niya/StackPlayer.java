@@ -0,0 +1,32 @@
+package stratgame.niya;
+
+import stratgame.ai.ArrayTranspositionTable;
+import stratgame.ai.StackNegamaxPlayer;
+
+/**
+ * {@link StackNegamaxPlayer} for {@code NiyaStates}, which searches and
+ * evaluates positions exactly as a serial {@link SmartPlayer} does.
+ */
+public class StackPlayer extends StackNegamaxPlayer<NiyaMove, Color, NiyaState> {
+
+  /**
+   * Constructs a new {@code StackPlayer} with color {@code color}.
+   */
+  public StackPlayer(Color color) {
+    if (color == Color.NONE) {
+      throw new IllegalArgumentException("Player color cannot be NONE");
+    }
+    this.piece = color;
+    transpositionTable(new ArrayTranspositionTable(1 << 20));
+    ordering(true);
+    moveOrderer(new NiyaOrderer());
+  }
+
+  @Override
+  public int terminalValue(NiyaState s) {
+    final int val = 16 - s.movesMade() + 1;
+    return s.winner() == Color.NONE ? 0 :
+        s.winner() == piece ?
+            val : -val;
+  }
+}
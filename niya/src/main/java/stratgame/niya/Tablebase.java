@@ -0,0 +1,260 @@
+package stratgame.niya;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The value of every position that can arise on one Niya layout, so that
+ * matches on it can be played perfectly by lookup alone.
+ * <p>
+ * A match lasts at most 16 moves, and every position is determined by the
+ * layout, the two colors' 16-bit masks and the tile selected in the previous
+ * turn (see {@link NiyaState#position()}).  {@link #solve(int[])} visits every
+ * position reachable from the opening (or, for {@link #solve(NiyaState)}, from
+ * a later position) once, valuing it by negamax over its children, and keeps
+ * one {@code long} per non-terminal position: its 36-bit position, then its
+ * value as a signed byte.  These records are sorted, so a lookup is a binary
+ * search.
+ * <p>
+ * Values are from the perspective of the player to move, on the same scale as
+ * {@link SmartPlayer}: {@code 0} for a draw, and {@code n+1} for a win (or its
+ * negation for a loss) that leaves {@code n} spots empty.
+ * <p>
+ * {@link #save(Path)} writes the layout and records to a file, and {@link
+ * #map(Path)} maps that file's records into memory rather than reading them,
+ * so that a tablebase of tens of megabytes is ready as soon as the file is
+ * opened, and its pages are shared by every process that maps it.
+ */
+public final class Tablebase {
+
+  private static final long MAGIC = 0x73747261744E4231L; // "stratNB1"
+  private static final int HEADER_BYTES = 28;
+
+  private final int[] layout; // tile at every board index
+  private final LongBuffer records; // sorted (position << 8 | value & 0xFF)
+
+  private Tablebase(int[] layout, LongBuffer records) {
+    this.layout = layout;
+    this.records = records;
+  }
+
+  /**
+   * Returns the tablebase of every position reachable on {@code layout}, as
+   * given to {@link NiyaState#NiyaState(int[])}.
+   */
+  public static Tablebase solve(int[] layout) {
+    return solve(new NiyaState(layout));
+  }
+
+  /**
+   * Returns the tablebase of every position reachable from {@code state}.
+   */
+  public static Tablebase solve(NiyaState state) {
+    final Memo memo = new Memo();
+    value(state.clone(), memo);
+    final long[] records = memo.records();
+    Arrays.sort(records);
+    return new Tablebase(state.layout(), LongBuffer.wrap(records));
+  }
+
+  /**
+   * Returns the value of {@code s} for the player to move, and records the
+   * value of every non-terminal position below it in {@code memo}.
+   */
+  private static int value(NiyaState s, Memo memo) {
+    if (s.isOver()) {
+      return terminalValue(s);
+    }
+    final long position = s.position();
+    final long found = memo.get(position);
+    if (found != 0L) {
+      return (byte) found;
+    }
+    int best = Integer.MIN_VALUE;
+    for (NiyaMove m : s.validMoves()) {
+      s.makeMove(m);
+      best = Math.max(best, -value(s, memo));
+      s.unmakeMove();
+    }
+    memo.put(position << 8 | (best & 0xFF));
+    return best;
+  }
+
+  /**
+   * Returns the value of the finished match {@code s} for the player to move.
+   */
+  private static int terminalValue(NiyaState s) {
+    final int value = 16 - s.movesMade() + 1;
+    return s.winner() == Color.NONE ? 0
+        : s.winner() == s.currentColor() ? value : -value;
+  }
+
+  /**
+   * The tile at every board index of the layout that this tablebase solves.
+   */
+  public int[] layout() {
+    return layout.clone();
+  }
+
+  /**
+   * The number of positions that this tablebase values.
+   */
+  public int size() {
+    return records.capacity();
+  }
+
+  /**
+   * Returns the value of {@code s}, reached on this tablebase's layout, for
+   * the player to move.
+   *
+   * @throws IllegalArgumentException if {@code s} is not in this tablebase.
+   */
+  public int value(NiyaState s) {
+    if (s.isOver()) {
+      return terminalValue(s);
+    }
+    final long position = s.position();
+    int low = 0;
+    int high = records.capacity() - 1;
+    while (low <= high) {
+      final int mid = (low + high) >>> 1;
+      final long record = records.get(mid);
+      final long found = record >>> 8;
+      if (found < position) {
+        low = mid + 1;
+      } else if (found > position) {
+        high = mid - 1;
+      } else {
+        return (byte) record;
+      }
+    }
+    throw new IllegalArgumentException("position is not in this tablebase");
+  }
+
+  /**
+   * Writes this tablebase to {@code file}, replacing any previous contents.
+   */
+  public void save(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+      header.putLong(MAGIC);
+      for (int tile : layout) {
+        header.put((byte) tile);
+      }
+      header.putInt(size());
+      header.flip();
+      while (header.hasRemaining()) {
+        channel.write(header);
+      }
+      final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+      for (int i = 0; i < size(); ) {
+        buffer.clear();
+        while (i < size() && buffer.remaining() >= 8) {
+          buffer.putLong(records.get(i++));
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the tablebase saved to {@code file}, whose records are mapped
+   * read-only from the file rather than read.
+   *
+   * @throws IOException if {@code file} is not a saved tablebase.
+   */
+  public static Tablebase map(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+      while (header.hasRemaining() && channel.read(header) >= 0) { }
+      header.flip();
+      if (header.remaining() < HEADER_BYTES || header.getLong() != MAGIC) {
+        throw new IOException(file + " is not a saved tablebase");
+      }
+      final int[] layout = new int[16];
+      for (int i = 0; i < 16; i++) {
+        layout[i] = header.get();
+      }
+      final int size = header.getInt();
+      if (size < 0 || channel.size() != HEADER_BYTES + 8L * size) {
+        throw new IOException(file + " is not a saved tablebase");
+      }
+      // the mapping remains valid once the channel is closed
+      return new Tablebase(layout, channel.map(FileChannel.MapMode.READ_ONLY,
+          HEADER_BYTES, 8L * size).asLongBuffer());
+    }
+  }
+
+  /**
+   * Open-addressed set of records, keyed by their positions, that grows as
+   * needed.  No record is {@code 0}, since no position is.
+   */
+  private static final class Memo {
+
+    private long[] slots = new long[1 << 20];
+    private int size;
+
+    private int index(long position) {
+      return (int) ((position * 0x9E3779B97F4A7C15L) >>> 32) & (slots.length - 1);
+    }
+
+    /**
+     * Returns the record of {@code position}, or {@code 0} if none.
+     */
+    long get(long position) {
+      for (int i = index(position); slots[i] != 0L; i = (i + 1) & (slots.length - 1)) {
+        if (slots[i] >>> 8 == position) {
+          return slots[i];
+        }
+      }
+      return 0L;
+    }
+
+    /**
+     * Adds {@code record}, whose position must be absent.
+     */
+    void put(long record) {
+      if (++size > slots.length >> 1) {
+        final long[] old = slots;
+        slots = new long[old.length << 1];
+        for (long r : old) {
+          if (r != 0L) {
+            insert(r);
+          }
+        }
+      }
+      insert(record);
+    }
+
+    private void insert(long record) {
+      int i = index(record >>> 8);
+      while (slots[i] != 0L) {
+        i = (i + 1) & (slots.length - 1);
+      }
+      slots[i] = record;
+    }
+
+    /**
+     * Returns every record, in no particular order.
+     */
+    long[] records() {
+      final long[] result = new long[size];
+      int count = 0;
+      for (long r : slots) {
+        if (r != 0L) {
+          result[count++] = r;
+        }
+      }
+      return result;
+    }
+  }
+}
@@ -0,0 +1,59 @@
+package stratgame.niya;
+
+import java.util.Arrays;
+import stratgame.game.Player;
+import stratgame.game.State;
+
+/**
+ * {@link Player} that plays perfectly on the layout of a {@link Tablebase}, by
+ * looking up the value of every valid move instead of searching.  Like a
+ * {@link SmartPlayer}, it prefers quicker wins and slower losses, and breaks
+ * ties in favor of the earlier move.
+ */
+public class TablebasePlayer implements Player<NiyaMove> {
+
+  private final Tablebase tablebase;
+  private final int[] layout;
+
+  /**
+   * Constructs a new {@code TablebasePlayer} that looks up moves in {@code
+   * tablebase}.
+   */
+  public TablebasePlayer(Tablebase tablebase) {
+    this.tablebase = tablebase;
+    this.layout = tablebase.layout();
+  }
+
+  /**
+   * The tablebase in which this player looks up moves.
+   */
+  public Tablebase tablebase() {
+    return tablebase;
+  }
+
+  /**
+   * Returns the best move in {@code state}.
+   *
+   * @throws IllegalArgumentException if {@code state} is not played on the
+   *         tablebase's layout.
+   */
+  @Override
+  public NiyaMove decide(State<NiyaMove> state) {
+    final NiyaState s = new NiyaState(state);
+    if (!Arrays.equals(s.layout(), layout)) {
+      throw new IllegalArgumentException("state is not on the tablebase's layout");
+    }
+    NiyaMove best = null;
+    int bestValue = Integer.MIN_VALUE;
+    for (NiyaMove m : s.validMoves()) {
+      s.makeMove(m);
+      final int value = -tablebase.value(s);
+      s.unmakeMove();
+      if (value > bestValue) {
+        best = m;
+        bestValue = value;
+      }
+    }
+    return best;
+  }
+}
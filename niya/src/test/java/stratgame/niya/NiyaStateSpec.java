@@ -1,7 +1,12 @@
 package stratgame.niya;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 import org.testng.annotations.Test;
+import stratgame.game.Symmetry;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
 
 public class NiyaStateSpec {
 
@@ -299,4 +304,148 @@ public class NiyaStateSpec {
     state.makeMove(0,2); state.makeMove(3,2);
     assertEquals(state.winner(), Color.BLACK);
   }
+
+  @Test
+  public void testZobristKey() {
+    final int[] layout = new int[]{
+        7, 1, 15, 5,
+        13, 2, 9, 12,
+        0, 4, 8, 10,
+        11, 14, 3, 6
+      };
+    final NiyaState state = new NiyaState(layout);
+    state.makeMove(0,0); state.makeMove(0,2);
+    state.makeMove(1,0); state.makeMove(0,3);
+    // same position, different move order
+    final NiyaState transposed = new NiyaState(layout);
+    transposed.makeMove(1,0); transposed.makeMove(0,2);
+    transposed.makeMove(0,0); transposed.makeMove(0,3);
+    assertEquals(state.zobristKey(), transposed.zobristKey());
+    // same moves, different layout
+    final NiyaState other = new NiyaState(new int[]{
+        7, 1, 15, 5,
+        13, 2, 9, 12,
+        0, 4, 8, 10,
+        11, 14, 6, 3
+      });
+    other.makeMove(0,0); other.makeMove(0,2);
+    other.makeMove(1,0); other.makeMove(0,3);
+    assertNotEquals(state.zobristKey(), other.zobristKey());
+  }
+
+  @Test
+  public void testUnmakeMove() {
+    final NiyaState state = new NiyaState(new int[]{
+        7, 1, 15, 5,
+        13, 2, 9, 12,
+        0, 4, 8, 10,
+        11, 14, 3, 6
+      });
+    assertEquals(state.unmakeMove(), false);
+    final long key = state.zobristKey();
+    final List<NiyaMove> moves = new ArrayList<>(state.validMoves());
+    // same sequence as testCheckmateWinCondition
+    state.makeMove(0,1); state.makeMove(1, 1);
+    state.makeMove(2,0); state.makeMove(1,3);
+    state.makeMove(1,0); state.makeMove(0,3);
+    state.makeMove(0,0); state.makeMove(3,0);
+    state.makeMove(0,2);
+    final long beforeCheckmate = state.zobristKey();
+    state.makeMove(3,2);
+    assertEquals(state.winner(), Color.BLACK);
+    assertEquals(state.unmakeMove(), true);
+    assertEquals(state.winner(), Color.NONE);
+    assertEquals(state.isOver(), false);
+    assertEquals(state.zobristKey(), beforeCheckmate);
+    assertEquals(state.movesMade(), 9);
+    while (state.unmakeMove()) { }
+    assertEquals(state.movesMade(), 0);
+    assertEquals(state.zobristKey(), key);
+    assertEquals(state.validMoves(), moves);
+  }
+
+  @Test
+  public void testClone() {
+    final NiyaState state = new NiyaState(new int[]{
+        7, 1, 15, 5,
+        13, 2, 9, 12,
+        0, 4, 8, 10,
+        11, 14, 3, 6
+      });
+    state.makeMove(0,1); state.makeMove(1, 1);
+    final NiyaState copy = state.clone();
+    final List<NiyaMove> moves = copy.validMoves();
+    // moves in either copy leave the other untouched
+    state.makeMove(2,0);
+    assertEquals(copy.movesMade(), 2);
+    assertEquals(copy.validMoves(), moves);
+    assertEquals(copy.getColor(2,0), Color.NONE);
+    assertEquals(state.getColor(2,0), Color.RED);
+    assertEquals(copy.makeMove(2,0), true);
+    assertEquals(state.zobristKey(), copy.zobristKey());
+    assertEquals(state.unmakeMove(), true);
+    assertEquals(copy.getColor(2,0), Color.RED);
+    assertEquals(copy.unmakeMove(), true);
+    assertEquals(state.zobristKey(), copy.zobristKey());
+    assertEquals(state.validMoves(), moves);
+  }
+
+  @Test
+  public void testCanonicalKey() {
+    final int[] layout = new int[]{
+        7, 1, 15, 5,
+        13, 2, 9, 12,
+        0, 4, 8, 10,
+        11, 14, 3, 6
+      };
+    final int[][] cells = Symmetry.cells(4);
+    final int[] plants = new int[]{2, 0, 3, 1};
+    final int[] poems = new int[]{1, 3, 2, 0};
+    final Random random = new Random(18);
+    for (int s = 0; s < 2 * Symmetry.COUNT; s++) {
+      // move the tiles under s, relabel them, and swap plants with poems
+      final int[] relabeled = new int[16];
+      for (int i = 0; i < 16; i++) {
+        final int plant = plants[layout[i] >> 2];
+        final int poem = poems[layout[i] & 3];
+        relabeled[cells[s % Symmetry.COUNT][i]] =
+            s < Symmetry.COUNT ? (plant << 2) + poem : (poem << 2) + plant;
+      }
+      // then play the same game on either layout
+      final NiyaState state = new NiyaState(layout);
+      final NiyaState image = new NiyaState(relabeled);
+      while (!state.isOver()) {
+        assertEquals(image.canonicalKey(), state.canonicalKey());
+        final int symmetry = state.canonicalSymmetry();
+        final int imageSymmetry = image.canonicalSymmetry();
+        final List<NiyaMove> moves = state.validMoves();
+        final List<NiyaMove> imageMoves = image.validMoves();
+        for (int i = 0; i < moves.size(); i++) {
+          final int canonical = state.toCanonical(i, symmetry);
+          assertEquals(state.fromCanonical(canonical, symmetry), i);
+          // the move maps to one that leads to an equivalent position
+          state.makeMove(moves.get(i));
+          image.makeMove(imageMoves.get(image.fromCanonical(canonical, imageSymmetry)));
+          assertEquals(image.canonicalKey(), state.canonicalKey());
+          state.unmakeMove();
+          image.unmakeMove();
+        }
+        final NiyaMove m = moves.get(random.nextInt(moves.size()));
+        final int cell = cells[s % Symmetry.COUNT][(m.row << 2) + m.col];
+        state.makeMove(m);
+        image.makeMove(cell >> 2, cell & 3);
+      }
+    }
+    // the same moves on a layout with a different structure
+    final NiyaState state = new NiyaState(layout);
+    state.makeMove(0,0);
+    final NiyaState other = new NiyaState(new int[]{
+        7, 1, 15, 5,
+        13, 2, 9, 12,
+        0, 4, 8, 10,
+        11, 14, 6, 3
+      });
+    other.makeMove(0,0);
+    assertNotEquals(other.canonicalKey(), state.canonicalKey());
+  }
 }
@@ -0,0 +1,51 @@
+package stratgame.niya;
+
+import org.testng.annotations.Test;
+import stratgame.ai.Outcome;
+import static org.testng.Assert.assertEquals;
+
+public class ProofPlayerSpec {
+
+  /**
+   * Returns the outcome for {@code color} that a {@link SmartPlayer} finds in
+   * {@code state}, or reads off the winner if the match is over.
+   */
+  private static Outcome expected(NiyaState state, Color color) {
+    final int sign;
+    if (state.isOver()) {
+      sign = state.winner() == Color.NONE ? 0 : state.winner() == color ? 1 : -1;
+    } else {
+      final SmartPlayer smart = new SmartPlayer(state.currentColor());
+      smart.decide(state);
+      final int value = state.currentColor() == color ? smart.value() : -smart.value();
+      sign = Integer.signum(value);
+    }
+    return sign > 0 ? Outcome.WIN : sign < 0 ? Outcome.LOSS : Outcome.DRAW;
+  }
+
+  @Test
+  public void testOutcomes() {
+    for (NiyaState state : SmartPlayerSpec.positions()) {
+      final Color color = state.currentColor();
+      final ProofPlayer player = new ProofPlayer(color);
+      final long key = state.zobristKey();
+      final NiyaMove move = player.decide(state);
+      assertEquals(state.zobristKey(), key);
+      assertEquals(player.outcome(), expected(state, color));
+      // the move must keep the outcome proven
+      assertEquals(state.makeMove(move), true);
+      assertEquals(expected(state, color), player.outcome());
+    }
+  }
+
+  @Test
+  public void testFinishedState() {
+    final NiyaState state = SmartPlayerSpec.positions().get(0);
+    while (!state.isOver()) {
+      state.makeMove(state.validMoves().get(0));
+    }
+    final ProofPlayer player = new ProofPlayer(Color.RED);
+    assertEquals(player.decide(state), null);
+    assertEquals(player.outcome(), expected(state, Color.RED));
+  }
+}
@@ -0,0 +1,174 @@
+package stratgame.niya;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.testng.annotations.Test;
+import stratgame.ai.SearchAlgorithm;
+import static org.testng.Assert.assertEquals;
+
+public class SmartPlayerSpec {
+
+  private static final int[][] LAYOUTS = {
+    {
+      7, 1, 15, 5,
+      13, 2, 9, 12,
+      0, 4, 8, 10,
+      11, 14, 3, 6
+    },
+    {
+      0, 5, 12, 6,
+      8, 4, 13, 3,
+      15, 11, 1, 7,
+      10, 9, 14, 2
+    },
+    {
+      5, 11, 15, 7,
+      9, 12, 10, 14,
+      8, 3, 13, 6,
+      0, 2, 4, 1
+    }
+  };
+
+  private static final int SHUFFLED = 60;
+
+  /**
+   * Returns the openings of {@code LAYOUTS}, then {@code SHUFFLED} positions
+   * after up to four seeded random moves on seeded shuffles of the first.
+   */
+  static List<NiyaState> positions() {
+    final List<NiyaState> result = new ArrayList<>();
+    for (int[] layout : LAYOUTS) {
+      result.add(new NiyaState(layout));
+    }
+    for (int seed = 0; seed < SHUFFLED; seed++) {
+      final Random random = new Random(seed);
+      final int[] layout = LAYOUTS[0].clone();
+      for (int i = layout.length - 1; i > 0; i--) {
+        final int j = random.nextInt(i + 1);
+        final int tile = layout[i];
+        layout[i] = layout[j];
+        layout[j] = tile;
+      }
+      final NiyaState state = new NiyaState(layout);
+      for (int i = 0; i < seed % 5 && !state.isOver(); i++) {
+        final List<NiyaMove> moves = state.validMoves();
+        state.makeMove(moves.get(random.nextInt(moves.size())));
+      }
+      if (!state.isOver()) {
+        result.add(state);
+      }
+    }
+    return result;
+  }
+
+  @Test
+  public void testDepthLimitedEntries() {
+    for (int[] layout : LAYOUTS) {
+      final NiyaState state = new NiyaState(layout);
+      final SmartPlayer exact = new SmartPlayer(state.currentColor());
+      final NiyaMove expected = exact.decide(state);
+      for (int depth : new int[]{3, 6}) {
+        final SmartPlayer shallow = new SmartPlayer(state.currentColor());
+        shallow.maxDepth(depth);
+        shallow.decide(state);
+        // a later exhaustive search may only take the shallow entries as hints
+        final SmartPlayer deep = new SmartPlayer(state.currentColor());
+        deep.transpositionTable(shallow.transpositionTable());
+        assertEquals(deep.decide(state), expected);
+        assertEquals(deep.value(), exact.value());
+      }
+    }
+  }
+
+  @Test
+  public void testParallelRootSearch() {
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      for (int[] layout : LAYOUTS) {
+        final NiyaState state = new NiyaState(layout);
+        final SmartPlayer serial = new SmartPlayer(state.currentColor());
+        final SmartPlayer parallel = new SmartPlayer(state.currentColor());
+        parallel.forkJoinPool(pool);
+        assertEquals(parallel.decide(state), serial.decide(state));
+        assertEquals(parallel.value(), serial.value());
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testLazySmp() {
+    for (int[] layout : LAYOUTS) {
+      final NiyaState state = new NiyaState(layout);
+      final SmartPlayer serial = new SmartPlayer(state.currentColor());
+      serial.decide(state);
+      final SmartPlayer smp = new SmartPlayer(state.currentColor());
+      smp.helpers(3);
+      final NiyaMove move = smp.decide(state);
+      assertEquals(smp.value(), serial.value());
+      // the move played achieves that value
+      state.makeMove(move);
+      final SmartPlayer reply = new SmartPlayer(state.currentColor());
+      reply.decide(state);
+      assertEquals(-reply.value(), serial.value());
+    }
+  }
+
+  @Test
+  public void testOrdering() {
+    for (int[] layout : LAYOUTS) {
+      final NiyaState state = new NiyaState(layout);
+      final SmartPlayer ordered = new SmartPlayer(state.currentColor());
+      final SmartPlayer unordered = new SmartPlayer(state.currentColor());
+      unordered.ordering(false);
+      ordered.decide(state);
+      unordered.decide(state);
+      assertEquals(ordered.value(), unordered.value());
+    }
+  }
+
+  @Test
+  public void testPrincipalVariationAndAspiration() {
+    final SearchAlgorithm[] algorithms = {SearchAlgorithm.ALPHA_BETA, SearchAlgorithm.PVS};
+    for (NiyaState state : positions()) {
+      final SmartPlayer alphaBeta = new SmartPlayer(state.currentColor());
+      alphaBeta.decide(state);
+      final SmartPlayer pvs = new SmartPlayer(state.currentColor());
+      pvs.algorithm(SearchAlgorithm.PVS);
+      pvs.decide(state);
+      assertEquals(pvs.value(), alphaBeta.value());
+      // aspiration windows only narrow the iterations of iterative deepening
+      for (SearchAlgorithm algorithm : algorithms) {
+        for (int aspiration : new int[]{1, 4}) {
+          final SmartPlayer player = new SmartPlayer(state.currentColor());
+          player.maxDepth(16);
+          player.algorithm(algorithm);
+          player.aspiration(aspiration);
+          player.decide(state);
+          assertEquals(player.value(), alphaBeta.value());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testMtdf() {
+    for (NiyaState state : positions()) {
+      final SmartPlayer alphaBeta = new SmartPlayer(state.currentColor());
+      alphaBeta.decide(state);
+      for (int maxDepth : new int[]{0, 16}) {
+        final SmartPlayer mtdf = new SmartPlayer(state.currentColor());
+        mtdf.algorithm(SearchAlgorithm.MTDF);
+        if (maxDepth > 0) {
+          // iterative deepening seeds every iteration with the previous value
+          mtdf.maxDepth(maxDepth);
+        }
+        mtdf.decide(state);
+        assertEquals(mtdf.value(), alphaBeta.value());
+      }
+    }
+  }
+}
@@ -0,0 +1,38 @@
+package stratgame.niya;
+
+import org.testng.annotations.Test;
+import static org.testng.Assert.assertEquals;
+
+public class StackPlayerSpec {
+
+  /**
+   * Checks that a fresh {@link StackPlayer} visits exactly the nodes of a fresh
+   * serial {@link SmartPlayer}, and picks the same move, in every position of
+   * {@link SmartPlayerSpec#positions()}, within {@code maxDepth} plies ({@code
+   * 0} if unlimited).
+   */
+  private static void check(int maxDepth) {
+    for (NiyaState state : SmartPlayerSpec.positions()) {
+      final SmartPlayer smart = new SmartPlayer(state.currentColor());
+      final StackPlayer stack = new StackPlayer(state.currentColor());
+      if (maxDepth > 0) {
+        smart.maxDepth(maxDepth);
+        stack.maxDepth(maxDepth);
+      }
+      final NiyaMove expected = smart.decide(state);
+      assertEquals(stack.decide(state), expected);
+      assertEquals(stack.nodes(), smart.nodes());
+    }
+  }
+
+  @Test
+  public void testExhaustive() {
+    check(0);
+  }
+
+  @Test
+  public void testDepthLimited() {
+    check(3);
+    check(8);
+  }
+}
@@ -0,0 +1,131 @@
+package stratgame.niya;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.testng.annotations.Test;
+import static org.testng.Assert.assertEquals;
+
+public class TablebaseSpec {
+
+  private static final int[] LAYOUT = new int[]{
+      7, 1, 15, 5,
+      13, 2, 9, 12,
+      0, 4, 8, 10,
+      11, 14, 3, 6
+    };
+
+  /**
+   * Returns the position after a few fixed moves on {@code LAYOUT}, whose
+   * tablebase is small enough to check exhaustively.
+   */
+  private static NiyaState start() {
+    final NiyaState state = new NiyaState(LAYOUT);
+    state.makeMove(0, 1); state.makeMove(1, 1);
+    state.makeMove(3, 1); state.makeMove(1, 0);
+    return state;
+  }
+
+  /**
+   * Returns the negamax value of {@code s} for the player to move, on the
+   * scale of {@link Tablebase}.
+   */
+  private static int negamax(NiyaState s, Map<Long, Integer> memo) {
+    if (s.isOver()) {
+      final int value = 16 - s.movesMade() + 1;
+      return s.winner() == Color.NONE ? 0
+          : s.winner() == s.currentColor() ? value : -value;
+    }
+    final Integer found = memo.get(s.zobristKey());
+    if (found != null) {
+      return found;
+    }
+    int best = Integer.MIN_VALUE;
+    for (NiyaMove m : s.validMoves()) {
+      s.makeMove(m);
+      best = Math.max(best, -negamax(s, memo));
+      s.unmakeMove();
+    }
+    memo.put(s.zobristKey(), best);
+    return best;
+  }
+
+  @Test
+  public void testValues() {
+    final Tablebase tablebase = Tablebase.solve(start());
+    final Map<Long, Integer> memo = new HashMap<>();
+    assertEquals(tablebase.value(start()), negamax(start(), memo));
+    assertEquals(tablebase.size(), memo.size());
+    final Random random = new Random(25);
+    for (int i = 0; i < 500; i++) {
+      final NiyaState state = start();
+      while (!state.isOver()) {
+        assertEquals(tablebase.value(state), negamax(state, memo));
+        final List<NiyaMove> moves = state.validMoves();
+        state.makeMove(moves.get(random.nextInt(moves.size())));
+      }
+    }
+  }
+
+  @Test
+  public void testPlayer() {
+    final TablebasePlayer player = new TablebasePlayer(Tablebase.solve(start()));
+    final NiyaState state = start();
+    final Map<Long, Integer> memo = new HashMap<>();
+    while (!state.isOver()) {
+      final int value = negamax(state, memo);
+      state.makeMove(player.decide(state));
+      // every move keeps the value of the match
+      assertEquals(-negamax(state, memo), value);
+    }
+    boolean rejected = false;
+    try {
+      player.decide(new NiyaState(new int[]{
+          0, 5, 12, 6,
+          8, 4, 13, 3,
+          15, 11, 1, 7,
+          10, 9, 14, 2
+        }));
+    } catch (IllegalArgumentException e) {
+      rejected = true;
+    }
+    assertEquals(rejected, true);
+  }
+
+  @Test
+  public void testSaveMap() throws IOException {
+    final Tablebase tablebase = Tablebase.solve(start());
+    final Path file = Files.createTempFile("niya", ".tb");
+    try {
+      tablebase.save(file);
+      final Tablebase mapped = Tablebase.map(file);
+      assertEquals(mapped.size(), tablebase.size());
+      assertEquals(mapped.layout()[0], LAYOUT[0]);
+      assertEquals(mapped.layout()[15], LAYOUT[15]);
+      final Random random = new Random(26);
+      for (int i = 0; i < 100; i++) {
+        final NiyaState state = start();
+        while (!state.isOver()) {
+          assertEquals(mapped.value(state), tablebase.value(state));
+          final List<NiyaMove> moves = state.validMoves();
+          state.makeMove(moves.get(random.nextInt(moves.size())));
+        }
+      }
+      // anything else is rejected
+      Files.write(file, new byte[]{1, 2, 3});
+      boolean rejected = false;
+      try {
+        Tablebase.map(file);
+      } catch (IOException e) {
+        rejected = true;
+      }
+      assertEquals(rejected, true);
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+}
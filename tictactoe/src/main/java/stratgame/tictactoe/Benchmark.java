@@ -0,0 +1,158 @@
+package stratgame.tictactoe;
+
+import java.util.ArrayList;
+import java.util.List;
+import stratgame.ai.ArrayTranspositionTable;
+import stratgame.ai.SearchAlgorithm;
+import stratgame.game.Player;
+
+/**
+ * Prints search statistics for {@link SmartPlayer} solving the opening and
+ * every reply to it, with and without canonical keys, and compares its latency
+ * with {@link IntSmartPlayer} and {@link OraclePlayer}.
+ */
+public class Benchmark {
+
+  private static final int ROUNDS = 100;
+
+  public static void main(String[] args) {
+    algorithms();
+    canonical();
+    latency();
+  }
+
+  /**
+   * Solves the empty board and the nine positions after one move with each
+   * {@link SearchAlgorithm}, starting every solve from a fresh table.
+   */
+  private static void algorithms() {
+    System.out.println("== Algorithms: solve opening and replies, "
+        + ROUNDS + " rounds ==");
+    System.out.println("algorithm          ms       nodes");
+    for (int warm = 0; warm < 2; warm++) {
+      for (SearchAlgorithm algorithm : SearchAlgorithm.values()) {
+        long nodes = 0;
+        final long start = System.nanoTime();
+        for (int round = 0; round < ROUNDS; round++) {
+          for (int first = -1; first < 9; first++) {
+            final TTTState state = new TTTState();
+            if (first >= 0) {
+              state.makeMove(first);
+            }
+            final SmartPlayer player = new SmartPlayer(
+                first >= 0 ? Piece.O : Piece.X);
+            player.transpositionTable(new ArrayTranspositionTable(1 << 13));
+            player.algorithm(algorithm);
+            player.decide(state);
+            nodes += player.nodes();
+          }
+        }
+        final double ms = (System.nanoTime() - start) / 1e6;
+        if (warm == 1) {
+          System.out.printf("%-11s %9.1f %11d%n", algorithm, ms, nodes / ROUNDS);
+        }
+      }
+    }
+  }
+
+  /**
+   * Solves the empty board and the nine positions after one move, sharing one
+   * table between the ten solves, with and without canonical keys, and counts
+   * the entries left in the table.
+   */
+  private static void canonical() {
+    System.out.println("== Canonical keys: solve opening and replies, "
+        + ROUNDS + " rounds ==");
+    System.out.println("keys               ms       nodes   entries");
+    for (int warm = 0; warm < 2; warm++) {
+      for (boolean canonical : new boolean[]{false, true}) {
+        long nodes = 0;
+        int entries = 0;
+        final long start = System.nanoTime();
+        for (int round = 0; round < ROUNDS; round++) {
+          final ArrayTranspositionTable table = new ArrayTranspositionTable(1 << 13);
+          for (int first = -1; first < 9; first++) {
+            final TTTState state = new TTTState();
+            if (first >= 0) {
+              state.makeMove(first);
+            }
+            final SmartPlayer player = new SmartPlayer(
+                first >= 0 ? Piece.O : Piece.X);
+            player.transpositionTable(table);
+            player.canonical(canonical);
+            player.decide(state);
+            nodes += player.nodes();
+          }
+          entries = table.occupancy();
+        }
+        final double ms = (System.nanoTime() - start) / 1e6;
+        if (warm == 1) {
+          System.out.printf("%-11s %9.1f %11d %9d%n",
+              canonical ? "canonical" : "zobrist", ms, nodes / ROUNDS, entries);
+        }
+      }
+    }
+  }
+
+  /**
+   * Measures the mean latency of {@code decide} over every reachable
+   * position with a move to play, for {@link SmartPlayer}, {@link
+   * IntSmartPlayer} and {@link OraclePlayer}.
+   */
+  private static void latency() {
+    final List<TTTState> positions = new ArrayList<>();
+    collect(new TTTState(), new boolean[1 << 18], positions);
+    System.out.println("== Latency: decide on all " + positions.size()
+        + " reachable positions ==");
+    System.out.println("player            ns/decide");
+    for (int warm = 0; warm < 2; warm++) {
+      final SmartPlayer smart = new SmartPlayer(Piece.X);
+      final double smartNanos = latency(smart, positions, 1);
+      final IntSmartPlayer intSmart = new IntSmartPlayer(Piece.X);
+      final double intSmartNanos = latency(intSmart, positions, 1);
+      final double oracleNanos = latency(new OraclePlayer(), positions, ROUNDS);
+      if (warm == 1) {
+        System.out.printf("%-14s %12.0f%n", "SmartPlayer", smartNanos);
+        System.out.printf("%-14s %12.0f%n", "IntSmartPlayer", intSmartNanos);
+        System.out.printf("%-14s %12.0f%n", "OraclePlayer", oracleNanos);
+      }
+    }
+  }
+
+  /**
+   * Returns the mean nanoseconds that {@code player} takes to decide each of
+   * {@code positions}, over {@code rounds} rounds.
+   */
+  private static double latency(Player<Integer> player,
+      List<TTTState> positions, int rounds) {
+    int sink = 0;
+    final long start = System.nanoTime();
+    for (int round = 0; round < rounds; round++) {
+      for (TTTState position : positions) {
+        sink += player.decide(position);
+      }
+    }
+    final double nanos = (double) (System.nanoTime() - start) / rounds / positions.size();
+    return sink == Integer.MIN_VALUE ? -1 : nanos;
+  }
+
+  /**
+   * Adds a copy of {@code state} and every position reachable from it that
+   * has a move to play, unless {@code seen} already marks its board, to
+   * {@code positions}.
+   */
+  private static void collect(TTTState state, boolean[] seen,
+      List<TTTState> positions) {
+    if (state.isOver() || seen[state.board()]) {
+      return;
+    }
+    seen[state.board()] = true;
+    positions.add(state.clone());
+    for (int m = 0; m < 9; m++) {
+      if (state.makeMove(m)) {
+        collect(state, seen, positions);
+        state.unmakeMove();
+      }
+    }
+  }
+}
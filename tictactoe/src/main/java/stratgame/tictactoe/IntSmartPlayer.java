@@ -0,0 +1,27 @@
+package stratgame.tictactoe;
+
+import stratgame.ai.ArrayTranspositionTable;
+import stratgame.ai.IntNegamaxPlayer;
+
+/**
+ * {@link IntNegamaxPlayer} for {@code TTTStates}, which evaluates positions
+ * exactly as {@link SmartPlayer} does.
+ */
+public class IntSmartPlayer extends IntNegamaxPlayer<Piece, TTTState> {
+
+  public IntSmartPlayer(Piece piece) {
+    if (piece == Piece.NONE) {
+      throw new IllegalArgumentException("Player piece cannot be NONE");
+    }
+    this.piece = piece;
+    transpositionTable(new ArrayTranspositionTable(1 << 13));
+  }
+
+  @Override
+  public int terminalValue(TTTState s) {
+    final int val = 9 - s.movesMade() + 1;
+    return s.winner() == Piece.NONE ? 0 :
+        s.winner() == piece ?
+            val : -val;
+  }
+}
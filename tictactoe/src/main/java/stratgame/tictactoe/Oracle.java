@@ -0,0 +1,115 @@
+package stratgame.tictactoe;
+
+/**
+ * Perfect-play table for tic-tac-toe, precomputed once per JVM.
+ * <p>
+ * Every {@link TTTState#board()} has a base-3 perfect hash, {@link
+ * #index(int)}: the sum over each position {@code i} of its mark (0 for
+ * unmarked, 1 for O, 2 for X) times {@code 3^i}.  Since X always moves first,
+ * the board alone determines whose turn it is, so a table of {@code 3^9}
+ * entries covers every position.  Each entry of {@code TABLE} packs the
+ * negamax value of a reachable board, for the player to move, plus {@code
+ * BIAS} in its upper 12 bits and the best move in its lower 4 bits ({@code
+ * 0xF} if the match is over).  The bias keeps every solved entry nonzero, so
+ * that {@code 0} marks the boards not yet solved.  Values score a win as
+ * {@link SmartPlayer} does, so the best move is also the one that {@code
+ * SmartPlayer} would play: the first, in ascending order, with the greatest
+ * value.
+ * <p>
+ * The hash itself is two table lookups: one for the 2-bit marks of positions
+ * 0 to 4, and one for those of positions 5 to 8.
+ */
+public final class Oracle {
+
+  private static final int SIZE = 19683; // 3^9
+
+  private static final int NO_MOVE = 0xF;
+
+  private static final int BIAS = 16; // exceeds the greatest loss, 10
+
+  private static final int[] LOW = new int[1 << 10];
+
+  private static final int[] HIGH = new int[1 << 8];
+
+  private static final short[] TABLE = new short[SIZE];
+
+  static {
+    for (int bits = 0; bits < LOW.length; bits++) {
+      LOW[bits] = digits(bits, 5, 1);
+    }
+    for (int bits = 0; bits < HIGH.length; bits++) {
+      HIGH[bits] = digits(bits, 4, 243);
+    }
+    solve(new TTTState());
+  }
+
+  private Oracle() { }
+
+  /**
+   * Returns the base-3 value of the {@code count} 2-bit marks in {@code bits},
+   * the first of which is worth {@code unit}; {@code -SIZE} if any is illegal.
+   */
+  private static int digits(int bits, int count, int unit) {
+    int result = 0;
+    for (int i = 0; i < count; i++, unit *= 3) {
+      final int mark = (bits >>> (i << 1)) & 3;
+      result += mark == 3 ? -SIZE : mark * unit;
+    }
+    return result;
+  }
+
+  /**
+   * Fills {@code TABLE} for {@code state} and every position reachable from
+   * it, and returns the negamax value of {@code state}.
+   */
+  private static int solve(TTTState state) {
+    final int index = index(state.board());
+    if (TABLE[index] != 0) {
+      return (TABLE[index] >> 4) - BIAS;
+    }
+    int best;
+    int bestMove = NO_MOVE;
+    if (state.isOver()) {
+      // the previous player either won or filled the board
+      best = state.winner() == Piece.NONE ? 0 : -(9 - state.movesMade() + 1);
+    } else {
+      best = Integer.MIN_VALUE;
+      for (int m = 0; m < 9; m++) {
+        if (state.makeMove(m)) {
+          final int value = -solve(state);
+          state.unmakeMove();
+          if (value > best) {
+            best = value;
+            bestMove = m;
+          }
+        }
+      }
+    }
+    TABLE[index] = (short) ((best + BIAS) << 4 | bestMove);
+    return best;
+  }
+
+  /**
+   * Returns the base-3 perfect hash of {@code board}.
+   */
+  public static int index(int board) {
+    return LOW[board & 0x3FF] + HIGH[board >>> 10];
+  }
+
+  /**
+   * Returns the negamax value of the reachable {@code board} for the player
+   * to move.
+   */
+  public static int value(int board) {
+    return (TABLE[index(board)] >> 4) - BIAS;
+  }
+
+  /**
+   * Returns the best move on the reachable {@code board}, or {@code -1} if
+   * the match is over.
+   */
+  public static int move(int board) {
+    final int move = TABLE[index(board)] & 0xF;
+    return move == NO_MOVE ? -1 : move;
+  }
+}
@@ -0,0 +1,21 @@
+package stratgame.tictactoe;
+
+import stratgame.game.Player;
+import stratgame.game.State;
+
+/**
+ * {@link Player} that plays perfectly by looking up every move in the {@link
+ * Oracle}, rather than searching.
+ */
+public class OraclePlayer implements Player<Integer> {
+
+  /**
+   * Returns the best move in {@code state}, or {@code null} if the match is
+   * over.
+   */
+  @Override
+  public Integer decide(State<Integer> state) {
+    final int move = Oracle.move(((TTTState) state).board());
+    return move == -1 ? null : move;
+  }
+}
@@ -1,5 +1,6 @@
 package stratgame.tictactoe;
 
+import stratgame.ai.ArrayTranspositionTable;
 import stratgame.ai.NegamaxPlayer;
 
 /**
@@ -12,6 +13,9 @@ public class SmartPlayer extends NegamaxPlayer<Integer, Piece, TTTState> {
       throw new IllegalArgumentException("Player piece cannot be NONE");
     }
     this.piece = piece;
+    transpositionTable(new ArrayTranspositionTable(1 << 13));
+    inPlace(true);
+    ordering(true);
   }
 
   @Override
@@ -1,13 +1,19 @@
 package stratgame.tictactoe;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.IntConsumer;
+import stratgame.game.IntState;
 import stratgame.game.State;
+import stratgame.game.Symmetric;
+import stratgame.game.Symmetry;
+import stratgame.game.Zobrist;
 
 /**
  * Context that manages the state of a tic-tac-toe match.  Once a {@code
  * TTTState} instance is initialized, mutability of its fields is only offered
- * via calls to {@link #makeMove(Integer m)}.
+ * via calls to {@link #makeMove(int m)}.
  * <p>
  * A single {@code int}, {@code board}, captures the entire state of the match.
  * With {@code 3^9} possible states of the grid, we could have actually achieved
@@ -33,14 +39,35 @@ import stratgame.game.State;
  * vertical, right vertical, downward diagonal, and upward diagonal,
  * respectively.  The counts for {@code O} follow identically and are stored in
  * the left 16 bits.
+ * <p>
+ * A single {@code int}, {@code open}, is the mask of unmarked positions, or
+ * {@code 0} once the match is won.  It generates valid moves, either as
+ * {@code ints} or as one of the immutable lists precomputed for every mask.
+ * <p>
+ * A single {@code long}, {@code key}, is the {@link Zobrist} hash of {@code
+ * board}.  Each bit of {@code board} is assigned its own key, so a move simply
+ * {@code XOR}s in the key at the same index as the bit that it sets.
+ * <p>
+ * A single {@code long}, {@code history}, records every move played so far
+ * (4 bits each, oldest move rightmost) so that {@link #unmakeMove()} can
+ * revert them.
+ * <p>
+ * The canonical image of a {@code TTTState} is the image of its board, under
+ * the eight {@link Symmetry symmetries} of the grid, with the least 18-bit
+ * encoding: the mask of spots marked by X, then that of O in the next 9 bits.
  */
-public class TTTState implements State<Integer> {
+public class TTTState implements IntState, Symmetric {
 
   private int board; // match state
   private int movesMade; // moves made so far
-  private List<Integer> validMoves; // valid moves on current turn
+  private int open; // valid moves on current turn
   private Piece winner; // winner as of current turn
   private int cache; // accelerate win determination
+  private long key; // Zobrist hash of board
+  private long history; // moves played so far
+  private int symmetry; // symmetry found by canonicalKey
+
+  private static final long[] ZOBRIST = Zobrist.keys(18, 0x7474L);
 
   private static final int[] INCREMENTS = new int[]{
       0b0001000001000001, 0b0000000100000001, 0b0100010000000001,
@@ -48,18 +75,37 @@ public class TTTState implements State<Integer> {
       0b0100000001010000, 0b0000000100010000, 0b0001010000010000
     };
 
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static final List<Integer>[] MOVE_LISTS = new List[1 << 9];
+
+  private static final int[][] CELLS = Symmetry.cells(3);
+  private static final int[][] INVERSES = Symmetry.inverses(CELLS);
+  private static final int[][] MASKS = new int[Symmetry.COUNT][1 << 9];
+
+  static {
+    for (int mask = 0; mask < MOVE_LISTS.length; mask++) {
+      final Integer[] moves = new Integer[Integer.bitCount(mask)];
+      for (int rest = mask, i = 0; rest != 0; rest &= rest - 1) {
+        moves[i++] = Integer.numberOfTrailingZeros(rest);
+      }
+      MOVE_LISTS[mask] = Collections.unmodifiableList(Arrays.asList(moves));
+      for (int s = 0; s < Symmetry.COUNT; s++) {
+        MASKS[s][mask] = Symmetry.permute(mask, CELLS[s]);
+      }
+    }
+  }
+
   /**
    * Constructs a new {@code TTTState} without any moves played.
    */
   public TTTState() {
     this.board = 0;
     this.movesMade = 0;
-    this.validMoves = new ArrayList<>(9);
-    for (int i = 0; i < 9; i++) {
-      this.validMoves.add(i);
-    }
+    this.open = 0x1FF;
     winner = Piece.NONE;
     this.cache = 0;
+    this.key = 0L;
+    this.history = 0L;
   }
 
   /**
@@ -68,10 +114,11 @@ public class TTTState implements State<Integer> {
   public TTTState(TTTState s) {
     this.board = s.board;
     this.movesMade = s.movesMade;
-    this.validMoves = new ArrayList<>(9);
-    this.validMoves.addAll(s.validMoves);
+    this.open = s.open;
     this.winner = s.winner;
     this.cache = s.cache;
+    this.key = s.key;
+    this.history = s.history;
   }
 
   @Override
@@ -93,21 +140,109 @@ public class TTTState implements State<Integer> {
 
   @Override
   public List<Integer> validMoves() {
-    return validMoves;
+    return MOVE_LISTS[open];
+  }
+
+  @Override
+  public int maxValidMoves() {
+    return 9;
+  }
+
+  @Override
+  public int validMoves(int[] moves) {
+    int count = 0;
+    for (int rest = open; rest != 0; rest &= rest - 1) {
+      moves[count++] = Integer.numberOfTrailingZeros(rest);
+    }
+    return count;
+  }
+
+  @Override
+  public void forEachValidMove(IntConsumer action) {
+    for (int rest = open; rest != 0; rest &= rest - 1) {
+      action.accept(Integer.numberOfTrailingZeros(rest));
+    }
+  }
+
+  @Override
+  public boolean isValidMove(int m) {
+    return m >= 0 && m < 9 && (open & (1 << m)) != 0;
+  }
+
+  @Override
+  public int validMove(int index) {
+    int rest = open;
+    for (int i = 0; i < index && rest != 0; i++) {
+      rest &= rest - 1;
+    }
+    return rest == 0 || index < 0 ? NO_MOVE : Integer.numberOfTrailingZeros(rest);
+  }
+
+  @Override
+  public int validMoveIndex(int m) {
+    return Integer.bitCount(open & ((1 << m) - 1));
+  }
+
+  @Override
+  public long canonicalKey() {
+    int x = 0;
+    int o = 0;
+    for (int i = 0; i < 9; i++) {
+      final int spot = (board >>> (i << 1)) & 3;
+      x |= (spot >>> 1) << i;
+      o |= (spot & 1) << i;
+    }
+    int best = Integer.MAX_VALUE;
+    for (int s = 0; s < Symmetry.COUNT; s++) {
+      final int image = MASKS[s][x] | (MASKS[s][o] << 9);
+      if (image < best) {
+        best = image;
+        symmetry = s;
+      }
+    }
+    return Symmetry.mix(best);
+  }
+
+  @Override
+  public int canonicalSymmetry() {
+    return symmetry;
+  }
+
+  @Override
+  public int toCanonical(int index, int symmetry) {
+    final int spot = CELLS[symmetry][validMove(index)];
+    return Integer.bitCount(MASKS[symmetry][open] & ((1 << spot) - 1));
+  }
+
+  @Override
+  public int fromCanonical(int index, int symmetry) {
+    int rest = MASKS[symmetry][open];
+    for (int i = 0; i < index; i++) {
+      rest &= rest - 1;
+    }
+    return validMoveIndex(INVERSES[symmetry][Integer.numberOfTrailingZeros(rest)]);
   }
 
   public int board() {
     return board;
   }
 
+  @Override
+  public long zobristKey() {
+    return key;
+  }
+
   /**
    * Blindly plays {@code m} and returns whether the act resulted in a victory.
    */
-  private boolean moveAndCheck(int cacheCopy, Integer m, int offset, int boardOffset) {
+  private boolean moveAndCheck(int cacheCopy, int m, int offset, int boardOffset) {
     // make move
-    board |= (1 << ((m << 1) + boardOffset));
+    final int bit = (m << 1) + boardOffset;
+    board |= (1 << bit);
+    key ^= ZOBRIST[bit];
+    history |= (long) m << (movesMade << 2);
     movesMade++;
-    validMoves.remove(m);
+    open &= ~(1 << m);
     // update cache
     cacheCopy += INCREMENTS[m];
     cache = (cacheCopy << offset) | (cache & (0xFFFF << (16 - offset)));
@@ -118,8 +253,7 @@ public class TTTState implements State<Integer> {
    * Returns the {@code Piece} that is responsible for the next move,
    * {@code NONE} if the match is over or {@code nextMove} is invalid.
    */
-  protected Piece currentPiece(Integer nextMove) {
-    int m = nextMove.intValue();
+  protected Piece currentPiece(int m) {
     return m < 0 || m > 8 // out of bounds
         || isOver() // match is over
         || ((3 << (m << 1)) & board) != 0 ? // spot is occupied
@@ -129,7 +263,7 @@ public class TTTState implements State<Integer> {
   }
 
   @Override
-  public final boolean makeMove(Integer m) {
+  public final boolean makeMove(int m) {
     final Piece p = currentPiece(m);
     if (p == Piece.NONE) {
       return false;
@@ -148,14 +282,47 @@ public class TTTState implements State<Integer> {
     }
     if (moveAndCheck(cacheCopy, m, offset, boardOffset)) {
       winner = p;
-      validMoves.clear();
+      open = 0;
+    }
+    return true;
+  }
+
+  @Override
+  public boolean unmakeMove() {
+    if (movesMade == 0) {
+      return false;
+    }
+    movesMade--;
+    final int m = (int) (history >>> (movesMade << 2)) & 0xF;
+    history &= ~(0xFL << (movesMade << 2));
+    // the piece at m, rather than the parity of movesMade, identifies who
+    // played m, since subclasses may choose pieces differently
+    final int offset;
+    final int boardOffset;
+    if ((board & (2 << (m << 1))) != 0) {
+      offset = 0;
+      boardOffset = 1;
+    } else {
+      offset = 16;
+      boardOffset = 0;
+    }
+    board &= ~(3 << (m << 1));
+    key ^= ZOBRIST[(m << 1) + boardOffset];
+    cache -= INCREMENTS[m] << offset;
+    winner = Piece.NONE;
+    // rebuild rather than reinsert, since a win may have cleared open
+    open = 0;
+    for (int i = 0; i < 9; i++) {
+      if (((3 << (i << 1)) & board) == 0) {
+        open |= 1 << i;
+      }
     }
     return true;
   }
 
   @Override
   public boolean isOver() {
-    return validMoves.isEmpty();
+    return open == 0;
   }
 
   /**
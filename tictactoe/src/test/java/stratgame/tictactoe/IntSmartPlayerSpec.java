@@ -0,0 +1,97 @@
+package stratgame.tictactoe;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import org.testng.annotations.Test;
+import static org.testng.Assert.assertEquals;
+
+public class IntSmartPlayerSpec {
+
+  /**
+   * Adds a copy of {@code state} and of every ongoing position reachable from
+   * it to {@code positions}, each board once.
+   */
+  private static void collect(TTTState state, Set<Integer> seen,
+      List<TTTState> positions) {
+    if (state.isOver() || !seen.add(state.board())) {
+      return;
+    }
+    positions.add(state.clone());
+    for (int m = 0; m < 9; m++) {
+      if (state.makeMove(m)) {
+        collect(state, seen, positions);
+        state.unmakeMove();
+      }
+    }
+  }
+
+  private static List<TTTState> positions() {
+    final List<TTTState> positions = new ArrayList<>();
+    collect(new TTTState(), new HashSet<>(), positions);
+    return positions;
+  }
+
+  private static Piece toMove(TTTState state) {
+    return state.movesMade() % 2 == 0 ? Piece.X : Piece.O;
+  }
+
+  /**
+   * Checks that an {@link IntSmartPlayer}, once passed to {@code configure},
+   * picks a move of the same value as {@link SmartPlayer} in every ongoing
+   * position.
+   */
+  private static void check(Consumer<IntSmartPlayer> configure) {
+    final IntSmartPlayer intX = new IntSmartPlayer(Piece.X);
+    final IntSmartPlayer intO = new IntSmartPlayer(Piece.O);
+    configure.accept(intX);
+    configure.accept(intO);
+    final SmartPlayer smartX = new SmartPlayer(Piece.X);
+    final SmartPlayer smartO = new SmartPlayer(Piece.O);
+    final List<TTTState> positions = positions();
+    assertEquals(positions.size(), 4520);
+    for (TTTState state : positions) {
+      final boolean x = toMove(state) == Piece.X;
+      final SmartPlayer smart = x ? smartX : smartO;
+      smart.decide(state);
+      final int board = state.board();
+      final Integer m = (x ? intX : intO).decide(state);
+      // the search restores the state it walks
+      assertEquals(state.board(), board);
+      assertEquals(state.makeMove(m), true);
+      assertEquals(-Oracle.value(state.board()), smart.value(), "board " + board);
+      state.unmakeMove();
+    }
+  }
+
+  @Test
+  public void testLazy() {
+    check(player -> { });
+  }
+
+  @Test
+  public void testEager() {
+    check(player -> player.lazy(false));
+  }
+
+  @Test
+  public void testIterativeDeepening() {
+    check(player -> player.maxDepth(9));
+  }
+
+  @Test
+  public void testNoTable() {
+    check(player -> player.transpositionTable(null));
+  }
+
+  @Test
+  public void testFinishedState() {
+    final TTTState state = new TTTState();
+    for (int m : new int[]{0, 3, 1, 4, 2}) {
+      state.makeMove(m);
+    }
+    assertEquals(new IntSmartPlayer(Piece.O).decide(state), null);
+  }
+}
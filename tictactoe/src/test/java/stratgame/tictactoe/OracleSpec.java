@@ -0,0 +1,92 @@
+package stratgame.tictactoe;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.testng.annotations.Test;
+import static org.testng.Assert.assertEquals;
+
+public class OracleSpec {
+
+  /**
+   * Returns the negamax value of {@code state} for the player to move, on the
+   * scale of {@link SmartPlayer}, and checks the {@link Oracle} on {@code
+   * state} and every board reachable from it that is not in {@code seen}.
+   */
+  private static int check(TTTState state, Set<Integer> seen) {
+    int best;
+    int bestMove = -1;
+    if (state.isOver()) {
+      best = state.winner() == Piece.NONE ? 0 : -(9 - state.movesMade() + 1);
+    } else {
+      best = Integer.MIN_VALUE;
+      for (int m = 0; m < 9; m++) {
+        if (state.makeMove(m)) {
+          final int value = -check(state, seen);
+          state.unmakeMove();
+          if (value > best) {
+            best = value;
+            bestMove = m;
+          }
+        }
+      }
+    }
+    if (seen.add(state.board())) {
+      assertEquals(Oracle.value(state.board()), best);
+      assertEquals(Oracle.move(state.board()), bestMove);
+    }
+    return best;
+  }
+
+  @Test
+  public void testReachableBoards() {
+    final Set<Integer> seen = new HashSet<>();
+    assertEquals(check(new TTTState(), seen), 0);
+    int ongoing = 0;
+    for (int board : seen) {
+      if (Oracle.move(board) != -1) {
+        ongoing++;
+      }
+    }
+    assertEquals(seen.size(), 5478);
+    assertEquals(ongoing, 4520);
+  }
+
+  @Test
+  public void testSmartPlayer() {
+    final SmartPlayer[] players = {
+      new SmartPlayer(Piece.X), new SmartPlayer(Piece.O)
+    };
+    int ongoing = 0;
+    final List<TTTState> pending = new ArrayList<>();
+    final Set<Integer> seen = new HashSet<>();
+    pending.add(new TTTState());
+    while (!pending.isEmpty()) {
+      final TTTState state = pending.remove(pending.size() - 1);
+      if (state.isOver() || !seen.add(state.board())) {
+        continue;
+      }
+      ongoing++;
+      final Integer move = players[state.movesMade() & 1].decide(state);
+      assertEquals((int) move, Oracle.move(state.board()), "board " + state.board());
+      for (int m = 0; m < 9; m++) {
+        final TTTState next = state.clone();
+        if (next.makeMove(m)) {
+          pending.add(next);
+        }
+      }
+    }
+    assertEquals(ongoing, 4520);
+  }
+
+  @Test
+  public void testFinishedState() {
+    final TTTState state = new TTTState();
+    for (int m : new int[]{0, 3, 1, 4, 2}) {
+      state.makeMove(m);
+    }
+    assertEquals(new OraclePlayer().decide(state), null);
+    assertEquals(new OraclePlayer().decide(new TTTState()), (Integer) Oracle.move(0));
+  }
+}
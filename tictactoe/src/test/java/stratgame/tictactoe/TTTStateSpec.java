@@ -1,7 +1,12 @@
 package stratgame.tictactoe;
 
+import java.util.Arrays;
+import java.util.Random;
 import org.testng.annotations.Test;
+import stratgame.game.IntState;
+import stratgame.game.Symmetry;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
 
 public class TTTStateSpec {
 
@@ -95,4 +100,116 @@ public class TTTStateSpec {
     state.makeMove(5); state.makeMove(6);
     assertEquals(state.winner(), Piece.O);
   }
+
+  @Test
+  public void testZobristKey() {
+    final TTTState state = new TTTState();
+    state.makeMove(0); state.makeMove(4);
+    state.makeMove(8);
+    // same position, different move order
+    final TTTState transposed = new TTTState();
+    transposed.makeMove(8); transposed.makeMove(4);
+    transposed.makeMove(0);
+    assertEquals(state.zobristKey(), transposed.zobristKey());
+    // same spots, different pieces
+    final TTTState swapped = new TTTState();
+    swapped.makeMove(0); swapped.makeMove(8);
+    swapped.makeMove(4);
+    assertNotEquals(state.zobristKey(), swapped.zobristKey());
+    assertNotEquals(state.zobristKey(), new TTTState().zobristKey());
+  }
+
+  @Test
+  public void testUnmakeMove() {
+    final TTTState state = new TTTState();
+    assertEquals(state.unmakeMove(), false);
+    state.makeMove(0); state.makeMove(3);
+    state.makeMove(1); state.makeMove(4);
+    final long key = state.zobristKey();
+    final int board = state.board();
+    state.makeMove(2);
+    assertEquals(state.winner(), Piece.X);
+    // reverting the win reopens every empty spot, in order
+    assertEquals(state.unmakeMove(), true);
+    assertEquals(state.winner(), Piece.NONE);
+    assertEquals(state.isOver(), false);
+    assertEquals(state.movesMade(), 4);
+    assertEquals(state.board(), board);
+    assertEquals(state.zobristKey(), key);
+    assertEquals(state.validMoves(), Arrays.asList(2, 5, 6, 7, 8));
+    // X plays elsewhere, so O can now win instead
+    state.makeMove(8); state.makeMove(5);
+    assertEquals(state.winner(), Piece.O);
+    while (state.unmakeMove()) { }
+    assertEquals(state.movesMade(), 0);
+    assertEquals(state.zobristKey(), new TTTState().zobristKey());
+    assertEquals(state.validMoves().size(), 9);
+  }
+
+  @Test
+  public void testIntMoves() {
+    final TTTState state = new TTTState();
+    state.makeMove(4); state.makeMove(0);
+    state.makeMove(8);
+    final int[] moves = new int[state.maxValidMoves()];
+    assertEquals(state.validMoves(moves), 6);
+    assertEquals(state.validMoves(), Arrays.asList(1, 2, 3, 5, 6, 7));
+    for (int i = 0; i < 6; i++) {
+      assertEquals(moves[i], state.validMoves().get(i).intValue());
+      assertEquals(state.validMove(i), moves[i]);
+      assertEquals(state.validMoveIndex(moves[i]), i);
+    }
+    assertEquals(state.validMove(6), IntState.NO_MOVE);
+    assertEquals(state.isValidMove(3), true);
+    assertEquals(state.isValidMove(4), false);
+    assertEquals(state.isValidMove(9), false);
+    assertEquals(state.isValidMove(IntState.NO_MOVE), false);
+    // a win leaves no valid moves
+    state.makeMove(2); state.makeMove(6);
+    state.makeMove(1); state.makeMove(7);
+    assertEquals(state.winner(), Piece.O);
+    assertEquals(state.validMoves(moves), 0);
+    assertEquals(state.validMove(0), IntState.NO_MOVE);
+    assertEquals(state.isValidMove(3), false);
+  }
+
+  @Test
+  public void testCanonicalKey() {
+    final int[][] cells = Symmetry.cells(3);
+    final Random random = new Random(18);
+    for (int s = 0; s < Symmetry.COUNT; s++) {
+      // play the same game on a board and on its image under s
+      final TTTState state = new TTTState();
+      final TTTState image = new TTTState();
+      while (!state.isOver()) {
+        assertEquals(image.canonicalKey(), state.canonicalKey());
+        final int count = state.validMoves().size();
+        for (int i = 0; i < count; i++) {
+          final int symmetry = state.canonicalSymmetry();
+          final int canonical = state.toCanonical(i, symmetry);
+          assertEquals(state.fromCanonical(canonical, symmetry), i);
+          // the move maps to one that leads to an equivalent position
+          final TTTState next = state.clone();
+          final TTTState imageNext = image.clone();
+          next.makeMove(state.validMove(i));
+          imageNext.makeMove(image.validMove(
+              image.fromCanonical(canonical, image.canonicalSymmetry())));
+          assertEquals(imageNext.canonicalKey(), next.canonicalKey());
+        }
+        final int m = state.validMove(random.nextInt(count));
+        state.makeMove(m);
+        image.makeMove(cells[s][m]);
+      }
+    }
+    // opposite corners, pieces swapped: a half turn of the board
+    final TTTState state = new TTTState();
+    state.makeMove(0); state.makeMove(8);
+    final TTTState turned = new TTTState();
+    turned.makeMove(8); turned.makeMove(0);
+    assertEquals(turned.canonicalKey(), state.canonicalKey());
+    assertNotEquals(turned.zobristKey(), state.zobristKey());
+    final TTTState other = new TTTState();
+    other.makeMove(0); other.makeMove(4);
+    assertNotEquals(other.canonicalKey(), state.canonicalKey());
+  }
 }
@@ -0,0 +1,323 @@
+package stratgame.ultimate;
+
+import java.util.function.Supplier;
+import stratgame.ai.ArrayTranspositionTable;
+import stratgame.ai.IntNegamaxPlayer;
+import stratgame.ai.NegamaxPlayer;
+import stratgame.ai.Outcome;
+import stratgame.game.Benchmarks;
+import stratgame.game.IntState;
+import stratgame.game.RandomPlayer;
+import stratgame.tictactoe.Piece;
+
+/**
+ * Prints search statistics for {@link MonteCarloPlayer} on the opening, for
+ * depth-limited {@link IntNegamaxPlayer} and {@link NegamaxPlayer} on a few
+ * fixed positions, for {@link SmartPlayer} on those positions and in
+ * matches against {@link RandomPlayer}, and for the exact solves of {@link
+ * EndgamePlayer} and {@link ProofPlayer}.
+ */
+public class Benchmark {
+
+  private static final long MILLIS = 2000;
+  private static final int DEPTH = 9;
+  private static final int CANONICAL_DEPTH = 7;
+  private static final int[] PLIES = {0, 10, 20, 30};
+  private static final int MATCHES = 2000;
+  private static final int[] MATCH_DEPTHS = {2, 4, SmartPlayer.DEPTH};
+  private static final int[] EMPTY_CELLS = {12, 16, 20, 24};
+  private static final int ENDGAMES = 10;
+  private static final long PROOF_BUDGET = 1000;
+
+  public static void main(String[] args) {
+    treeParallel();
+    moveGeneration();
+    canonical();
+    heuristic();
+    strength();
+    endgame();
+    proofNumbers();
+  }
+
+  /**
+   * Searches the opening for a fixed time with an increasing number of
+   * tree-parallel threads.
+   */
+  private static void treeParallel() {
+    System.out.println("== Tree-parallel MCTS: " + MILLIS + " ms on opening, "
+        + Runtime.getRuntime().availableProcessors() + " core(s) ==");
+    System.out.println("threads    playouts  playouts/s  speedup   move");
+    final MonteCarloPlayer warm = new MonteCarloPlayer(Piece.X);
+    warm.decide(new UltimateState());
+    double base = 0;
+    for (int threads : Benchmarks.threadCounts()) {
+      final MonteCarloPlayer player = new MonteCarloPlayer(Piece.X);
+      player.playoutBudget(0);
+      player.timeBudget(MILLIS);
+      player.threads(threads);
+      final long start = System.nanoTime();
+      final int move = player.decide(new UltimateState());
+      final double rate = player.playouts() / ((System.nanoTime() - start) / 1e9);
+      if (threads == 1) {
+        base = rate;
+      }
+      System.out.printf("%7d %11d %11.0f %8.2f %6d%n",
+          threads, player.playouts(), rate, rate / base, move);
+    }
+  }
+
+  /**
+   * Searches each position reached by {@link #PLIES} seeded random moves to
+   * {@link #DEPTH} plies, with eager and then lazy move generation, and
+   * counts the moves that the lazy search never generated.
+   */
+  private static void moveGeneration() {
+    System.out.println("== Move generation: depth " + DEPTH + ", eager vs lazy ==");
+    System.out.println("plies      nodes      eager       lazy  skipped   eager ms  lazy ms");
+    for (int warm = 0; warm < 2; warm++) {
+      for (int plies : PLIES) {
+        final BitboardUltimateState state =
+            position(plies, BitboardUltimateState::new);
+        final DepthPlayer player = new DepthPlayer(
+            (plies & 1) == 0 ? Piece.X : Piece.O, DEPTH);
+        long start = System.nanoTime();
+        player.lazy(false);
+        player.decide(state);
+        final double eagerMs = (System.nanoTime() - start) / 1e6;
+        final long eager = player.generated();
+        final long nodes = player.nodes();
+        player.transpositionTable().clear();
+        start = System.nanoTime();
+        player.lazy(true);
+        player.decide(state);
+        final double lazyMs = (System.nanoTime() - start) / 1e6;
+        final long lazy = player.generated();
+        if (warm == 1) {
+          System.out.printf("%5d %10d %10d %10d %7.1f%% %10.1f %8.1f%n", plies,
+              nodes, eager, lazy, 100.0 * (eager - lazy) / eager, eagerMs, lazyMs);
+        }
+      }
+    }
+  }
+
+  /**
+   * Searches each position reached by {@link #PLIES} seeded random moves to
+   * {@link #CANONICAL_DEPTH} plies, with Zobrist and then canonical keys, and
+   * counts the entries left in the table.
+   */
+  private static void canonical() {
+    System.out.println("== Canonical keys: depth " + CANONICAL_DEPTH + " ==");
+    System.out.println("plies  keys             ms       nodes   entries");
+    for (int warm = 0; warm < 2; warm++) {
+      for (int plies : PLIES) {
+        for (boolean canonical : new boolean[]{false, true}) {
+          final BitboardUltimateState state =
+              position(plies, BitboardUltimateState::new);
+          final CanonicalPlayer player = new CanonicalPlayer(
+              (plies & 1) == 0 ? Piece.X : Piece.O);
+          player.canonical(canonical);
+          final long start = System.nanoTime();
+          player.decide(state);
+          final double ms = (System.nanoTime() - start) / 1e6;
+          if (warm == 1) {
+            System.out.printf("%5d  %-11s %9.1f %11d %9d%n", plies,
+                canonical ? "canonical" : "zobrist", ms, player.nodes(),
+                ((ArrayTranspositionTable) player.transpositionTable()).occupancy());
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Searches each position reached by {@link #PLIES} seeded random moves to
+   * {@link SmartPlayer#DEPTH} plies on a single thread.
+   */
+  private static void heuristic() {
+    System.out.println("== SmartPlayer: depth " + SmartPlayer.DEPTH + " ==");
+    System.out.println("plies         ms       nodes     nodes/s   move");
+    for (int warm = 0; warm < 2; warm++) {
+      for (int plies : PLIES) {
+        final UltimateState state = position(plies, UltimateState::new);
+        final SmartPlayer player = new SmartPlayer(
+            (plies & 1) == 0 ? Piece.X : Piece.O);
+        final long start = System.nanoTime();
+        final int move = player.decide(state);
+        final double ms = (System.nanoTime() - start) / 1e6;
+        if (warm == 1) {
+          System.out.printf("%5d %10.1f %11d %11.0f %6d%n", plies, ms,
+              player.nodes(), player.nodes() / (ms / 1e3), move);
+        }
+      }
+    }
+  }
+
+  /**
+   * Plays {@link #MATCHES} matches between {@link SmartPlayer} and {@link
+   * RandomPlayer} at each of {@link #MATCH_DEPTHS}, alternating who moves
+   * first, and counts the matches that {@code SmartPlayer} wins, draws and
+   * loses.
+   */
+  private static void strength() {
+    System.out.println("== SmartPlayer vs RandomPlayer: " + MATCHES + " matches ==");
+    System.out.println("depth   wins  draws  losses         ms");
+    final RandomPlayer<Integer> random = new RandomPlayer<Integer>(){};
+    for (int depth : MATCH_DEPTHS) {
+      final SmartPlayer[] players = {
+          new SmartPlayer(Piece.X), new SmartPlayer(Piece.O)};
+      for (SmartPlayer player : players) {
+        player.maxDepth(depth);
+      }
+      final int[] results = new int[3];
+      final long start = System.nanoTime();
+      for (int i = 0; i < MATCHES; i++) {
+        final SmartPlayer smart = players[i & 1];
+        final Piece piece = (i & 1) == 0 ? Piece.X : Piece.O;
+        final UltimateState state = new UltimateState();
+        while (!state.isOver()) {
+          state.makeMove((state.movesMade() & 1) == (i & 1)
+              ? smart.decide(state.clone()) : random.decide(state));
+        }
+        results[state.winner() == piece ? 0
+            : state.winner() == Piece.NONE ? 1 : 2]++;
+      }
+      System.out.printf("%5d %6d %6d %7d %10.1f%n", depth, results[0],
+          results[1], results[2], (System.nanoTime() - start) / 1e6);
+    }
+  }
+
+  /**
+   * Solves {@link #ENDGAMES} positions with at most each of {@link
+   * #EMPTY_CELLS} empty spots in their ongoing local games, reached by seeded
+   * random moves, and reports the time taken by each solve.
+   */
+  private static void endgame() {
+    System.out.println("== Endgame solves: " + ENDGAMES + " positions each ==");
+    System.out.println("empty    mean ms     max ms   mean nodes");
+    for (int warm = 0; warm < 2; warm++) {
+      for (int empty : EMPTY_CELLS) {
+        double total = 0;
+        double max = 0;
+        long nodes = 0;
+        int solved = 0;
+        for (long seed = 0; solved < ENDGAMES; seed++) {
+          final UltimateState state =
+              Positions.endgame(empty, seed, UltimateState::new);
+          if (state == null) {
+            continue;
+          }
+          final Piece piece = (state.movesMade() & 1) == 0 ? Piece.X : Piece.O;
+          // the threshold is never exceeded, so the midgame player never moves
+          final EndgamePlayer player = new EndgamePlayer(piece,
+              new MonteCarloPlayer(piece));
+          player.threshold(empty);
+          player.decide(state);
+          total += player.solveMillis();
+          max = Math.max(max, player.solveMillis());
+          nodes += player.solveNodes();
+          solved++;
+        }
+        if (warm == 1) {
+          System.out.printf("%5d %10.1f %10.1f %12d%n", empty, total / ENDGAMES,
+              max, nodes / ENDGAMES);
+        }
+      }
+    }
+  }
+
+  /**
+   * Proves the outcome of the same positions as {@link #endgame()} with a
+   * {@link ProofPlayer}, and counts the outcomes proven.  Each position is
+   * then searched afresh for only {@link #PROOF_BUDGET} nodes, and the root's
+   * proof and disproof numbers are averaged over the positions that such a
+   * search leaves unsettled.
+   */
+  private static void proofNumbers() {
+    System.out.println("== Proof-number search: " + ENDGAMES + " positions each ==");
+    System.out.println("empty    mean ms     max ms   mean nodes     nodes/s  wins draws losses"
+        + "  open    mean pn    mean dn");
+    final ProofPlayer[] players = {new ProofPlayer(Piece.X), new ProofPlayer(Piece.O)};
+    for (int warm = 0; warm < 2; warm++) {
+      for (int empty : EMPTY_CELLS) {
+        double total = 0;
+        double max = 0;
+        long nodes = 0;
+        final int[] outcomes = new int[Outcome.values().length];
+        int open = 0;
+        long proofNumbers = 0;
+        long disproofNumbers = 0;
+        int solved = 0;
+        for (long seed = 0; solved < ENDGAMES; seed++) {
+          final UltimateState state =
+              Positions.endgame(empty, seed, UltimateState::new);
+          if (state == null) {
+            continue;
+          }
+          final ProofPlayer player = players[state.movesMade() & 1];
+          player.clear();
+          player.nodeBudget(0);
+          final long start = System.nanoTime();
+          player.decide(state);
+          final double ms = (System.nanoTime() - start) / 1e6;
+          total += ms;
+          max = Math.max(max, ms);
+          nodes += player.nodes();
+          outcomes[player.outcome().ordinal()]++;
+          // a budgeted search shows the numbers of a root not yet settled
+          player.clear();
+          player.nodeBudget(PROOF_BUDGET);
+          player.decide(state);
+          if (player.outcome() == Outcome.UNKNOWN) {
+            open++;
+            proofNumbers += player.proofNumber();
+            disproofNumbers += player.disproofNumber();
+          }
+          solved++;
+        }
+        if (warm == 1) {
+          System.out.printf("%5d %10.1f %10.1f %12d %11.0f %5d %5d %6d %5d %10s %10s%n",
+              empty, total / ENDGAMES, max, nodes / ENDGAMES, nodes / (total / 1e3),
+              outcomes[Outcome.WIN.ordinal()], outcomes[Outcome.DRAW.ordinal()],
+              outcomes[Outcome.LOSS.ordinal()], open,
+              open == 0 ? "-" : String.valueOf(proofNumbers / open),
+              open == 0 ? "-" : String.valueOf(disproofNumbers / open));
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the position after {@code plies} random moves from a seeded
+   * generator, starting from {@code empty}, retrying with the next seed
+   * whenever the match ends first.
+   */
+  private static <S extends IntState> S position(int plies, Supplier<S> empty) {
+    for (long seed = plies; ; seed++) {
+      final S state = Positions.random(plies, seed, empty);
+      if (state != null) {
+        return state;
+      }
+    }
+  }
+
+  /**
+   * {@link NegamaxPlayer} that values a position by {@link
+   * DepthPlayer#value(BitboardUltimateState, Piece)}.
+   */
+  private static class CanonicalPlayer
+      extends NegamaxPlayer<Integer, Piece, BitboardUltimateState> {
+
+    CanonicalPlayer(Piece piece) {
+      this.piece = piece;
+      transpositionTable(new ArrayTranspositionTable(1 << 20));
+      inPlace(true);
+      ordering(true);
+      maxDepth(CANONICAL_DEPTH);
+    }
+
+    @Override
+    public int terminalValue(BitboardUltimateState s) {
+      return DepthPlayer.value(s, piece);
+    }
+  }
+}
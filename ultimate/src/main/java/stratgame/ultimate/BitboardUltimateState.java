@@ -0,0 +1,536 @@
+package stratgame.ultimate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+import stratgame.game.State;
+import stratgame.game.Symmetric;
+import stratgame.game.Symmetry;
+import stratgame.game.Zobrist;
+import stratgame.tictactoe.Piece;
+
+/**
+ * Alternative to {@link UltimateState} that captures the match in a handful of
+ * primitive words.  It accepts and produces the same moves (see {@link
+ * UltimateState#project(int, int)}), in the same order, and shares its {@link
+ * Zobrist} keys, so the two are interchangeable.
+ * <p>
+ * Each of the 81 spots, numbered {@code 9 * outer + inner}, is assigned one bit
+ * of a pair of {@code longs}: spots 0 to 62 (local games 0 to 6) in the
+ * {@code Lo} word and spots 63 to 80 (local games 7 and 8) in the {@code Hi}
+ * word.  Two such pairs, {@code x} and {@code o}, capture every mark on the
+ * board, and a third pair, {@code legal}, is the mask of spots that may be
+ * played next ({@code 0} once the match is over).  Valid moves are therefore
+ * the set bits of {@code legal}, and {@link #isOver()} a single comparison.
+ * <p>
+ * A single {@code int}, {@code meta}, is the 3x3 board of local games: the
+ * games won by X in its lowest 9 bits, those won by O in the next 9, and those
+ * that are over (won or drawn) in the next 9.  Precomputed tables determine
+ * the spots of any set of local games, {@code SPOTS_LO} and {@code SPOTS_HI},
+ * while whether a 9-bit mask completes a line, {@code LINE}, the symmetries of
+ * the grid and the {@link Zobrist} keys are the very tables of {@code
+ * UltimateState}.
+ * <p>
+ * A {@code byte[]}, {@code history}, records the spot of every move played so
+ * far so that {@link #unmakeMove()} can revert them.  Copies share it until
+ * either plays a move, so that {@link #clone()} only copies a few words: a copy
+ * marks both itself and its source as {@code shared}, and whichever plays next
+ * copies the array first.
+ * <p>
+ * Canonical keys, too, match those of {@code UltimateState}: every local game
+ * is converted to the same base-3 grid before hashing.  So does {@link
+ * #heuristic()}, which is kept up to date in the same way.
+ */
+public class BitboardUltimateState implements UltimateBoard, Symmetric {
+
+  private long xLo, xHi; // spots marked by X
+  private long oLo, oHi; // spots marked by O
+  private long legalLo, legalHi; // spots playable next
+  private int meta; // local games won by X, won by O, and over
+  private int movesMade; // moves made so far
+  private int previous; // previous move
+  private Piece winner; // winner as of current turn
+  private long key; // Zobrist hash of match state
+  private byte[] history; // spots played so far
+  private boolean shared; // whether another copy may read history
+  private int symmetry; // symmetry found by canonicalKey
+  private int localValue; // sum of UltimateState.THREATS over the local games
+  private int metaValue; // heuristic value of the meta board
+
+  private static final long[] ZOBRIST = UltimateState.ZOBRIST;
+  private static final int PREVIOUS_KEYS = UltimateState.PREVIOUS_KEYS;
+
+  private static final int LOCAL = 0x1FF; // the spots (or games) of a board
+  private static final int O_WON = 9; // offset of O's games in meta
+  private static final int OVER = 18; // offset of finished games in meta
+
+  private static final boolean[] LINE = UltimateState.LINE;
+  private static final long[] SPOTS_LO = new long[1 << 9];
+  private static final long[] SPOTS_HI = new long[1 << 9];
+  private static final Integer[] MOVES = new Integer[81];
+
+  private static final int[][] CELLS = UltimateState.CELLS;
+  private static final int[][] INVERSES = UltimateState.INVERSES;
+  private static final int[][] MASKS = UltimateState.MASKS;
+  private static final int[] BASE_3 = new int[1 << 9]; // mask as base-3 digits
+
+  static {
+    for (int mask = 0; mask < BASE_3.length; mask++) {
+      for (int i = 0, power = 1; i < 9; i++, power *= 3) {
+        BASE_3[mask] += (mask >>> i & 1) * power;
+      }
+      for (int outer = 0; outer < 9; outer++) {
+        if ((mask & (1 << outer)) != 0) {
+          SPOTS_LO[mask] |= outer < 7 ? (long) LOCAL << (9 * outer) : 0L;
+          SPOTS_HI[mask] |= outer < 7 ? 0L : (long) LOCAL << (9 * (outer - 7));
+        }
+      }
+    }
+    for (int spot = 0; spot < 81; spot++) {
+      MOVES[spot] = UltimateState.project(spot / 9, spot % 9);
+    }
+  }
+
+  public BitboardUltimateState() {
+    this.legalLo = SPOTS_LO[LOCAL];
+    this.legalHi = SPOTS_HI[LOCAL];
+    this.previous = 0xFFFFFFFF;
+    this.winner = Piece.NONE;
+    this.history = new byte[81];
+  }
+
+  /**
+   * Copy constructor.  Though {@code s} is otherwise untouched, it is marked as
+   * sharing its history, so that its next move copies the history rather than
+   * overwriting that of the copy; copying a state is thus not safe while
+   * another thread uses it.
+   */
+  public BitboardUltimateState(BitboardUltimateState s) {
+    this.xLo = s.xLo;
+    this.xHi = s.xHi;
+    this.oLo = s.oLo;
+    this.oHi = s.oHi;
+    this.legalLo = s.legalLo;
+    this.legalHi = s.legalHi;
+    this.meta = s.meta;
+    this.movesMade = s.movesMade;
+    this.previous = s.previous;
+    this.winner = s.winner;
+    this.key = s.key;
+    this.history = s.history;
+    this.localValue = s.localValue;
+    this.metaValue = s.metaValue;
+    this.shared = true;
+    s.shared = true;
+  }
+
+  /**
+   * Copy constructor.
+   */
+  public BitboardUltimateState(State<Integer> s) {
+    this((BitboardUltimateState) s);
+  }
+
+  @Override
+  public BitboardUltimateState clone() {
+    return new BitboardUltimateState(this);
+  }
+
+  @Override
+  public int movesMade() {
+    return movesMade;
+  }
+
+  @Override
+  public Piece winner() {
+    return winner;
+  }
+
+  /**
+   * Returns the mask of local games won by {@code piece}, with game {@code
+   * outer} at bit {@code outer}.
+   */
+  public int won(Piece piece) {
+    return piece == Piece.X ? meta & LOCAL
+        : piece == Piece.O ? (meta >>> O_WON) & LOCAL : 0;
+  }
+
+  /**
+   * Returns the same heuristic value of this match for X as {@link
+   * UltimateState#heuristic()}.
+   */
+  public int heuristic() {
+    return localValue + metaValue;
+  }
+
+  /**
+   * Returns the {@code UltimateState.THREATS} of local game {@code outer}.
+   */
+  private int threats(int outer) {
+    return UltimateState.THREATS[2 * BASE_3[local(xLo, xHi, outer)]
+        + BASE_3[local(oLo, oHi, outer)]];
+  }
+
+  /**
+   * Recomputes {@code metaValue}.
+   */
+  private void updateMetaValue() {
+    metaValue = UltimateState.metaValue(meta & LOCAL, (meta >>> O_WON) & LOCAL,
+        ~(meta >>> OVER) & LOCAL);
+  }
+
+  /**
+   * Returns the same number of empty spots in ongoing local games as {@link
+   * UltimateState#emptyCells()}.
+   */
+  @Override
+  public int emptyCells() {
+    if (isOver()) {
+      return 0;
+    }
+    final int open = ~(meta >>> OVER) & LOCAL;
+    return Long.bitCount(SPOTS_LO[open] & ~(xLo | oLo))
+        + Long.bitCount(SPOTS_HI[open] & ~(xHi | oHi));
+  }
+
+  /**
+   * Returns whether playing {@code m} sends the opponent to a local game that
+   * is already over, thus granting them a free choice of local game.
+   */
+  @Override
+  public boolean grantsFreeChoice(int m) {
+    return (meta & (1 << (OVER + inner(m)))) != 0;
+  }
+
+  @Override
+  public long zobristKey() {
+    return key;
+  }
+
+  @Override
+  public List<Integer> validMoves() {
+    final ArrayList<Integer> result =
+        new ArrayList<>(Long.bitCount(legalLo) + Long.bitCount(legalHi));
+    for (long lo = legalLo; lo != 0; lo &= lo - 1) {
+      result.add(MOVES[Long.numberOfTrailingZeros(lo)]);
+    }
+    for (long hi = legalHi; hi != 0; hi &= hi - 1) {
+      result.add(MOVES[63 + Long.numberOfTrailingZeros(hi)]);
+    }
+    return result;
+  }
+
+  @Override
+  public int maxValidMoves() {
+    return 81;
+  }
+
+  @Override
+  public int validMoves(int[] moves) {
+    int count = 0;
+    for (long lo = legalLo; lo != 0; lo &= lo - 1) {
+      moves[count++] = MOVES[Long.numberOfTrailingZeros(lo)];
+    }
+    for (long hi = legalHi; hi != 0; hi &= hi - 1) {
+      moves[count++] = MOVES[63 + Long.numberOfTrailingZeros(hi)];
+    }
+    return count;
+  }
+
+  @Override
+  public void forEachValidMove(IntConsumer action) {
+    for (long lo = legalLo; lo != 0; lo &= lo - 1) {
+      action.accept(MOVES[Long.numberOfTrailingZeros(lo)]);
+    }
+    for (long hi = legalHi; hi != 0; hi &= hi - 1) {
+      action.accept(MOVES[63 + Long.numberOfTrailingZeros(hi)]);
+    }
+  }
+
+  @Override
+  public boolean isValidMove(int m) {
+    final int outer = outer(m);
+    final int inner = inner(m);
+    if (outer > 8 || inner > 8) {
+      return false;
+    }
+    final int spot = 9 * outer + inner;
+    return spot < 63 ? (legalLo & (1L << spot)) != 0
+        : (legalHi & (1L << (spot - 63))) != 0;
+  }
+
+  @Override
+  public int validMove(int index) {
+    final int low = Long.bitCount(legalLo);
+    if (index < 0 || index >= low + Long.bitCount(legalHi)) {
+      return NO_MOVE;
+    }
+    long rest = index < low ? legalLo : legalHi;
+    for (int i = index < low ? index : index - low; i > 0; i--) {
+      rest &= rest - 1;
+    }
+    return MOVES[(index < low ? 0 : 63) + Long.numberOfTrailingZeros(rest)];
+  }
+
+  @Override
+  public int validMoveIndex(int m) {
+    final int spot = 9 * outer(m) + inner(m);
+    return spot < 63 ? Long.bitCount(legalLo & ((1L << spot) - 1))
+        : Long.bitCount(legalLo) + Long.bitCount(legalHi & ((1L << (spot - 63)) - 1));
+  }
+
+  @Override
+  public boolean makeMove(int m) {
+    final int outer = outer(m);
+    final int inner = inner(m);
+    if (outer > 8 || inner > 8) {
+      return false;
+    }
+    final int spot = 9 * outer + inner;
+    final boolean x = (movesMade & 1) == 0;
+    final int before = threats(outer);
+    if (spot < 63) {
+      final long bit = 1L << spot;
+      if ((legalLo & bit) == 0) {
+        return false;
+      }
+      if (x) {
+        xLo |= bit;
+      } else {
+        oLo |= bit;
+      }
+    } else {
+      final long bit = 1L << (spot - 63);
+      if ((legalHi & bit) == 0) {
+        return false;
+      }
+      if (x) {
+        xHi |= bit;
+      } else {
+        oHi |= bit;
+      }
+    }
+    // update key, previous, and history
+    key ^= ZOBRIST[(spot << 1) + (x ? 1 : 0)];
+    key ^= forcedKey();
+    previous = m;
+    if (shared) {
+      history = Arrays.copyOf(history, 81);
+      shared = false;
+    }
+    history[movesMade++] = (byte) spot;
+    localValue += threats(outer) - before;
+    // update the meta board if the local game just ended
+    final int mine = local(x ? xLo : oLo, x ? xHi : oHi, outer);
+    if (LINE[mine]) {
+      meta |= (1 << (OVER + outer)) | (1 << ((x ? 0 : O_WON) + outer));
+      if (LINE[(meta >>> (x ? 0 : O_WON)) & LOCAL]) {
+        winner = x ? Piece.X : Piece.O;
+      }
+      updateMetaValue();
+    } else if ((mine | local(x ? oLo : xLo, x ? oHi : xHi, outer)) == LOCAL) {
+      meta |= 1 << (OVER + outer);
+      updateMetaValue();
+    }
+    // only now is it known whether m closed the game that it forces play into
+    key ^= forcedKey();
+    updateLegal();
+    return true;
+  }
+
+  @Override
+  public boolean unmakeMove() {
+    if (movesMade == 0) {
+      return false;
+    }
+    key ^= forcedKey();
+    final int spot = history[--movesMade];
+    final int outer = spot / 9;
+    final boolean x = (movesMade & 1) == 0;
+    // the local game of this move is either over because of it, or ongoing
+    if ((meta & (1 << (OVER + outer))) != 0) {
+      meta &= ~((1 << outer) | (1 << (O_WON + outer)) | (1 << (OVER + outer)));
+      updateMetaValue();
+    }
+    final int before = threats(outer);
+    if (spot < 63) {
+      xLo &= ~(1L << spot);
+      oLo &= ~(1L << spot);
+    } else {
+      xHi &= ~(1L << (spot - 63));
+      oHi &= ~(1L << (spot - 63));
+    }
+    localValue += threats(outer) - before;
+    winner = Piece.NONE;
+    key ^= ZOBRIST[(spot << 1) + (x ? 1 : 0)];
+    if (movesMade > 0) {
+      final int prior = history[movesMade - 1];
+      previous = UltimateState.project(prior / 9, prior % 9);
+    } else {
+      previous = 0xFFFFFFFF;
+    }
+    key ^= forcedKey();
+    updateLegal();
+    return true;
+  }
+
+  /**
+   * Returns the key of the local game that play is forced into, or {@code 0L}
+   * if the next player has a free choice of local game, as {@code
+   * UltimateState} does.
+   */
+  private long forcedKey() {
+    final int forced = inner(previous);
+    return previous == 0xFFFFFFFF || (meta & (1 << (OVER + forced))) != 0 ? 0L
+        : ZOBRIST[PREVIOUS_KEYS + forced];
+  }
+
+  /**
+   * Recomputes {@code legalLo} and {@code legalHi}.
+   */
+  private void updateLegal() {
+    final int games = games();
+    legalLo = ~(xLo | oLo) & SPOTS_LO[games];
+    legalHi = ~(xHi | oHi) & SPOTS_HI[games];
+  }
+
+  /**
+   * Returns the mask of local games in which a move may be played this turn.
+   */
+  private int games() {
+    final int over = meta >>> OVER;
+    if (winner != Piece.NONE) {
+      return 0;
+    } else if (previous != 0xFFFFFFFF && (over & (1 << inner(previous))) == 0) {
+      return 1 << inner(previous);
+    }
+    return ~over & LOCAL;
+  }
+
+  @Override
+  public long canonicalKey() {
+    final int forced = inner(previous);
+    final boolean free = previous == 0xFFFFFFFF || (meta & (1 << (OVER + forced))) != 0;
+    long best = 0L;
+    for (int s = 0; s < Symmetry.COUNT; s++) {
+      final int[] inverse = INVERSES[s];
+      final int[] masks = MASKS[s];
+      long hash = free ? 9 : CELLS[s][forced];
+      for (int cell = 0; cell < 9; cell++) {
+        final int outer = inverse[cell];
+        final int grid = 2 * BASE_3[masks[local(xLo, xHi, outer)]]
+            + BASE_3[masks[local(oLo, oHi, outer)]];
+        hash = hash * 0x9E3779B97F4A7C15L + grid;
+      }
+      hash = Symmetry.mix(hash);
+      if (s == 0 || Long.compareUnsigned(hash, best) < 0) {
+        best = hash;
+        symmetry = s;
+      }
+    }
+    return best;
+  }
+
+  @Override
+  public int canonicalSymmetry() {
+    return symmetry;
+  }
+
+  @Override
+  public int toCanonical(int index, int symmetry) {
+    final int m = validMove(index);
+    final int outer = CELLS[symmetry][outer(m)];
+    final int inner = CELLS[symmetry][inner(m)];
+    int result = Integer.bitCount(
+        MASKS[symmetry][empty(outer(m))] & ((1 << inner) - 1));
+    for (int rest = MASKS[symmetry][games()] & ((1 << outer) - 1); rest != 0; rest &= rest - 1) {
+      result += Integer.bitCount(empty(INVERSES[symmetry][Integer.numberOfTrailingZeros(rest)]));
+    }
+    return result;
+  }
+
+  @Override
+  public int fromCanonical(int index, int symmetry) {
+    for (int rest = MASKS[symmetry][games()]; rest != 0; rest &= rest - 1) {
+      final int outer = INVERSES[symmetry][Integer.numberOfTrailingZeros(rest)];
+      final int empty = empty(outer);
+      if (index < Integer.bitCount(empty)) {
+        int image = MASKS[symmetry][empty];
+        for (; index > 0; index--) {
+          image &= image - 1;
+        }
+        final int inner = INVERSES[symmetry][Integer.numberOfTrailingZeros(image)];
+        return validMoveIndex(MOVES[9 * outer + inner]);
+      }
+      index -= Integer.bitCount(empty);
+    }
+    throw new IllegalArgumentException("index must be that of a valid move");
+  }
+
+  /**
+   * Returns the mask of the playable spots of local game {@code outer}.
+   */
+  private int empty(int outer) {
+    return local(legalLo, legalHi, outer);
+  }
+
+  @Override
+  public boolean isOver() {
+    return (legalLo | legalHi) == 0;
+  }
+
+  /**
+   * Returns the 9-bit mask of local game {@code outer} within the spots
+   * {@code lo} and {@code hi}.
+   */
+  private static int local(long lo, long hi, int outer) {
+    return (int) (outer < 7 ? lo >>> (9 * outer) : hi >>> (9 * (outer - 7))) & LOCAL;
+  }
+
+  /**
+   * Returns the local index of the playable move {@code i}.
+   */
+  private static int inner(int i) {
+    return i & 0x0000FFFF;
+  }
+
+  /**
+   * Returns the global index of the playable move {@code i}.
+   */
+  private static int outer(int i) {
+    return i >>> 16;
+  }
+
+  @Override
+  public void debug() {
+    final StringBuilder out = new StringBuilder();
+    for (int row = 0; row < 9; row++) {
+      if (row % 3 == 0) {
+        out.append("=============\n");
+      }
+      for (int col = 0; col < 9; col++) {
+        if (col % 3 == 0) {
+          out.append('|');
+        }
+        final int outer = 3 * (row / 3) + col / 3;
+        final int inner = 3 * (row % 3) + col % 3;
+        final int bit = 1 << inner;
+        if ((meta & (1 << outer)) != 0) {
+          out.append('X'); // local match won by X
+        } else if ((meta & (1 << (O_WON + outer))) != 0) {
+          out.append('O'); // local match won by O
+        } else if ((local(xLo, xHi, outer) & bit) != 0) {
+          out.append('x');
+        } else if ((local(oLo, oHi, outer) & bit) != 0) {
+          out.append('o');
+        } else {
+          out.append((meta & (1 << (OVER + outer))) != 0 ? '/' : '_');
+        }
+      }
+      out.append("|\n");
+    }
+    out.append("=============\n---");
+    System.out.println(out);
+  }
+}
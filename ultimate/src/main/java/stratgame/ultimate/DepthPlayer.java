@@ -0,0 +1,37 @@
+package stratgame.ultimate;
+
+import stratgame.ai.ArrayTranspositionTable;
+import stratgame.ai.IntNegamaxPlayer;
+import stratgame.tictactoe.Piece;
+
+/**
+ * {@link IntNegamaxPlayer} for {@code BitboardUltimateStates} that searches to
+ * a fixed depth and values a position by {@link #value(BitboardUltimateState,
+ * Piece)}, so that its searches are cheap to evaluate and to repeat.
+ */
+class DepthPlayer extends IntNegamaxPlayer<Piece, BitboardUltimateState> {
+
+  DepthPlayer(Piece piece, int depth) {
+    this.piece = piece;
+    transpositionTable(new ArrayTranspositionTable(1 << 20));
+    maxDepth(depth);
+  }
+
+  @Override
+  public int terminalValue(BitboardUltimateState s) {
+    return value(s, piece);
+  }
+
+  /**
+   * Returns the value of {@code s} for {@code piece}: its winner, if any, or
+   * else the difference in local games won.
+   */
+  static int value(BitboardUltimateState s, Piece piece) {
+    final Piece other = piece == Piece.X ? Piece.O : Piece.X;
+    if (s.winner() != Piece.NONE) {
+      final int value = 1000 - s.movesMade();
+      return s.winner() == piece ? value : -value;
+    }
+    return 10 * (Integer.bitCount(s.won(piece)) - Integer.bitCount(s.won(other)));
+  }
+}
@@ -0,0 +1,146 @@
+package stratgame.ultimate;
+
+import java.util.Objects;
+import stratgame.ai.ArrayTranspositionTable;
+import stratgame.ai.NegamaxPlayer;
+import stratgame.ai.Replacement;
+import stratgame.game.Player;
+import stratgame.game.State;
+import stratgame.tictactoe.Piece;
+
+/**
+ * {@link Player} for {@code UltimateBoards} that leaves the opening and
+ * middlegame to another player, such as a {@link SmartPlayer} or a {@link
+ * MonteCarloPlayer}, and solves the endgame exactly.
+ * <p>
+ * Once at most {@link #threshold()} spots remain empty in the ongoing local
+ * games (see {@link UltimateBoard#emptyCells()}), which bounds the number of
+ * moves left, every decision is made by an unbounded alpha-beta search with a
+ * transposition table of its own.  Its results are exact, so the table is kept
+ * from one decision to the next.  The time taken by the most recent solve is
+ * reported by {@link #solveMillis()}, so that the threshold can be tuned
+ * against the time available per move.
+ */
+public class EndgamePlayer implements Player<Integer> {
+
+  /**
+   * The number of empty spots at which an {@code EndgamePlayer} starts solving
+   * by default.
+   */
+  public static final int THRESHOLD = 20;
+
+  private final Player<Integer> midgame; // player for all other positions
+  private final Solver solver; // exact search for the endgame
+  private int threshold = THRESHOLD; // empty spots at which solving starts
+  private boolean solved; // whether the last decision was solved
+  private double solveMillis; // time taken by the last solve
+
+  /**
+   * Constructs an {@code EndgamePlayer} for {@code piece} that defers to
+   * {@code midgame} until the endgame.
+   */
+  public EndgamePlayer(Piece piece, Player<Integer> midgame) {
+    if (piece == Piece.NONE) {
+      throw new IllegalArgumentException("Player piece cannot be NONE");
+    }
+    this.midgame = Objects.requireNonNull(midgame, "midgame cannot be null");
+    this.solver = new Solver(piece);
+  }
+
+  /**
+   * The player that decides before the endgame.
+   */
+  public Player<Integer> midgame() {
+    return midgame;
+  }
+
+  /**
+   * The number of empty spots in ongoing local games at or below which
+   * positions are solved exactly.
+   */
+  public int threshold() {
+    return threshold;
+  }
+
+  /**
+   * Assigns {@code threshold} to {@link #threshold()}.
+   */
+  public void threshold(int threshold) {
+    if (threshold < 0 || threshold > 81) {
+      throw new IllegalArgumentException("threshold must be in 0..=81");
+    }
+    this.threshold = threshold;
+  }
+
+  /**
+   * Whether the last decision was made by solving the position exactly.
+   */
+  public boolean solved() {
+    return solved;
+  }
+
+  /**
+   * The number of milliseconds taken by the last exact solve.
+   */
+  public double solveMillis() {
+    return solveMillis;
+  }
+
+  /**
+   * The number of nodes visited by the last exact solve.
+   */
+  public long solveNodes() {
+    return solver.nodes();
+  }
+
+  /**
+   * The value of the position last solved for this player: positive if it
+   * wins, zero if it draws and negative if it loses.
+   */
+  public int solveValue() {
+    return solver.value();
+  }
+
+  /**
+   * Returns the move of {@link #midgame()} in {@code state}, or the best move
+   * if at most {@link #threshold()} spots remain empty.  {@code state} must be
+   * an {@link UltimateBoard}.
+   */
+  @Override
+  public Integer decide(State<Integer> state) {
+    solved = ((UltimateBoard) state).emptyCells() <= threshold;
+    if (!solved) {
+      return midgame.decide(state);
+    }
+    final long start = System.nanoTime();
+    final Integer result = solver.decide(state.clone());
+    solveMillis = (System.nanoTime() - start) / 1e6;
+    return result;
+  }
+
+  /**
+   * {@link NegamaxPlayer} that searches to the end of the match, valuing wins
+   * as {@link SmartPlayer} does.
+   */
+  private static class Solver extends NegamaxPlayer<Integer, Piece, UltimateBoard> {
+
+    private static final int WIN_VALUE = 1000;
+
+    Solver(Piece piece) {
+      this.piece = piece;
+      transpositionTable(new ArrayTranspositionTable(1 << 20, 4, Replacement.TWO_TIER));
+      inPlace(true);
+      ordering(true);
+      moveOrderer(new UltimateOrderer<>());
+    }
+
+    @Override
+    public int terminalValue(UltimateBoard s) {
+      if (s.winner() == Piece.NONE) {
+        return 0;
+      }
+      final int value = WIN_VALUE - s.movesMade();
+      return s.winner() == piece ? value : -value;
+    }
+  }
+}
@@ -1,11 +1,14 @@
 package stratgame.ultimate;
 
 import stratgame.game.RandomPlayer;
+import stratgame.tictactoe.Piece;
 
 public class Main {
 
   public static void main(String[] args) {
-    final Ultimate match = new Ultimate(new RandomPlayer<Integer>(){}, new RandomPlayer<Integer>(){});
+    final Ultimate match = new Ultimate(
+        new EndgamePlayer(Piece.X, new MonteCarloPlayer(Piece.X)),
+        new RandomPlayer<Integer>(){});
     match.start();
     System.out.println(match.winner());
   }
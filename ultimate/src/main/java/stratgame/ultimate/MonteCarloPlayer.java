@@ -0,0 +1,23 @@
+package stratgame.ultimate;
+
+import stratgame.ai.MctsPlayer;
+import stratgame.tictactoe.Piece;
+
+/**
+ * {@link MctsPlayer} for {@code UltimateStates}.
+ */
+public class MonteCarloPlayer extends MctsPlayer<Integer, Piece, UltimateState> {
+
+  public MonteCarloPlayer(Piece piece) {
+    if (piece == Piece.NONE) {
+      throw new IllegalArgumentException("Player piece cannot be NONE");
+    }
+    this.piece = piece;
+  }
+
+  @Override
+  public int terminalValue(UltimateState s) {
+    return s.winner() == Piece.NONE ? 0 :
+        s.winner() == piece ? 1 : -1;
+  }
+}
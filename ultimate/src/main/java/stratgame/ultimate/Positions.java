@@ -0,0 +1,51 @@
+package stratgame.ultimate;
+
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import stratgame.game.IntState;
+
+/**
+ * Seeded random walks from the start of a match, which reach the varied but
+ * reproducible positions that the benchmark and the specs search.
+ */
+final class Positions {
+
+  private Positions() { }
+
+  /**
+   * Returns the position after {@code plies} random moves from a generator
+   * seeded with {@code seed}, starting from {@code empty}, or {@code null} if
+   * the match ends first.
+   */
+  static <S extends IntState> S random(int plies, long seed, Supplier<S> empty) {
+    return walk(seed, empty, s -> s.movesMade() >= plies);
+  }
+
+  /**
+   * Returns the position reached by random moves from a generator seeded with
+   * {@code seed}, starting from {@code empty}, once at most {@code emptyCells}
+   * spots remain empty in its ongoing local games, or {@code null} if the
+   * match ends first.
+   */
+  static <S extends UltimateBoard> S endgame(int emptyCells, long seed,
+      Supplier<S> empty) {
+    return walk(seed, empty, s -> s.emptyCells() <= emptyCells);
+  }
+
+  /**
+   * Returns the position reached by random moves from a generator seeded with
+   * {@code seed}, starting from {@code empty}, once {@code done} holds, or
+   * {@code null} if the match ends first.
+   */
+  private static <S extends IntState> S walk(long seed, Supplier<S> empty,
+      Predicate<? super S> done) {
+    final Random random = new Random(seed);
+    final S state = empty.get();
+    final int[] moves = new int[state.maxValidMoves()];
+    while (!done.test(state) && !state.isOver()) {
+      state.makeMove(moves[random.nextInt(state.validMoves(moves))]);
+    }
+    return state.isOver() ? null : state;
+  }
+}
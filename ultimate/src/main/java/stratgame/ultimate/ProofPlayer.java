@@ -0,0 +1,23 @@
+package stratgame.ultimate;
+
+import stratgame.ai.ProofNumberPlayer;
+import stratgame.tictactoe.Piece;
+
+/**
+ * {@link ProofNumberPlayer} for {@code UltimateStates}, which proves whether
+ * the player to move wins, draws or loses.
+ */
+public class ProofPlayer extends ProofNumberPlayer<Integer, Piece, UltimateState> {
+
+  public ProofPlayer(Piece piece) {
+    if (piece == Piece.NONE) {
+      throw new IllegalArgumentException("Player piece cannot be NONE");
+    }
+    this.piece = piece;
+  }
+
+  @Override
+  public int terminalValue(UltimateState s) {
+    return s.winner() == Piece.NONE ? 0 : s.winner() == piece ? 1 : -1;
+  }
+}
@@ -0,0 +1,49 @@
+package stratgame.ultimate;
+
+import stratgame.ai.ArrayTranspositionTable;
+import stratgame.ai.NegamaxPlayer;
+import stratgame.ai.Replacement;
+import stratgame.tictactoe.Piece;
+
+/**
+ * Depth-limited {@link NegamaxPlayer} for {@code UltimateStates}, whose game
+ * trees are far too large to search to the end.
+ * <p>
+ * A won match is worth {@code WIN_VALUE}, less the number of moves made so
+ * that quicker wins are preferred, and a drawn match is worth {@code 0}.  Any
+ * other position at the search horizon is worth its {@link
+ * UltimateState#heuristic()}, which never approaches {@code WIN_VALUE}.  All
+ * values are from the perspective of this player, and negated for the other.
+ */
+public class SmartPlayer extends NegamaxPlayer<Integer, Piece, UltimateState> {
+
+  /**
+   * The number of plies that a {@code SmartPlayer} searches by default.
+   */
+  public static final int DEPTH = 6;
+
+  private static final int WIN_VALUE = 1000;
+
+  public SmartPlayer(Piece piece) {
+    if (piece == Piece.NONE) {
+      throw new IllegalArgumentException("Player piece cannot be NONE");
+    }
+    this.piece = piece;
+    transpositionTable(new ArrayTranspositionTable(1 << 20, 4, Replacement.TWO_TIER));
+    inPlace(true);
+    ordering(true);
+    moveOrderer(new UltimateOrderer<>());
+    maxDepth(DEPTH);
+  }
+
+  @Override
+  public int terminalValue(UltimateState s) {
+    if (s.winner() != Piece.NONE) {
+      final int value = WIN_VALUE - s.movesMade();
+      return s.winner() == piece ? value : -value;
+    } else if (s.isOver()) {
+      return 0;
+    }
+    return piece == Piece.X ? s.heuristic() : -s.heuristic();
+  }
+}
@@ -0,0 +1,31 @@
+package stratgame.ultimate;
+
+import stratgame.game.IntState;
+import stratgame.tictactoe.Piece;
+
+/**
+ * {@link IntState} of an Ultimate match, as captured by either {@link
+ * UltimateState} or {@link BitboardUltimateState}, so that players may accept
+ * either one.
+ */
+public interface UltimateBoard extends IntState {
+
+  /**
+   * Returns the winner of this match, or {@link Piece#NONE} if there is none
+   * (yet).
+   */
+  Piece winner();
+
+  /**
+   * Returns the number of empty spots in local games that are still ongoing,
+   * which bounds the number of moves left in this match, or {@code 0} once the
+   * match is over.
+   */
+  int emptyCells();
+
+  /**
+   * Returns whether playing {@code m} sends the opponent to a local game that
+   * is already over, thus granting them a free choice of local game.
+   */
+  boolean grantsFreeChoice(int m);
+}
@@ -0,0 +1,18 @@
+package stratgame.ultimate;
+
+import stratgame.ai.MoveOrderer;
+
+/**
+ * {@link MoveOrderer} for {@code UltimateBoards} that searches moves which
+ * grant the opponent a free choice of local game last, since such moves are
+ * rarely good.
+ *
+ * @param <S> the type of {@code UltimateBoard} whose moves are ordered.
+ */
+public class UltimateOrderer<S extends UltimateBoard> implements MoveOrderer<Integer, S> {
+
+  @Override
+  public int priority(S state, Integer move) {
+    return state.grantsFreeChoice(move) ? -1 : 0;
+  }
+}
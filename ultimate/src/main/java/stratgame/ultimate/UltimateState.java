@@ -1,68 +1,169 @@
 package stratgame.ultimate;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.IntConsumer;
 import stratgame.game.State;
+import stratgame.game.Symmetric;
+import stratgame.game.Symmetry;
+import stratgame.game.Zobrist;
 import stratgame.tictactoe.Piece;
-import stratgame.tictactoe.TTTState;
 
 /**
  * Context that manages the state of an Ultimate match.  Once an {@code
  * UltimateState} is initialized, mutability of its fields is only offered via
- * calls to {@link #makeMove(Integer m)}.  The first 16 bits of {@code m}
+ * calls to {@link #makeMove(int m)}.  The first 16 bits of {@code m}
  * determine target 3x3 square of the move, and the last 16 bits determine the
  * target spot within the prior square.
  * <p>
- * Each 3x3 square that acts as its own tic-tac-toe match can almost be
- * represented by a {@code stratgame.tictactoe.TTTState}, except we must change
- * the logic that determines which {@code stratgame.tictactoe.Piece} will be
- * placed.  We capture this behavior in the {@code Individual} class, and an
- * {@code UltimateState} tracks nine such {@code Individuals}.
+ * Each 3x3 square acts as its own tic-tac-toe match, a "local" game, whose
+ * grid is captured by a single {@code int} in {@code locals}: the base-3
+ * number whose {@code i}th digit is the mark at position {@code i} (0 for
+ * unmarked, 1 for O, 2 for X), so that placing a mark is a single addition.
+ * With only {@code 3^9} such grids, one precomputed table, {@code LOCAL},
+ * answers everything else about a local game in a single load: its status in
+ * the upper bits ({@code 00}, {@code 01}, {@code 10} and {@code 11} denoting
+ * ongoing, won by O, won by X and drawn, respectively, as in {@code
+ * TTTState}), and the mask of its unmarked positions in the lower 9 bits
+ * ({@code 0} once it is over).
+ * <p>
+ * The 3x3 grid of local games, the "meta" board, is captured by two 9-bit
+ * masks in a single {@code int}, {@code meta}: the local games won by X in the
+ * lower 9 bits and those won by O in the next 9.  A second table, {@code
+ * LINE}, determines whether a 9-bit mask completes a line.  A third mask,
+ * {@code open}, tracks the local games that are still ongoing, which settles
+ * {@link #isOver()} and free choices without touching the local games.
+ * <p>
+ * A single {@code long}, {@code key}, is the {@link Zobrist} hash of the match.
+ * Every (spot, {@code Piece}) pair across all nine local games is assigned a
+ * key, as is every local index that {@code previous} can force play into;
+ * the latter only counts while that local game is ongoing, so that positions
+ * with a free choice of local game share a key whatever move led to them.
+ * <p>
+ * An {@code int[]}, {@code history}, records every move played so far so that
+ * {@link #unmakeMove()} can revert them.
+ * <p>
+ * Each {@link Symmetry} of the grid applies to the meta board and to every
+ * local game at once.  The canonical image of an {@code UltimateState} is the
+ * image whose hash is least, where the hash covers the base-3 grid of every
+ * local game and the local game that play is forced into, if any.  The images
+ * of every base-3 grid are only tabulated once a canonical key is requested.
+ * <p>
+ * {@link #heuristic()} estimates the value of an unfinished match for X from
+ * two terms that are kept up to date as moves are made and unmade: one sums a
+ * table, {@code THREATS}, of the open two-in-a-rows in every ongoing local
+ * game, and the other scores the meta board, and is only recomputed when a
+ * local game ends or resumes.  Evaluating a position is thus a single
+ * addition.
  */
-public class UltimateState implements State<Integer> {
+public class UltimateState implements UltimateBoard, Symmetric {
 
-  private int board; // match state
   private int movesMade; // moves made so far
   private Piece winner; // winner as of current turn
-  private Individual[] individuals; // local games
-  private int cache; // accelerate win determination
+  private int[] locals; // base-3 grids of the local games
+  private int meta; // local games won by X, then by O
+  private int open; // local games still in progress
   private int previous; // previous move
-  private int heuristic; // upper bound for valid move count
+  private long key; // Zobrist hash of match state
+  private int[] history; // moves played so far
+  private int symmetry; // symmetry found by canonicalKey
+  private int localValue; // sum of THREATS over the local games
+  private int metaValue; // heuristic value of the meta board
+
+  /**
+   * The keys of every (spot, {@code Piece}) pair, then of every local index
+   * that play can be forced into; shared with {@link BitboardUltimateState}.
+   */
+  static final long[] ZOBRIST = Zobrist.keys(2 * 81 + 9, 0x5454L);
+  static final int PREVIOUS_KEYS = 2 * 81; // offset of previous keys
+
+  private static final int[] POWERS = new int[]{
+      1, 3, 9, 27, 81, 243, 729, 2187, 6561
+    };
+
+  static final int[] LINES = new int[]{
+      0b000000111, 0b000111000, 0b111000000, 0b001001001,
+      0b010010010, 0b100100100, 0b100010001, 0b001010100
+    };
 
-  private static final int[] INCREMENTS = new int[]{
-      0b0001000001000001, 0b0000000100000001, 0b0100010000000001,
-      0b0000000001000100, 0b0101000100000100, 0b0000010000000100,
-      0b0100000001010000, 0b0000000100010000, 0b0001010000010000
-    };  
+  private static final int O_WON = 1 << 9; // LOCAL status bits
+  private static final int X_WON = 2 << 9;
+  private static final int DRAWN = 3 << 9;
+  private static final int EMPTY = 0x1FF; // LOCAL open-position bits
+
+  static final boolean[] LINE = new boolean[1 << 9];
+  private static final short[] LOCAL = new short[19683]; // 3^9
+  private static final Integer[] MOVES = new Integer[9 << 4];
+
+  static final int[][] CELLS = Symmetry.cells(3);
+  static final int[][] INVERSES = Symmetry.inverses(CELLS);
+  static final int[][] MASKS = new int[Symmetry.COUNT][1 << 9];
+
+  private static final int WON_VALUE = 10; // per local game won
+  private static final int META_THREAT_VALUE = 20; // per open meta two-in-a-row
+
+  /**
+   * The open two-in-a-rows of X, less those of O, in every base-3 grid of an
+   * ongoing local game, and {@code 0} in every grid of a finished one.
+   */
+  static final byte[] THREATS = new byte[19683];
+
+  static {
+    for (int mask = 0; mask < LINE.length; mask++) {
+      for (int line : LINES) {
+        LINE[mask] |= (mask & line) == line;
+      }
+      for (int s = 0; s < Symmetry.COUNT; s++) {
+        MASKS[s][mask] = Symmetry.permute(mask, CELLS[s]);
+      }
+    }
+    for (int grid = 0; grid < LOCAL.length; grid++) {
+      int xs = 0;
+      int os = 0;
+      for (int i = 0, rest = grid; i < 9; i++, rest /= 3) {
+        xs |= rest % 3 == 2 ? 1 << i : 0;
+        os |= rest % 3 == 1 ? 1 << i : 0;
+      }
+      final int empty = ~(xs | os) & EMPTY;
+      LOCAL[grid] = (short) (LINE[xs] ? X_WON : LINE[os] ? O_WON :
+          empty == 0 ? DRAWN : empty);
+      if ((LOCAL[grid] & DRAWN) == 0) {
+        THREATS[grid] = (byte) (threats(xs, os) - threats(os, xs));
+      }
+    }
+    for (int outer = 0; outer < 9; outer++) {
+      for (int inner = 0; inner < 9; inner++) {
+        MOVES[(outer << 4) + inner] = project(outer, inner);
+      }
+    }
+  }
 
   public UltimateState() {
-    this.board = 0;
     this.movesMade = 0;
     this.winner = Piece.NONE;
-    this.individuals = new Individual[]{
-        new Individual(), new Individual(), new Individual(),
-        new Individual(), new Individual(), new Individual(),
-        new Individual(), new Individual(), new Individual()
-      };
-    this.cache = 0;
+    this.locals = new int[9];
+    this.meta = 0;
+    this.open = EMPTY;
     this.previous = 0xFFFFFFFF;
-    this.heuristic = 81;
+    this.key = 0L;
+    this.history = new int[81];
   }
 
   /**
    * Copy constructor.
    */
   public UltimateState(UltimateState s) {
-    this.board = s.board;
     this.movesMade = s.movesMade;
     this.winner = s.winner;
-    this.individuals = new Individual[9];
-    for (int i = 0; i < 9; i++) {
-      this.individuals[i] = new Individual(s.individuals[i]);
-    }
-    this.cache = s.cache;
+    this.locals = Arrays.copyOf(s.locals, 9);
+    this.meta = s.meta;
+    this.open = s.open;
     this.previous = s.previous;
-    this.heuristic = s.heuristic;
+    this.key = s.key;
+    this.history = Arrays.copyOf(s.history, 81);
+    this.localValue = s.localValue;
+    this.metaValue = s.metaValue;
   }
 
   /**
@@ -73,7 +174,7 @@ public class UltimateState implements State<Integer> {
   }
 
   @Override
-  public State<Integer> clone() {
+  public UltimateState clone() {
     return new UltimateState(this);
   }
 
@@ -82,43 +183,251 @@ public class UltimateState implements State<Integer> {
     return movesMade;
   }
 
+  @Override
   public Piece winner() {
     return winner;
   }
 
+  /**
+   * Returns a heuristic value of this match for X: {@code WON_VALUE} for
+   * every local game won, {@code META_THREAT_VALUE} for every pair of local
+   * games won in a line whose third game is ongoing, and {@code 1} for every
+   * open two-in-a-row within an ongoing local game, less the same for O.
+   */
+  public int heuristic() {
+    return localValue + metaValue;
+  }
+
+  /**
+   * Returns the number of lines in which {@code mine} has two marks and
+   * {@code theirs} has none.
+   */
+  private static int threats(int mine, int theirs) {
+    int result = 0;
+    for (int line : LINES) {
+      if ((theirs & line) == 0 && Integer.bitCount(mine & line) == 2) {
+        result++;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the heuristic value for X of a meta board on which X has won the
+   * local games {@code xs}, O those in {@code os}, and {@code open} are
+   * ongoing.
+   */
+  static int metaValue(int xs, int os, int open) {
+    int result = WON_VALUE * (Integer.bitCount(xs) - Integer.bitCount(os));
+    for (int line : LINES) {
+      if ((open & line) != 0) {
+        if ((os & line) == 0 && Integer.bitCount(xs & line) == 2) {
+          result += META_THREAT_VALUE;
+        } else if ((xs & line) == 0 && Integer.bitCount(os & line) == 2) {
+          result -= META_THREAT_VALUE;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the number of empty spots in local games that are still ongoing,
+   * which bounds the number of moves left in this match, or {@code 0} once the
+   * match is over.
+   */
+  @Override
+  public int emptyCells() {
+    if (isOver()) {
+      return 0;
+    }
+    int result = 0;
+    for (int rest = open; rest != 0; rest &= rest - 1) {
+      result += Integer.bitCount(LOCAL[locals[Integer.numberOfTrailingZeros(rest)]] & EMPTY);
+    }
+    return result;
+  }
+
+  /**
+   * Returns whether playing {@code m} sends the opponent to a local game that
+   * is already over, thus granting them a free choice of local game.
+   */
+  @Override
+  public boolean grantsFreeChoice(int m) {
+    return (open & (1 << inner(m))) == 0;
+  }
+
+  @Override
+  public long zobristKey() {
+    return key;
+  }
+
   @Override
   public List<Integer> validMoves() {
-    final ArrayList<Integer> result;
-    final int outer = inner(previous);
-    if (winner != Piece.NONE) {
-      // if a winner exists, return empty list
-      result = new ArrayList<>(0);
-    } else if (previous != 0xFFFFFFFF && !individuals[outer].isOver()) {
-      // otherwise, if previous move restricts validMoves...
-      final Individual ind = individuals[outer];
-      final int length = ind.validMoves().size();
-      result = new ArrayList<>(length);
-      final int prefix = outer << 16;
-      // ...then return all valid moves from predetermined valid board...
-      for (Integer inner : ind.validMoves()) {
-        result.add(prefix + inner);
+    final int games = games();
+    int count = 0;
+    for (int rest = games; rest != 0; rest &= rest - 1) {
+      count += Integer.bitCount(LOCAL[locals[Integer.numberOfTrailingZeros(rest)]] & EMPTY);
+    }
+    final ArrayList<Integer> result = new ArrayList<>(count);
+    for (int rest = games; rest != 0; rest &= rest - 1) {
+      final int outer = Integer.numberOfTrailingZeros(rest);
+      addMoves(result, outer, LOCAL[locals[outer]] & EMPTY);
+    }
+    return result;
+  }
+
+  @Override
+  public int maxValidMoves() {
+    return 81;
+  }
+
+  @Override
+  public int validMoves(int[] moves) {
+    int count = 0;
+    for (int rest = games(); rest != 0; rest &= rest - 1) {
+      final int outer = Integer.numberOfTrailingZeros(rest);
+      for (int empty = LOCAL[locals[outer]] & EMPTY; empty != 0; empty &= empty - 1) {
+        moves[count++] = (outer << 16) + Integer.numberOfTrailingZeros(empty);
       }
-    } else {
-      // otherwise, return all valid moves from all unfinished boards
-      result = new ArrayList<>(heuristic);
-      for (int i = 0; i < 9; i++) {
-        Individual individual = individuals[i];
-        if (!individual.isOver()) {
-          final int prefix = i << 16;
-          for (Integer inner : individual.validMoves()) {
-            result.add(prefix + inner);
-          }
+    }
+    return count;
+  }
+
+  @Override
+  public void forEachValidMove(IntConsumer action) {
+    for (int rest = games(); rest != 0; rest &= rest - 1) {
+      final int outer = Integer.numberOfTrailingZeros(rest);
+      for (int empty = LOCAL[locals[outer]] & EMPTY; empty != 0; empty &= empty - 1) {
+        action.accept((outer << 16) + Integer.numberOfTrailingZeros(empty));
+      }
+    }
+  }
+
+  @Override
+  public boolean isValidMove(int m) {
+    final int outer = outer(m);
+    final int inner = inner(m);
+    return outer < 9 && inner < 9 && (games() & (1 << outer)) != 0
+        && (LOCAL[locals[outer]] & (1 << inner)) != 0;
+  }
+
+  @Override
+  public int validMove(int index) {
+    if (index < 0) {
+      return NO_MOVE;
+    }
+    for (int rest = games(); rest != 0; rest &= rest - 1) {
+      final int outer = Integer.numberOfTrailingZeros(rest);
+      int empty = LOCAL[locals[outer]] & EMPTY;
+      final int count = Integer.bitCount(empty);
+      if (index < count) {
+        for (; index > 0; index--) {
+          empty &= empty - 1;
         }
+        return (outer << 16) + Integer.numberOfTrailingZeros(empty);
       }
+      index -= count;
+    }
+    return NO_MOVE;
+  }
+
+  @Override
+  public int validMoveIndex(int m) {
+    final int outer = outer(m);
+    int index = Integer.bitCount(LOCAL[locals[outer]] & EMPTY & ((1 << inner(m)) - 1));
+    for (int rest = games() & ((1 << outer) - 1); rest != 0; rest &= rest - 1) {
+      index += Integer.bitCount(LOCAL[locals[Integer.numberOfTrailingZeros(rest)]] & EMPTY);
+    }
+    return index;
+  }
+
+  @Override
+  public long canonicalKey() {
+    final short[][] images = Images.GRIDS;
+    final int forced = inner(previous);
+    final boolean free = previous == 0xFFFFFFFF || (open & (1 << forced)) == 0;
+    long best = 0L;
+    for (int s = 0; s < Symmetry.COUNT; s++) {
+      final int[] inverse = INVERSES[s];
+      long hash = free ? 9 : CELLS[s][forced];
+      for (int cell = 0; cell < 9; cell++) {
+        hash = hash * 0x9E3779B97F4A7C15L + images[s][locals[inverse[cell]]];
+      }
+      hash = Symmetry.mix(hash);
+      if (s == 0 || Long.compareUnsigned(hash, best) < 0) {
+        best = hash;
+        symmetry = s;
+      }
+    }
+    return best;
+  }
+
+  @Override
+  public int canonicalSymmetry() {
+    return symmetry;
+  }
+
+  @Override
+  public int toCanonical(int index, int symmetry) {
+    final int m = validMove(index);
+    final int outer = CELLS[symmetry][outer(m)];
+    final int inner = CELLS[symmetry][inner(m)];
+    int result = Integer.bitCount(
+        MASKS[symmetry][LOCAL[locals[outer(m)]] & EMPTY] & ((1 << inner) - 1));
+    for (int rest = MASKS[symmetry][games()] & ((1 << outer) - 1); rest != 0; rest &= rest - 1) {
+      final int game = INVERSES[symmetry][Integer.numberOfTrailingZeros(rest)];
+      result += Integer.bitCount(LOCAL[locals[game]] & EMPTY);
     }
     return result;
   }
 
+  @Override
+  public int fromCanonical(int index, int symmetry) {
+    for (int rest = MASKS[symmetry][games()]; rest != 0; rest &= rest - 1) {
+      final int outer = INVERSES[symmetry][Integer.numberOfTrailingZeros(rest)];
+      final int empty = LOCAL[locals[outer]] & EMPTY;
+      if (index < Integer.bitCount(empty)) {
+        int image = MASKS[symmetry][empty];
+        for (; index > 0; index--) {
+          image &= image - 1;
+        }
+        final int inner = INVERSES[symmetry][Integer.numberOfTrailingZeros(image)];
+        return validMoveIndex((outer << 16) + inner);
+      }
+      index -= Integer.bitCount(empty);
+    }
+    throw new IllegalArgumentException("index must be that of a valid move");
+  }
+
+  /**
+   * Returns the mask of local games in which a move may be played this turn.
+   */
+  private int games() {
+    if (winner != Piece.NONE) {
+      // if the match is over, no games
+      return 0;
+    }
+    final int forced = inner(previous);
+    if (previous != 0xFFFFFFFF && (open & (1 << forced)) != 0) {
+      // if previous move restricts validMoves, only its game
+      return 1 << forced;
+    }
+    // otherwise, all unfinished games
+    return open;
+  }
+
+  /**
+   * Appends to {@code result} the move at every position of local game
+   * {@code outer} in the mask {@code empty}, in ascending order.
+   */
+  private static void addMoves(List<Integer> result, int outer, int empty) {
+    final int prefix = outer << 4;
+    for (; empty != 0; empty &= empty - 1) {
+      result.add(MOVES[prefix + Integer.numberOfTrailingZeros(empty)]);
+    }
+  }
+
   /**
    * Returns the {@code Piece} that is responsible for the next move, {@code
    * NONE} if the match is over.
@@ -126,68 +435,92 @@ public class UltimateState implements State<Integer> {
   protected Piece currentPiece() {
     return isOver() ? Piece.NONE :
         (movesMade & 1) == 0 ? Piece.X : Piece.O;
-  }  
-
-  /**
-   * Blindly plays {@code m} and returns whether the act resulted in a victory.
-   */
-  private boolean moveAndCheck(int cacheCopy, int m, int offset, int boardOffset) {
-    // make move
-    board |= (1 << ((m << 1) + boardOffset));
-    // update cache
-    cacheCopy += INCREMENTS[m];
-    cache = (cacheCopy << offset) | (cache & (0xFFFF << (16 - offset)));
-    return ((cacheCopy & 0xAAAA) & ((cacheCopy & 0x5555) << 1)) != 0;
   }
 
   @Override
-  public boolean makeMove(Integer m) {
+  public boolean makeMove(int m) {
     final int outer = outer(m); // outer index of this move
+    final int inner = inner(m); // inner index of this move
     final int prevInner = inner(previous); // inner index of previous move
     // validate m for this turn
-    if (previous == 0xFFFFFFFF || prevInner == outer || individuals[prevInner].isOver()) {
-      final Piece p = currentPiece();
-      // fail-fast if match is over
-      if (p == Piece.NONE) {
-        return false;
-      }
-      // play m in local game
-      final Individual ind = individuals[outer];
-      boolean moveSucceeded = ind.makeMove(inner(m));
-      if (moveSucceeded) {
-        // update previous and movesMade if local play was successful
-        previous = m;
-        movesMade++;
-        if (ind.isOver()) {
-          // decrement upper bound for valid move count, then update cache
-          heuristic -= 9;
-          int cacheCopy;
-          int boardOffset;
-          int offset;
-          if (ind.winner() == Piece.X) {
-            offset = 0;
-            boardOffset = 1;
-            cacheCopy = (cache & 0xFFFF);
-          } else if (ind.winner() == Piece.O) {
-            offset = 16;
-            boardOffset = 0;
-            cacheCopy = (cache >>> 16);
-          } else {
-            return true;
-          }
-          if (moveAndCheck(cacheCopy, outer, offset, boardOffset)) {
-            winner = p;
-          }
+    if (outer > 8 || inner > 8 || isOver()
+        || (LOCAL[locals[outer]] & (1 << inner)) == 0) {
+      return false;
+    }
+    if (previous != 0xFFFFFFFF && prevInner != outer && (open & (1 << prevInner)) != 0) {
+      return false;
+    }
+    final Piece p = (movesMade & 1) == 0 ? Piece.X : Piece.O;
+    // play m in local game, then update key, previous, and movesMade
+    final int before = locals[outer];
+    final int status = LOCAL[locals[outer] += (p == Piece.X ? 2 : 1) * POWERS[inner]] & DRAWN;
+    localValue += THREATS[locals[outer]] - THREATS[before];
+    key ^= ZOBRIST[(((outer * 9) + inner) << 1) + (p == Piece.X ? 1 : 0)];
+    key ^= forcedKey();
+    previous = m;
+    history[movesMade] = m;
+    movesMade++;
+    if (status != 0) {
+      // the local game is over, so update the meta board
+      open &= ~(1 << outer);
+      if (status == X_WON) {
+        meta |= 1 << outer;
+        if (LINE[meta & EMPTY]) {
+          winner = p;
+        }
+      } else if (status == O_WON) {
+        meta |= 1 << (outer + 9);
+        if (LINE[meta >>> 9]) {
+          winner = p;
         }
       }
-      return moveSucceeded;
+      metaValue = metaValue(meta & EMPTY, meta >>> 9, open);
     }
-    return false;
+    // only now is it known whether m closed the game that it forces play into
+    key ^= forcedKey();
+    return true;
+  }
+
+  @Override
+  public boolean unmakeMove() {
+    if (movesMade == 0) {
+      return false;
+    }
+    key ^= forcedKey();
+    movesMade--;
+    final int m = history[movesMade];
+    final int outer = outer(m);
+    final int inner = inner(m);
+    final boolean x = (movesMade & 1) == 0;
+    if ((LOCAL[locals[outer]] & DRAWN) != 0) {
+      // the local game was over, so revert the meta board
+      open |= 1 << outer;
+      meta &= ~(0x201 << outer);
+      metaValue = metaValue(meta & EMPTY, meta >>> 9, open);
+    }
+    final int before = locals[outer];
+    locals[outer] -= (x ? 2 : 1) * POWERS[inner];
+    localValue += THREATS[locals[outer]] - THREATS[before];
+    winner = Piece.NONE;
+    key ^= ZOBRIST[(((outer * 9) + inner) << 1) + (x ? 1 : 0)];
+    previous = movesMade > 0 ? history[movesMade - 1] : 0xFFFFFFFF;
+    key ^= forcedKey();
+    return true;
+  }
+
+  /**
+   * Returns the key of the local game that play is forced into, or {@code 0L}
+   * if the next player has a free choice of local game.
+   */
+  private long forcedKey() {
+    final int forced = inner(previous);
+    return previous == 0xFFFFFFFF || (open & (1 << forced)) == 0 ? 0L
+        : ZOBRIST[PREVIOUS_KEYS + forced];
   }
 
   @Override
   public boolean isOver() {
-    return winner != Piece.NONE || validMoves().isEmpty();
+    return winner != Piece.NONE || open == 0;
   }
 
   /**
@@ -236,28 +569,26 @@ public class UltimateState implements State<Integer> {
     for (int i = 0; i < 9; i++) {
       final int row = 4 * (i/3) + 1;
       final int col = 4 * (i%3) + 1;
-      final Individual ind = individuals[i];
-      if (ind.isOver()) {
-        if (ind.winner() == Piece.X) { // if X won local match
-          chars[row][col] = '@'; chars[row][col+1] = ' '; chars[row][col+2] = '@';
-          chars[row+1][col] = ' '; chars[row+1][col+1] = '@'; chars[row+1][col+2] = ' ';
-          chars[row+2][col] = '@'; chars[row+2][col+1] = ' '; chars[row+2][col+2] = '@';
-        } else if (ind.winner() == Piece.O) { // if O won local match
-          for (int r = row; r < row+3; r++) {
-            for (int c = col; c < col+3; c++) {
-              chars[r][c] = '@';
-            }
+      final int status = LOCAL[locals[i]] & DRAWN;
+      if (status == X_WON) { // if X won local match
+        chars[row][col] = '@'; chars[row][col+1] = ' '; chars[row][col+2] = '@';
+        chars[row+1][col] = ' '; chars[row+1][col+1] = '@'; chars[row+1][col+2] = ' ';
+        chars[row+2][col] = '@'; chars[row+2][col+1] = ' '; chars[row+2][col+2] = '@';
+      } else if (status == O_WON) { // if O won local match
+        for (int r = row; r < row+3; r++) {
+          for (int c = col; c < col+3; c++) {
+            chars[r][c] = '@';
           }
-          chars[row+1][col+1] = ' ';
-        } else { // local match was draw
-          for (int r = row; r < row+3; r++) {
-            for (int c = col; c < col+3; c++) {
-              chars[r][c] = '/';
-            }
+        }
+        chars[row+1][col+1] = ' ';
+      } else if (status == DRAWN) { // local match was draw
+        for (int r = row; r < row+3; r++) {
+          for (int c = col; c < col+3; c++) {
+            chars[r][c] = '/';
           }
         }
       } else { // local match is ongoing
-        buildUnfinished(chars, row, col, ind);
+        buildUnfinished(chars, row, col, locals[i]);
       }
     }
     for (int i = 0; i < 13; i++) {
@@ -270,50 +601,42 @@ public class UltimateState implements State<Integer> {
   }
 
   // utility method to avoid even further debug() bloat
-  private void buildUnfinished(char[][] chars, int row, int col, Individual ind) {
-    int copy = ind.board();
-    final int mask = 3; // 0b0000...011
+  private void buildUnfinished(char[][] chars, int row, int col, int grid) {
+    int copy = grid;
     for (int i = 0; i < 3; i++) {
       for (int j = 0; j < 3; j++) {
-        int filter = copy & mask; // last two bits of `board`
+        int filter = copy % 3; // last base-3 digit of `grid`
         if (filter == 0) {
-          chars[row+i][col+j] = '_'; // 0b00 indicates no moves were made
+          chars[row+i][col+j] = '_'; // 0 indicates no moves were made
         } else if (filter == 1) {
-          chars[row+i][col+j] = 'O'; // 0b01 indicates 'O'
-        } else if (filter == 2) {
-          chars[row+i][col+j] = 'X'; // 0b10 indicates 'X'
+          chars[row+i][col+j] = 'O'; // 1 indicates 'O'
         } else {
-          throw new AssertionError("spot value was not 0, 1, or 2");
+          chars[row+i][col+j] = 'X'; // 2 indicates 'X'
         }
-        // once displayed, bits no longer needed. Shift for next grid position.
-        copy = (copy >>> 2);
+        // once displayed, digit no longer needed. Shift for next grid position.
+        copy /= 3;
       }
     }
   }
 
   /**
-   * Context that manages the state of a tic-tac-toe match within an Ultimate
-   * match.
+   * Images of every base-3 grid under every {@link Symmetry}, built on first
+   * use.
    */
-  private class Individual extends TTTState {
+  private static final class Images {
 
-    private Individual() {
-      // implicit call to super();
-    }
+    static final short[][] GRIDS = new short[Symmetry.COUNT][LOCAL.length];
 
-    /**
-     * Copy constructor.
-     */
-    private Individual(Individual s) {
-      super(s);
-    }
-
-    @Override
-    protected Piece currentPiece(Integer nextMove) {
-      return nextMove < 0 || nextMove > 8 // out of bounds
-          || isOver() // match is over
-          || ((3 << (nextMove << 1)) & board()) != 0 ? // spot is occupied
-          Piece.NONE : UltimateState.this.currentPiece();
+    static {
+      for (int s = 0; s < Symmetry.COUNT; s++) {
+        for (int grid = 0; grid < LOCAL.length; grid++) {
+          int image = 0;
+          for (int i = 0, rest = grid; i < 9; i++, rest /= 3) {
+            image += rest % 3 * POWERS[CELLS[s][i]];
+          }
+          GRIDS[s][grid] = (short) image;
+        }
+      }
     }
   }
 }
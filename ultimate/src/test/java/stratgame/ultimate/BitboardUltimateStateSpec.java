@@ -0,0 +1,94 @@
+package stratgame.ultimate;
+
+import java.util.List;
+import java.util.Random;
+import org.testng.annotations.Test;
+import stratgame.game.State;
+import stratgame.tictactoe.Piece;
+import static org.testng.Assert.assertEquals;
+
+public class BitboardUltimateStateSpec extends UltimateStateSpec {
+
+  @Override
+  protected State<Integer> newState() {
+    return new BitboardUltimateState();
+  }
+
+  @Override
+  protected Piece winner(State<Integer> state) {
+    return ((BitboardUltimateState) state).winner();
+  }
+
+  @Override
+  protected int heuristic(State<Integer> state) {
+    return ((BitboardUltimateState) state).heuristic();
+  }
+
+  @Override
+  protected int emptyCells(State<Integer> state) {
+    return ((BitboardUltimateState) state).emptyCells();
+  }
+
+  @Test
+  public void testClone() {
+    final State<Integer> state = newState();
+    state.makeMove(UltimateState.project(2,3)); state.makeMove(UltimateState.project(3,2));
+    final State<Integer> copy = state.clone();
+    final long key = state.zobristKey();
+    // moves in either copy leave the other untouched
+    state.makeMove(UltimateState.project(2,4));
+    assertEquals(copy.movesMade(), 2);
+    assertEquals(copy.zobristKey(), key);
+    assertEquals(copy.makeMove(UltimateState.project(2,5)), true);
+    assertEquals(copy.unmakeMove(), true);
+    assertEquals(copy.unmakeMove(), true);
+    assertEquals(copy.unmakeMove(), true);
+    assertEquals(copy.validMoves().size(), 81);
+    assertEquals(state.unmakeMove(), true);
+    assertEquals(state.zobristKey(), key);
+    assertEquals(state.unmakeMove(), true);
+    assertEquals(state.unmakeMove(), true);
+    assertEquals(state.zobristKey(), copy.zobristKey());
+  }
+
+  @Test
+  public void testSharedCanonicalKey() {
+    final BitboardUltimateState state = new BitboardUltimateState();
+    final UltimateState other = new UltimateState();
+    final Random random = new Random(18);
+    while (!state.isOver()) {
+      assertEquals(state.canonicalKey(), other.canonicalKey());
+      assertEquals(state.canonicalSymmetry(), other.canonicalSymmetry());
+      final List<Integer> moves = state.validMoves();
+      for (int i = 0; i < moves.size(); i++) {
+        final int symmetry = state.canonicalSymmetry();
+        assertEquals(state.toCanonical(i, symmetry), other.toCanonical(i, symmetry));
+      }
+      final Integer m = moves.get(random.nextInt(moves.size()));
+      state.makeMove(m);
+      other.makeMove(m);
+    }
+  }
+
+  @Test
+  public void testSharedZobristKey() {
+    final Random random = new Random(54);
+    for (int game = 0; game < 50; game++) {
+      final BitboardUltimateState state = new BitboardUltimateState();
+      final UltimateState other = new UltimateState();
+      assertEquals(state.zobristKey(), other.zobristKey());
+      while (!state.isOver()) {
+        final List<Integer> moves = state.validMoves();
+        final Integer m = moves.get(random.nextInt(moves.size()));
+        state.makeMove(m);
+        other.makeMove(m);
+        assertEquals(state.zobristKey(), other.zobristKey());
+      }
+      while (state.movesMade() > 0) {
+        state.unmakeMove();
+        other.unmakeMove();
+        assertEquals(state.zobristKey(), other.zobristKey());
+      }
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package stratgame.ultimate;
+
+import org.testng.annotations.Test;
+import stratgame.game.Player;
+import stratgame.game.State;
+import stratgame.tictactoe.Piece;
+import static org.testng.Assert.assertEquals;
+
+public class EndgamePlayerSpec {
+
+  private static final int EMPTY = 14;
+  private static final int POSITIONS = 10;
+
+  /**
+   * {@link Player} that records how often it was asked, and plays the first
+   * valid move.
+   */
+  private static class CountingPlayer implements Player<Integer> {
+
+    private int calls;
+
+    @Override
+    public Integer decide(State<Integer> state) {
+      calls++;
+      return state.validMoves().get(0);
+    }
+  }
+
+  private static Piece toMove(UltimateBoard state) {
+    return (state.movesMade() & 1) == 0 ? Piece.X : Piece.O;
+  }
+
+  @Test
+  public void testNullMidgame() {
+    boolean rejected = false;
+    try {
+      new EndgamePlayer(Piece.X, null);
+    } catch (NullPointerException e) {
+      rejected = true;
+    }
+    assertEquals(rejected, true);
+  }
+
+  @Test
+  public void testHandoff() {
+    for (int seed = 0; seed < POSITIONS; seed++) {
+      final UltimateState state = Positions.endgame(EMPTY, seed, UltimateState::new);
+      if (state == null) {
+        continue;
+      }
+      final int empty = state.emptyCells();
+      final CountingPlayer midgame = new CountingPlayer();
+      final EndgamePlayer player = new EndgamePlayer(toMove(state), midgame);
+      // one spot too many defers to the midgame player
+      player.threshold(empty - 1);
+      assertEquals(player.decide(state), state.validMoves().get(0));
+      assertEquals(player.solved(), false);
+      assertEquals(midgame.calls, 1);
+      // at the threshold, the position is solved
+      player.threshold(empty);
+      final long key = state.zobristKey();
+      final Integer move = player.decide(state);
+      assertEquals(player.solved(), true);
+      assertEquals(midgame.calls, 1);
+      assertEquals(state.zobristKey(), key);
+      assertEquals(state.isValidMove(move), true);
+    }
+  }
+
+  @Test
+  public void testBitboard() {
+    for (int seed = 0; seed < POSITIONS; seed++) {
+      final UltimateState state = Positions.endgame(EMPTY, seed, UltimateState::new);
+      final BitboardUltimateState bitboard =
+          Positions.endgame(EMPTY, seed, BitboardUltimateState::new);
+      if (state == null) {
+        assertEquals(bitboard, null);
+        continue;
+      }
+      assertEquals(bitboard.zobristKey(), state.zobristKey());
+      final CountingPlayer midgame = new CountingPlayer();
+      final EndgamePlayer expected = new EndgamePlayer(toMove(state), midgame);
+      final EndgamePlayer player = new EndgamePlayer(toMove(state), midgame);
+      // both states offer the same moves in the same order, so solve alike
+      assertEquals(player.decide(bitboard), expected.decide(state));
+      assertEquals(player.solved(), true);
+      assertEquals(player.solveNodes(), expected.solveNodes());
+      assertEquals(midgame.calls, 0);
+    }
+  }
+}
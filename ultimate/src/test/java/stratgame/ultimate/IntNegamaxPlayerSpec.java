@@ -0,0 +1,55 @@
+package stratgame.ultimate;
+
+import org.testng.annotations.Test;
+import stratgame.ai.ArrayTranspositionTable;
+import stratgame.tictactoe.Piece;
+import static org.testng.Assert.assertEquals;
+
+public class IntNegamaxPlayerSpec {
+
+  private static final int DEPTH = 6;
+  private static final int POSITIONS = 12;
+
+  /**
+   * Returns a {@link DepthPlayer} for {@code piece} with a small table, or none
+   * unless {@code table}.
+   */
+  private static DepthPlayer player(Piece piece, boolean table) {
+    final DepthPlayer player = new DepthPlayer(piece, DEPTH);
+    player.transpositionTable(table ? new ArrayTranspositionTable(1 << 16) : null);
+    return player;
+  }
+
+  /**
+   * Checks that lazy move generation visits exactly the nodes of eager
+   * generation, picks the same move, and generates no more moves.
+   */
+  private static void check(boolean table) {
+    for (int i = 0; i < POSITIONS; i++) {
+      final BitboardUltimateState state =
+          Positions.random(3 * i, i, BitboardUltimateState::new);
+      if (state == null) {
+        continue;
+      }
+      final Piece piece = (state.movesMade() & 1) == 0 ? Piece.X : Piece.O;
+      final DepthPlayer eager = player(piece, table);
+      eager.lazy(false);
+      final Integer eagerMove = eager.decide(state);
+      final DepthPlayer lazy = player(piece, table);
+      final Integer lazyMove = lazy.decide(state);
+      assertEquals(lazyMove, eagerMove, "position " + i);
+      assertEquals(lazy.nodes(), eager.nodes(), "position " + i);
+      assertEquals(lazy.generated() <= eager.generated(), true);
+    }
+  }
+
+  @Test
+  public void testLazyGeneration() {
+    check(true);
+  }
+
+  @Test
+  public void testLazyGenerationWithoutTable() {
+    check(false);
+  }
+}
@@ -0,0 +1,55 @@
+package stratgame.ultimate;
+
+import org.testng.annotations.Test;
+import stratgame.ai.Outcome;
+import stratgame.game.RandomPlayer;
+import stratgame.tictactoe.Piece;
+import static org.testng.Assert.assertEquals;
+
+public class ProofPlayerSpec {
+
+  private static final int EMPTY = 14;
+  private static final int POSITIONS = 10;
+
+  private static Piece toMove(UltimateBoard state) {
+    return (state.movesMade() & 1) == 0 ? Piece.X : Piece.O;
+  }
+
+  /**
+   * Returns the outcome for {@code piece} that an {@link EndgamePlayer} solves
+   * in {@code state}, or reads off the winner if the match is over.
+   */
+  private static Outcome expected(UltimateState state, Piece piece) {
+    final int sign;
+    if (state.isOver()) {
+      sign = state.winner() == Piece.NONE ? 0 : state.winner() == piece ? 1 : -1;
+    } else {
+      final EndgamePlayer solver = new EndgamePlayer(toMove(state), new RandomPlayer<Integer>() {});
+      solver.threshold(EMPTY);
+      solver.decide(state);
+      assertEquals(solver.solved(), true);
+      final int value = toMove(state) == piece ? solver.solveValue() : -solver.solveValue();
+      sign = Integer.signum(value);
+    }
+    return sign > 0 ? Outcome.WIN : sign < 0 ? Outcome.LOSS : Outcome.DRAW;
+  }
+
+  @Test
+  public void testOutcomes() {
+    for (int seed = 0; seed < POSITIONS; seed++) {
+      final UltimateState state = Positions.endgame(EMPTY, seed, UltimateState::new);
+      if (state == null) {
+        continue;
+      }
+      final Piece piece = toMove(state);
+      final ProofPlayer player = new ProofPlayer(piece);
+      final long key = state.zobristKey();
+      final Integer move = player.decide(state);
+      assertEquals(state.zobristKey(), key);
+      assertEquals(player.outcome(), expected(state, piece), "seed " + seed);
+      // the move must keep the outcome proven
+      assertEquals(state.makeMove(move), true);
+      assertEquals(expected(state, piece), player.outcome(), "seed " + seed);
+    }
+  }
+}
@@ -0,0 +1,112 @@
+package stratgame.ultimate;
+
+import java.util.concurrent.ForkJoinPool;
+import org.testng.annotations.Test;
+import stratgame.ai.SearchAlgorithm;
+import stratgame.ai.TranspositionTable;
+import stratgame.tictactoe.Piece;
+import static org.testng.Assert.assertEquals;
+
+public class SmartPlayerSpec {
+
+  private static final long TIME_BUDGET = 200;
+  private static final long SLACK = 300;
+  private static final int POSITIONS = 30;
+
+  @Test
+  public void testTimeBudget() {
+    for (long budget : new long[]{1, TIME_BUDGET}) {
+      final SmartPlayer player = new SmartPlayer(Piece.X);
+      player.maxDepth(TranspositionTable.UNBOUNDED_DEPTH);
+      player.timeBudget(budget);
+      final UltimateState state = new UltimateState();
+      final long start = System.nanoTime();
+      final int move = player.decide(state);
+      final long millis = (System.nanoTime() - start) / 1000000L;
+      // the first iteration always finishes, so even 1 ms yields a move
+      assertEquals(state.isValidMove(move), true);
+      assertEquals(millis < budget + SLACK, true, millis + " ms");
+    }
+  }
+
+  @Test
+  public void testParallelRootSearch() {
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      for (int i = 0; i < POSITIONS; i++) {
+        final UltimateState state = Positions.random(4 + i, i, UltimateState::new);
+        if (state == null) {
+          continue;
+        }
+        final Piece piece = (state.movesMade() & 1) == 0 ? Piece.X : Piece.O;
+        final SmartPlayer serial = new SmartPlayer(piece);
+        final SmartPlayer parallel = new SmartPlayer(piece);
+        // which task stores a depth-limited entry first is up to the pool
+        serial.transpositionTable(null);
+        parallel.transpositionTable(null);
+        parallel.forkJoinPool(pool);
+        assertEquals(parallel.decide(state), serial.decide(state));
+        assertEquals(parallel.value(), serial.value());
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testOrdering() {
+    for (int i = 0; i < POSITIONS; i++) {
+      final UltimateState state = Positions.random(4 + i, i, UltimateState::new);
+      if (state == null) {
+        continue;
+      }
+      final Piece piece = (state.movesMade() & 1) == 0 ? Piece.X : Piece.O;
+      final SmartPlayer ordered = new SmartPlayer(piece);
+      final SmartPlayer unordered = new SmartPlayer(piece);
+      unordered.ordering(false);
+      ordered.decide(state);
+      unordered.decide(state);
+      assertEquals(ordered.value(), unordered.value());
+    }
+  }
+
+  @Test
+  public void testPrincipalVariationAndAspiration() {
+    final SearchAlgorithm[] algorithms = {SearchAlgorithm.ALPHA_BETA, SearchAlgorithm.PVS};
+    for (int i = 0; i < POSITIONS; i++) {
+      final UltimateState state = Positions.random(4 + i, i, UltimateState::new);
+      if (state == null) {
+        continue;
+      }
+      final Piece piece = (state.movesMade() & 1) == 0 ? Piece.X : Piece.O;
+      final SmartPlayer alphaBeta = new SmartPlayer(piece);
+      alphaBeta.decide(state);
+      for (SearchAlgorithm algorithm : algorithms) {
+        for (int aspiration : new int[]{0, 1, 16}) {
+          final SmartPlayer player = new SmartPlayer(piece);
+          player.algorithm(algorithm);
+          player.aspiration(aspiration);
+          player.decide(state);
+          assertEquals(player.value(), alphaBeta.value());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testMtdf() {
+    for (int i = 0; i < POSITIONS; i++) {
+      final UltimateState state = Positions.random(4 + i, i, UltimateState::new);
+      if (state == null) {
+        continue;
+      }
+      final Piece piece = (state.movesMade() & 1) == 0 ? Piece.X : Piece.O;
+      final SmartPlayer alphaBeta = new SmartPlayer(piece);
+      final SmartPlayer mtdf = new SmartPlayer(piece);
+      mtdf.algorithm(SearchAlgorithm.MTDF);
+      alphaBeta.decide(state);
+      mtdf.decide(state);
+      assertEquals(mtdf.value(), alphaBeta.value());
+    }
+  }
+}
@@ -1,14 +1,113 @@
 package stratgame.ultimate;
 
+import java.util.Random;
 import org.testng.annotations.Test;
+import stratgame.game.IntState;
+import stratgame.game.State;
+import stratgame.game.Symmetric;
+import stratgame.game.Symmetry;
 import stratgame.tictactoe.Piece;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
 
 public class UltimateStateSpec {
 
+  /**
+   * Returns a new state without any moves played.
+   */
+  protected State<Integer> newState() {
+    return new UltimateState();
+  }
+
+  /**
+   * Returns the winner of {@code state}.
+   */
+  protected Piece winner(State<Integer> state) {
+    return ((UltimateState) state).winner();
+  }
+
+  /**
+   * Returns the heuristic value of {@code state} for X.
+   */
+  protected int heuristic(State<Integer> state) {
+    return ((UltimateState) state).heuristic();
+  }
+
+  /**
+   * Returns the number of empty spots in the ongoing local games of {@code
+   * state}.
+   */
+  protected int emptyCells(State<Integer> state) {
+    return ((UltimateState) state).emptyCells();
+  }
+
+  private static final int[] LINES = new int[]{
+      0b000000111, 0b000111000, 0b111000000, 0b001001001,
+      0b010010010, 0b100100100, 0b100010001, 0b001010100
+    };
+
+  /**
+   * Returns whether {@code mask} completes a line.
+   */
+  private static boolean line(int mask) {
+    for (int line : LINES) {
+      if ((mask & line) == line) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the number of lines in which {@code mine} has two of three
+   * positions and {@code theirs} none.
+   */
+  private static int twos(int mine, int theirs) {
+    int result = 0;
+    for (int line : LINES) {
+      if ((theirs & line) == 0 && Integer.bitCount(mine & line) == 2) {
+        result++;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Computes from scratch the heuristic value for X of the marks {@code xs}
+   * and {@code os} of every local game.
+   */
+  private static int expectedHeuristic(int[] xs, int[] os) {
+    int result = 0;
+    int xWon = 0;
+    int oWon = 0;
+    int open = 0;
+    for (int outer = 0; outer < 9; outer++) {
+      if (line(xs[outer])) {
+        xWon |= 1 << outer;
+      } else if (line(os[outer])) {
+        oWon |= 1 << outer;
+      } else if ((xs[outer] | os[outer]) != 0x1FF) {
+        open |= 1 << outer;
+        result += twos(xs[outer], os[outer]) - twos(os[outer], xs[outer]);
+      }
+    }
+    result += 10 * (Integer.bitCount(xWon) - Integer.bitCount(oWon));
+    for (int line : LINES) {
+      // a line of two won games whose third is still being played
+      if ((open & line) != 0 && (oWon & line) == 0
+          && Integer.bitCount(xWon & line) == 2) {
+        result += 20;
+      } else if ((open & line) != 0 && (xWon & line) == 0
+          && Integer.bitCount(oWon & line) == 2) {
+        result -= 20;
+      }
+    }
+    return result;
+  }
+
   @Test
   public void testLifecycle() {
-    final UltimateState state = new UltimateState();
+    final State<Integer> state = newState();
     assertEquals(state.makeMove(UltimateState.project(2,3)), true);
     // O can only move within global index 3
     assertEquals(state.validMoves().size(), 9);
@@ -51,7 +150,210 @@ public class UltimateStateSpec {
     assertEquals(state.makeMove(UltimateState.project(0,6)), true);
     assertEquals(state.makeMove(UltimateState.project(6,4)), true);
     assertEquals(state.isOver(), true);
-    assertEquals(state.winner(), Piece.X);
+    assertEquals(winner(state), Piece.X);
     assertEquals(state.validMoves().size(), 0);
   }
+
+  @Test
+  public void testZobristKey() {
+    final State<Integer> state = newState();
+    state.makeMove(UltimateState.project(4,0)); state.makeMove(UltimateState.project(0,4));
+    state.makeMove(UltimateState.project(4,8)); state.makeMove(UltimateState.project(8,4));
+    // same position, different move order
+    final State<Integer> transposed = newState();
+    transposed.makeMove(UltimateState.project(4,8)); transposed.makeMove(UltimateState.project(8,4));
+    transposed.makeMove(UltimateState.project(4,0)); transposed.makeMove(UltimateState.project(0,4));
+    assertEquals(state.zobristKey(), transposed.zobristKey());
+    // same spots, but play is now forced into a different local game
+    final State<Integer> forced = newState();
+    forced.makeMove(UltimateState.project(4,0)); forced.makeMove(UltimateState.project(0,4));
+    forced.makeMove(UltimateState.project(4,8)); forced.makeMove(UltimateState.project(8,4));
+    forced.makeMove(UltimateState.project(4,1));
+    transposed.makeMove(UltimateState.project(4,1));
+    assertEquals(forced.zobristKey(), transposed.zobristKey());
+    assertNotEquals(state.zobristKey(), transposed.zobristKey());
+  }
+
+  @Test
+  public void testFreeChoiceZobristKey() {
+    // X wins local game 0 and O wins local game 1, then X is sent to game 4
+    final int[][] opening = {
+      {2,1}, {1,6}, {6,7}, {7,3}, {3,6}, {6,2}, {2,5}, {5,0}, {0,1}, {1,0},
+      {0,4}, {4,8}, {8,6}, {6,0}, {0,7}, {7,2}, {2,0}, {1,3}, {3,5}, {5,4}
+    };
+    final State<Integer> state = newState();
+    final State<Integer> other = newState();
+    for (int[] move : opening) {
+      assertEquals(state.makeMove(UltimateState.project(move[0], move[1])), true);
+      assertEquals(other.makeMove(UltimateState.project(move[0], move[1])), true);
+    }
+    final long key = state.zobristKey();
+    // X marks (4,0) and (4,1) in either order, so the last move sends O to
+    // game 0 in one match and to game 1 in the other, both of them over
+    state.makeMove(UltimateState.project(4,1)); state.makeMove(UltimateState.project(8,4));
+    state.makeMove(UltimateState.project(4,0));
+    other.makeMove(UltimateState.project(4,0)); other.makeMove(UltimateState.project(8,4));
+    other.makeMove(UltimateState.project(4,1));
+    assertEquals(state.validMoves(), other.validMoves());
+    assertEquals(state.zobristKey(), other.zobristKey());
+    assertEquals(state.unmakeMove(), true);
+    assertEquals(state.unmakeMove(), true);
+    assertEquals(state.unmakeMove(), true);
+    assertEquals(state.zobristKey(), key);
+  }
+
+  @Test
+  public void testUnmakeMove() {
+    final State<Integer> state = newState();
+    assertEquals(state.unmakeMove(), false);
+    state.makeMove(UltimateState.project(2,3)); state.makeMove(UltimateState.project(3,2));
+    state.makeMove(UltimateState.project(2,4)); state.makeMove(UltimateState.project(4,2));
+    final long key = state.zobristKey();
+    // Give X a local victory, then revert it
+    state.makeMove(UltimateState.project(2,5));
+    assertEquals(state.validMoves().size(), 9);
+    state.makeMove(UltimateState.project(5,2));
+    assertEquals(state.validMoves().size(), 69);
+    assertEquals(state.unmakeMove(), true);
+    assertEquals(state.unmakeMove(), true);
+    assertEquals(state.movesMade(), 4);
+    assertEquals(state.zobristKey(), key);
+    // play is once again forced into global index 2
+    assertEquals(state.validMoves().size(), 7);
+    assertEquals(state.makeMove(UltimateState.project(5,2)), false);
+    assertEquals(state.makeMove(UltimateState.project(2,5)), true);
+    assertEquals(state.makeMove(UltimateState.project(5,2)), true);
+    assertEquals(state.validMoves().size(), 69);
+    while (state.unmakeMove()) { }
+    assertEquals(state.movesMade(), 0);
+    assertEquals(state.zobristKey(), newState().zobristKey());
+    assertEquals(state.validMoves().size(), 81);
+  }
+
+  @Test
+  public void testIntMoves() {
+    final IntState state = (IntState) newState();
+    final int[] moves = new int[state.maxValidMoves()];
+    final Random random = new Random(15);
+    for (int game = 0; game < 20; game++) {
+      while (!state.isOver()) {
+        final int count = state.validMoves(moves);
+        assertEquals(count, state.validMoves().size());
+        for (int i = 0; i < count; i++) {
+          assertEquals(moves[i], state.validMoves().get(i).intValue());
+          assertEquals(state.validMove(i), moves[i]);
+          assertEquals(state.validMoveIndex(moves[i]), i);
+          assertEquals(state.isValidMove(moves[i]), true);
+        }
+        assertEquals(state.validMove(count), IntState.NO_MOVE);
+        assertEquals(state.isValidMove(IntState.NO_MOVE), false);
+        final int m = moves[random.nextInt(count)];
+        state.makeMove(m);
+        assertEquals(state.isValidMove(m), false);
+      }
+      while (state.unmakeMove()) { }
+    }
+  }
+
+  @Test
+  public void testCanonicalKey() {
+    final int[][] cells = Symmetry.cells(3);
+    final Random random = new Random(18);
+    for (int s = 0; s < Symmetry.COUNT; s++) {
+      // play the same game on a board and on its image under s
+      final IntState state = (IntState) newState();
+      final IntState image = (IntState) newState();
+      while (!state.isOver()) {
+        final long key = ((Symmetric) state).canonicalKey();
+        assertEquals(((Symmetric) image).canonicalKey(), key);
+        final int symmetry = ((Symmetric) state).canonicalSymmetry();
+        final int imageSymmetry = ((Symmetric) image).canonicalSymmetry();
+        final int count = state.validMoves().size();
+        for (int i = 0; i < count; i++) {
+          final int canonical = ((Symmetric) state).toCanonical(i, symmetry);
+          assertEquals(((Symmetric) state).fromCanonical(canonical, symmetry), i);
+          // the move maps to one that leads to an equivalent position
+          state.makeMove(state.validMove(i));
+          image.makeMove(image.validMove(
+              ((Symmetric) image).fromCanonical(canonical, imageSymmetry)));
+          assertEquals(((Symmetric) image).canonicalKey(),
+              ((Symmetric) state).canonicalKey());
+          state.unmakeMove();
+          image.unmakeMove();
+        }
+        final int m = state.validMove(random.nextInt(count));
+        state.makeMove(m);
+        image.makeMove(UltimateState.project(cells[s][m >>> 16], cells[s][m & 0xFFFF]));
+      }
+    }
+    // the same marks, sent to different local games
+    final State<Integer> state = newState();
+    state.makeMove(UltimateState.project(4,0));
+    final State<Integer> other = newState();
+    other.makeMove(UltimateState.project(4,4));
+    assertNotEquals(((Symmetric) other).canonicalKey(), ((Symmetric) state).canonicalKey());
+  }
+
+  @Test
+  public void testHeuristic() {
+    final IntState state = (IntState) newState();
+    final int[] moves = new int[state.maxValidMoves()];
+    final int[] played = new int[81];
+    final int[] xs = new int[9];
+    final int[] os = new int[9];
+    final Random random = new Random(22);
+    for (int game = 0; game < 50; game++) {
+      while (!state.isOver()) {
+        assertEquals(heuristic(state), expectedHeuristic(xs, os));
+        final int m = moves[random.nextInt(state.validMoves(moves))];
+        played[state.movesMade()] = m;
+        if ((state.movesMade() & 1) == 0) {
+          xs[m >>> 16] |= 1 << (m & 0xFFFF);
+        } else {
+          os[m >>> 16] |= 1 << (m & 0xFFFF);
+        }
+        state.makeMove(m);
+      }
+      // copies carry the value, and unmaking moves restores it
+      assertEquals(heuristic(state.clone()), heuristic(state));
+      while (state.movesMade() > 0) {
+        final int m = played[state.movesMade() - 1];
+        state.unmakeMove();
+        xs[m >>> 16] &= ~(1 << (m & 0xFFFF));
+        os[m >>> 16] &= ~(1 << (m & 0xFFFF));
+        assertEquals(heuristic(state), expectedHeuristic(xs, os));
+      }
+    }
+    assertEquals(heuristic(state), 0);
+  }
+
+  @Test
+  public void testEmptyCells() {
+    final Random random = new Random(23);
+    for (int game = 0; game < 50; game++) {
+      final IntState state = (IntState) newState();
+      final int[] moves = new int[state.maxValidMoves()];
+      final int[] xs = new int[9];
+      final int[] os = new int[9];
+      while (!state.isOver()) {
+        int expected = 0;
+        for (int outer = 0; outer < 9; outer++) {
+          if (!line(xs[outer]) && !line(os[outer])) {
+            expected += 9 - Integer.bitCount(xs[outer] | os[outer]);
+          }
+        }
+        assertEquals(emptyCells(state), expected);
+        final int m = moves[random.nextInt(state.validMoves(moves))];
+        if ((state.movesMade() & 1) == 0) {
+          xs[m >>> 16] |= 1 << (m & 0xFFFF);
+        } else {
+          os[m >>> 16] |= 1 << (m & 0xFFFF);
+        }
+        state.makeMove(m);
+      }
+      assertEquals(emptyCells(state), 0);
+      state.unmakeMove();
+      assertEquals(emptyCells(state) > 0, true);
+    }
+  }
 }